@@ -0,0 +1,132 @@
+package se.mine.mindif.benchmarks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.mine.mindif.Context;
+import se.mine.mindif.Dependency;
+
+/**
+ * Injection into a batch of short lived components of the same class, one
+ * call per component compared with one call for the whole batch, for a class
+ * that is injected with method handles and for a class with a generated
+ * injector. Plain field assignment is the lower bound.
+ *
+ * @author Bjorn
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchInjectionBenchmark {
+	@Param({ "1000", "100000" })
+	public int batchSize;
+
+	private Context context;
+	private Processor[] components;
+	private GeneratedProcessor[] generatedComponents;
+	private ExecutorService executor;
+	private Repository repository;
+	private Codec codec;
+
+	@Setup
+	public void setUp() {
+		context = new Context();
+		components = new Processor[batchSize];
+		for (int i = 0; i < batchSize; i++) {
+			components[i] = new Processor();
+		}
+		generatedComponents = new GeneratedProcessor[batchSize];
+		for (int i = 0; i < batchSize; i++) {
+			generatedComponents[i] = new GeneratedProcessor();
+		}
+		context.inject(components[0]);
+		repository = components[0].repository;
+		codec = components[0].codec;
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Benchmark
+	public Object injectEach() {
+		for (Processor component : components) {
+			context.inject(component);
+		}
+		return components;
+	}
+
+	@Benchmark
+	public Object injectAll() {
+		context.injectAll(components);
+		return components;
+	}
+
+	@Benchmark
+	public Object injectAllGenerated() {
+		context.injectAll(generatedComponents);
+		return generatedComponents;
+	}
+
+	@Benchmark
+	public Object injectAllConcurrently() {
+		context.injectAll(components, executor);
+		return components;
+	}
+
+	@Benchmark
+	public Object plainAssignment() {
+		for (Processor component : components) {
+			component.repository = repository;
+			component.codec = codec;
+		}
+		return components;
+	}
+
+	/**
+	 * Component without an injector, since the processor skips classes with
+	 * private dependency fields.
+	 */
+	public static class Processor {
+		@Dependency
+		private Repository repository;
+		@Dependency
+		private Codec codec;
+	}
+
+	public static class Repository {
+	}
+
+	public static class Codec {
+	}
+
+	/**
+	 * Component with an injector that the MinDI F processor generates when the
+	 * benchmarks are compiled.
+	 */
+	public static class GeneratedProcessor {
+		@Dependency
+		Repository repository;
+		@Dependency
+		Codec codec;
+	}
+}
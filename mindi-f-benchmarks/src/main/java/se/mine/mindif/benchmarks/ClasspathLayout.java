@@ -0,0 +1,18 @@
+package se.mine.mindif.benchmarks;
+
+/**
+ * How the classes of a generated classpath are stored.
+ *
+ * @author Bjorn
+ */
+public enum ClasspathLayout {
+	/**
+	 * Class files in a package directory.
+	 */
+	DIRECTORY,
+
+	/**
+	 * Class files in a jar file.
+	 */
+	JAR
+}
@@ -0,0 +1,299 @@
+package se.mine.mindif.benchmarks;
+
+import se.mine.mindif.Dependency;
+
+/**
+ * Component graphs of different shapes for the injection benchmarks. The
+ * dependency fields are private, so the components are injected by the
+ * Context and not by generated injectors.
+ *
+ * @author Bjorn
+ */
+public enum Graph {
+	/**
+	 * One component with eight independent dependencies.
+	 */
+	FLAT {
+		@Override
+		public Object newRoot() {
+			return new FlatRoot();
+		}
+	},
+
+	/**
+	 * A chain of eight components, each depending on the next.
+	 */
+	DEEP {
+		@Override
+		public Object newRoot() {
+			return new Deep0();
+		}
+	},
+
+	/**
+	 * 12 levels where both components on each level depend on both components on
+	 * the next level, so the number of paths through the graph doubles with
+	 * every level.
+	 */
+	DIAMOND {
+		@Override
+		public Object newRoot() {
+			return new DiamondRoot();
+		}
+	};
+
+	/**
+	 * Creates a new, uninjected root component of the graph.
+	 *
+	 * @return the root component
+	 */
+	public abstract Object newRoot();
+
+	public static class FlatRoot {
+		@Dependency
+		private FlatLeaf0 leaf0;
+		@Dependency
+		private FlatLeaf1 leaf1;
+		@Dependency
+		private FlatLeaf2 leaf2;
+		@Dependency
+		private FlatLeaf3 leaf3;
+		@Dependency
+		private FlatLeaf4 leaf4;
+		@Dependency
+		private FlatLeaf5 leaf5;
+		@Dependency
+		private FlatLeaf6 leaf6;
+		@Dependency
+		private FlatLeaf7 leaf7;
+	}
+
+	public static class FlatLeaf0 {
+	}
+
+	public static class FlatLeaf1 {
+	}
+
+	public static class FlatLeaf2 {
+	}
+
+	public static class FlatLeaf3 {
+	}
+
+	public static class FlatLeaf4 {
+	}
+
+	public static class FlatLeaf5 {
+	}
+
+	public static class FlatLeaf6 {
+	}
+
+	public static class FlatLeaf7 {
+	}
+
+	public static class Deep0 {
+		@Dependency
+		private Deep1 next;
+	}
+
+	public static class Deep1 {
+		@Dependency
+		private Deep2 next;
+	}
+
+	public static class Deep2 {
+		@Dependency
+		private Deep3 next;
+	}
+
+	public static class Deep3 {
+		@Dependency
+		private Deep4 next;
+	}
+
+	public static class Deep4 {
+		@Dependency
+		private Deep5 next;
+	}
+
+	public static class Deep5 {
+		@Dependency
+		private Deep6 next;
+	}
+
+	public static class Deep6 {
+		@Dependency
+		private Deep7 next;
+	}
+
+	public static class Deep7 {
+	}
+
+	public static class DiamondRoot {
+		@Dependency
+		private Diamond0Left left;
+		@Dependency
+		private Diamond0Right right;
+	}
+
+	public static class Diamond0Left {
+		@Dependency
+		private Diamond1Left left;
+		@Dependency
+		private Diamond1Right right;
+	}
+
+	public static class Diamond0Right {
+		@Dependency
+		private Diamond1Left left;
+		@Dependency
+		private Diamond1Right right;
+	}
+
+	public static class Diamond1Left {
+		@Dependency
+		private Diamond2Left left;
+		@Dependency
+		private Diamond2Right right;
+	}
+
+	public static class Diamond1Right {
+		@Dependency
+		private Diamond2Left left;
+		@Dependency
+		private Diamond2Right right;
+	}
+
+	public static class Diamond2Left {
+		@Dependency
+		private Diamond3Left left;
+		@Dependency
+		private Diamond3Right right;
+	}
+
+	public static class Diamond2Right {
+		@Dependency
+		private Diamond3Left left;
+		@Dependency
+		private Diamond3Right right;
+	}
+
+	public static class Diamond3Left {
+		@Dependency
+		private Diamond4Left left;
+		@Dependency
+		private Diamond4Right right;
+	}
+
+	public static class Diamond3Right {
+		@Dependency
+		private Diamond4Left left;
+		@Dependency
+		private Diamond4Right right;
+	}
+
+	public static class Diamond4Left {
+		@Dependency
+		private Diamond5Left left;
+		@Dependency
+		private Diamond5Right right;
+	}
+
+	public static class Diamond4Right {
+		@Dependency
+		private Diamond5Left left;
+		@Dependency
+		private Diamond5Right right;
+	}
+
+	public static class Diamond5Left {
+		@Dependency
+		private Diamond6Left left;
+		@Dependency
+		private Diamond6Right right;
+	}
+
+	public static class Diamond5Right {
+		@Dependency
+		private Diamond6Left left;
+		@Dependency
+		private Diamond6Right right;
+	}
+
+	public static class Diamond6Left {
+		@Dependency
+		private Diamond7Left left;
+		@Dependency
+		private Diamond7Right right;
+	}
+
+	public static class Diamond6Right {
+		@Dependency
+		private Diamond7Left left;
+		@Dependency
+		private Diamond7Right right;
+	}
+
+	public static class Diamond7Left {
+		@Dependency
+		private Diamond8Left left;
+		@Dependency
+		private Diamond8Right right;
+	}
+
+	public static class Diamond7Right {
+		@Dependency
+		private Diamond8Left left;
+		@Dependency
+		private Diamond8Right right;
+	}
+
+	public static class Diamond8Left {
+		@Dependency
+		private Diamond9Left left;
+		@Dependency
+		private Diamond9Right right;
+	}
+
+	public static class Diamond8Right {
+		@Dependency
+		private Diamond9Left left;
+		@Dependency
+		private Diamond9Right right;
+	}
+
+	public static class Diamond9Left {
+		@Dependency
+		private Diamond10Left left;
+		@Dependency
+		private Diamond10Right right;
+	}
+
+	public static class Diamond9Right {
+		@Dependency
+		private Diamond10Left left;
+		@Dependency
+		private Diamond10Right right;
+	}
+
+	public static class Diamond10Left {
+		@Dependency
+		private Diamond11Left left;
+		@Dependency
+		private Diamond11Right right;
+	}
+
+	public static class Diamond10Right {
+		@Dependency
+		private Diamond11Left left;
+		@Dependency
+		private Diamond11Right right;
+	}
+
+	public static class Diamond11Left {
+	}
+
+	public static class Diamond11Right {
+	}
+}
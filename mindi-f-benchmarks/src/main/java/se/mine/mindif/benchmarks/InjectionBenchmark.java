@@ -0,0 +1,61 @@
+package se.mine.mindif.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.mine.mindif.AccessStrategy;
+import se.mine.mindif.Context;
+
+/**
+ * Cold injection, where every dependency is created in a new context, and warm
+ * injection, where all dependencies already exist, for each graph shape and
+ * access strategy.
+ *
+ * @author Bjorn
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InjectionBenchmark {
+	@Param({ "FLAT", "DEEP", "DIAMOND" })
+	public Graph graph;
+
+	@Param({ "METHOD_HANDLES", "REFLECTION" })
+	public AccessStrategy accessStrategy;
+
+	private Context warmContext;
+
+	@Setup
+	public void setUp() {
+		warmContext = new Context(accessStrategy);
+		warmContext.inject(graph.newRoot());
+	}
+
+	@Benchmark
+	public Object cold() {
+		final Object root = graph.newRoot();
+		new Context(accessStrategy).inject(root);
+		return root;
+	}
+
+	@Benchmark
+	public Object warm() {
+		final Object root = graph.newRoot();
+		warmContext.inject(root);
+		return root;
+	}
+}
@@ -0,0 +1,59 @@
+package se.mine.mindif.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.mine.mindif.Context;
+import se.mine.mindif.Dependency;
+
+/**
+ * Cold injection of an interface dependency with an explicit implementation,
+ * compared to one where the implementation is looked up. The classpath is
+ * scanned during warmup, so the lookup measures the shared type index.
+ *
+ * @author Bjorn
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterfaceResolutionBenchmark {
+
+	@Benchmark
+	public Object explicit() {
+		final ExplicitRoot root = new ExplicitRoot();
+		new Context().inject(root);
+		return root;
+	}
+
+	@Benchmark
+	public Object unspecified() {
+		final UnspecifiedRoot root = new UnspecifiedRoot();
+		new Context().inject(root);
+		return root;
+	}
+
+	public static interface Service {
+	}
+
+	public static class ServiceImpl implements Service {
+	}
+
+	public static class ExplicitRoot {
+		@Dependency(ServiceImpl.class)
+		private Service service;
+	}
+
+	public static class UnspecifiedRoot {
+		@Dependency
+		private Service service;
+	}
+}
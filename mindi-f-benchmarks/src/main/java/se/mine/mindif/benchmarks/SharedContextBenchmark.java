@@ -0,0 +1,60 @@
+package se.mine.mindif.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.mine.mindif.Context;
+
+/**
+ * Several threads injecting through one shared context. Warm injection only
+ * reads the instance map, and child injection creates a child context per
+ * operation. The default is 4 threads; the README shows how to sweep from 1
+ * to 64 threads with <code>-t</code>.
+ *
+ * @author Bjorn
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SharedContextBenchmark {
+	@Param({ "FLAT", "DIAMOND" })
+	public Graph graph;
+
+	private Context context;
+
+	@Setup
+	public void setUp() {
+		context = new Context();
+		context.inject(graph.newRoot());
+	}
+
+	@Benchmark
+	public Object warm() {
+		final Object root = graph.newRoot();
+		context.inject(root);
+		return root;
+	}
+
+	@Benchmark
+	public Object child() {
+		final Object root = graph.newRoot();
+		context.createChild().inject(root);
+		return root;
+	}
+}
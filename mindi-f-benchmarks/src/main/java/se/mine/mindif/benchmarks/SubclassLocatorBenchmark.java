@@ -0,0 +1,69 @@
+package se.mine.mindif.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.mine.mindif.SubclassLocator;
+
+/**
+ * Finds the implementation of an interface in a generated package with 1k to
+ * 100k classes, stored in a directory or a jar file. The scan benchmark
+ * discards the type index before every lookup, so it measures a full classpath
+ * scan, and the lookup benchmark measures a lookup in the existing index.
+ *
+ * @author Bjorn
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubclassLocatorBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	public int classCount;
+
+	@Param({ "DIRECTORY", "JAR" })
+	public ClasspathLayout layout;
+
+	private SyntheticClasspath classpath;
+	private Class<?> serviceClass;
+
+	@Setup
+	public void setUp() throws Exception {
+		classpath = new SyntheticClasspath(layout, classCount);
+		serviceClass = classpath.loadServiceClass();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		SubclassLocator.invalidate(classpath.getClassLoader());
+		classpath.delete();
+	}
+
+	@Benchmark
+	public List<Class<?>> scan() {
+		SubclassLocator.invalidate(classpath.getClassLoader());
+		return new SubclassLocator(serviceClass).getSubClasses();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<Class<?>> lookup() {
+		return new SubclassLocator(serviceClass).getSubClasses();
+	}
+}
@@ -0,0 +1,222 @@
+package se.mine.mindif.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import se.mine.mindif.benchmarks.synthetic.Marker;
+
+/**
+ * A generated package with many classes, stored in a directory or a jar file.
+ * One class implements the interface <code>Service</code>, and all others
+ * implement the interface <code>Other</code>.
+ *
+ * @author Bjorn
+ */
+final class SyntheticClasspath {
+	private static final String PACKAGE_PATH = Marker.class.getPackage().getName().replace('.', '/');
+	private static final String SERVICE_NAME = PACKAGE_PATH + "/Service";
+	private static final String OTHER_NAME = PACKAGE_PATH + "/Other";
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_SUPER = 0x0020;
+	private static final int ACC_INTERFACE = 0x0200;
+	private static final int ACC_ABSTRACT = 0x0400;
+
+	private final File root;
+	private final URLClassLoader classLoader;
+
+	/**
+	 * Generates the classes.
+	 *
+	 * @param layout how the classes are stored
+	 * @param classCount the number of classes
+	 *
+	 * @throws IOException if the classes could not be written
+	 */
+	SyntheticClasspath(final ClasspathLayout layout, final int classCount) throws IOException {
+		root = File.createTempFile("mindif", "classpath");
+		root.delete();
+		root.mkdirs();
+		final File location = layout == ClasspathLayout.JAR ? writeJar(classCount) : writeDirectory(classCount);
+		classLoader = new PackageFirstClassLoader(new URL[] { location.toURI().toURL() });
+	}
+
+	/**
+	 * Gets the class loader of the generated classes.
+	 *
+	 * @return the class loader
+	 */
+	ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	/**
+	 * Loads the interface with exactly one implementation.
+	 *
+	 * @return the interface
+	 *
+	 * @throws ClassNotFoundException if the class could not be loaded
+	 */
+	Class<?> loadServiceClass() throws ClassNotFoundException {
+		return Class.forName(SERVICE_NAME.replace('/', '.'), false, classLoader);
+	}
+
+	/**
+	 * Deletes the generated classes.
+	 *
+	 * @throws IOException if the class loader could not be closed
+	 */
+	void delete() throws IOException {
+		classLoader.close();
+		delete(root);
+	}
+
+	private File writeDirectory(final int classCount) throws IOException {
+		final File directory = new File(root, PACKAGE_PATH);
+		directory.mkdirs();
+		write(new File(directory, "Service.class"), interfaceBytes(SERVICE_NAME));
+		write(new File(directory, "Other.class"), interfaceBytes(OTHER_NAME));
+		for (int i = 0; i < classCount; i++) {
+			write(new File(directory, "Class" + i + ".class"), classBytes(i));
+		}
+		return root;
+	}
+
+	private File writeJar(final int classCount) throws IOException {
+		final File jarFile = new File(root, "synthetic.jar");
+		final JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarFile));
+		try {
+			final StringBuilder path = new StringBuilder();
+			for (String part : PACKAGE_PATH.split("/")) {
+				path.append(part).append('/');
+				jar.putNextEntry(new JarEntry(path.toString()));
+				jar.closeEntry();
+			}
+			putEntry(jar, SERVICE_NAME + ".class", interfaceBytes(SERVICE_NAME));
+			putEntry(jar, OTHER_NAME + ".class", interfaceBytes(OTHER_NAME));
+			for (int i = 0; i < classCount; i++) {
+				putEntry(jar, PACKAGE_PATH + "/Class" + i + ".class", classBytes(i));
+			}
+		} finally {
+			jar.close();
+		}
+		return jarFile;
+	}
+
+	private static byte[] interfaceBytes(final String name) throws IOException {
+		return classFile(name, null, ACC_PUBLIC | ACC_INTERFACE | ACC_ABSTRACT);
+	}
+
+	private static byte[] classBytes(final int index) throws IOException {
+		return classFile(PACKAGE_PATH + "/Class" + index, index == 0 ? SERVICE_NAME : OTHER_NAME, ACC_PUBLIC
+				| ACC_SUPER);
+	}
+
+	/**
+	 * Creates a class file without fields and methods.
+	 *
+	 * @param name the internal class name
+	 * @param interfaceName the internal name of the implemented interface, or
+	 *        null
+	 * @param accessFlags the access flags
+	 *
+	 * @return the class file
+	 *
+	 * @throws IOException never
+	 */
+	private static byte[] classFile(final String name, final String interfaceName, final int accessFlags)
+			throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(50);
+		out.writeShort(interfaceName == null ? 5 : 7);
+		writeClassConstant(out, name, 1);
+		writeClassConstant(out, "java/lang/Object", 3);
+		if (interfaceName != null) {
+			writeClassConstant(out, interfaceName, 5);
+		}
+		out.writeShort(accessFlags);
+		out.writeShort(2);
+		out.writeShort(4);
+		if (interfaceName == null) {
+			out.writeShort(0);
+		} else {
+			out.writeShort(1);
+			out.writeShort(6);
+		}
+		out.writeShort(0);
+		out.writeShort(0);
+		out.writeShort(0);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes a UTF-8 constant followed by a class constant that refers to it.
+	 *
+	 * @param out the class file
+	 * @param name the internal class name
+	 * @param index the constant pool index of the UTF-8 constant
+	 *
+	 * @throws IOException never
+	 */
+	private static void writeClassConstant(final DataOutputStream out, final String name, final int index)
+			throws IOException {
+		out.writeByte(1);
+		out.writeUTF(name);
+		out.writeByte(7);
+		out.writeShort(index);
+	}
+
+	private static void putEntry(final JarOutputStream jar, final String name, final byte[] content)
+			throws IOException {
+		jar.putNextEntry(new JarEntry(name));
+		jar.write(content);
+		jar.closeEntry();
+	}
+
+	private static void write(final File file, final byte[] content) throws IOException {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void delete(final File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Finds resources in its own classpath before asking the parent, so that
+	 * the generated package is scanned instead of the package of
+	 * {@link Marker}.
+	 */
+	private static final class PackageFirstClassLoader extends URLClassLoader {
+
+		PackageFirstClassLoader(final URL[] urls) {
+			super(urls, SyntheticClasspath.class.getClassLoader());
+		}
+
+		@Override
+		public URL getResource(final String name) {
+			final URL url = findResource(name);
+			return url != null ? url : super.getResource(name);
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package se.mine.mindif.benchmarks.synthetic;
+
+/**
+ * Defines the package of the generated classes in the application class
+ * loader, so that the classpath scan visits it.
+ *
+ * @author Bjorn
+ */
+public final class Marker {
+	private Marker() {
+	}
+}
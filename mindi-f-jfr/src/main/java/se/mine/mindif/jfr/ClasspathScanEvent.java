@@ -0,0 +1,35 @@
+package se.mine.mindif.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Recorded when the classpath has been scanned for the implementations of
+ * unspecified interfaces.
+ *
+ * @author Bjorn
+ */
+@Name("se.mine.mindif.ClasspathScan")
+@Label("Classpath Scan")
+@Category("MinDI F")
+@Description("The classpath was scanned to find interface implementations")
+class ClasspathScanEvent extends Event {
+	@Label("Class Loader")
+	String classLoader;
+
+	@Label("Entries Visited")
+	@Description("Files and jar entries that were visited")
+	int entriesVisited;
+
+	@Label("Classes Loaded")
+	@Description("Classes that were loaded to find supertypes")
+	int classesLoaded;
+
+	@Label("Scan Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long scanTime;
+}
@@ -0,0 +1,32 @@
+package se.mine.mindif.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded when the value of a dependency field has been resolved. There is
+ * one event per injected field, so the event is disabled by default.
+ *
+ * @author Bjorn
+ */
+@Name("se.mine.mindif.FieldInjected")
+@Label("Field Injected")
+@Category("MinDI F")
+@Description("A dependency was injected into a field")
+@StackTrace(false)
+@Enabled(false)
+class FieldInjectedEvent extends Event {
+	@Label("Declaring Class")
+	Class<?> declaringClass;
+
+	@Label("Field Name")
+	String fieldName;
+
+	@Label("Value Class")
+	Class<?> valueClass;
+}
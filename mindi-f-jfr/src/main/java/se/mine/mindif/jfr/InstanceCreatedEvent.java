@@ -0,0 +1,28 @@
+package se.mine.mindif.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Recorded when a context has constructed a component.
+ *
+ * @author Bjorn
+ */
+@Name("se.mine.mindif.InstanceCreated")
+@Label("Instance Created")
+@Category("MinDI F")
+@Description("A component was constructed by a context")
+@StackTrace(false)
+class InstanceCreatedEvent extends Event {
+	@Label("Component Class")
+	Class<?> componentClass;
+
+	@Label("Construction Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long constructionTime;
+}
@@ -0,0 +1,30 @@
+package se.mine.mindif.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded when a context looks up a shared instance. There is one event per
+ * injected field, so the event is disabled by default.
+ *
+ * @author Bjorn
+ */
+@Name("se.mine.mindif.InstanceLookup")
+@Label("Instance Lookup")
+@Category("MinDI F")
+@Description("A shared instance was looked up in a context")
+@StackTrace(false)
+@Enabled(false)
+class InstanceLookupEvent extends Event {
+	@Label("Component Class")
+	Class<?> componentClass;
+
+	@Label("Hit")
+	@Description("True if the instance already existed")
+	boolean hit;
+}
@@ -0,0 +1,77 @@
+package se.mine.mindif.jfr;
+
+import se.mine.mindif.InjectionListener;
+
+/**
+ * Records the callbacks of a context as JDK Flight Recorder events in the
+ * "MinDI F" category. Instance creation and classpath scans are recorded by
+ * default, lookups and field injections must be enabled in the recording
+ * settings since there is one of each per injected field. An event that is
+ * not enabled costs a check of a flag, so the listener can stay registered in
+ * production.
+ * <code>
+ * context.addListener(new JfrInjectionListener());
+ * </code>
+ *
+ * @author Bjorn
+ */
+public class JfrInjectionListener implements InjectionListener {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void instanceCreated(final Class<?> componentClass, final long constructionNanos) {
+		final InstanceCreatedEvent event = new InstanceCreatedEvent();
+		if (event.shouldCommit()) {
+			event.componentClass = componentClass;
+			event.constructionTime = constructionNanos;
+			event.commit();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void instanceLookup(final Class<?> componentClass, final boolean hit) {
+		final InstanceLookupEvent event = new InstanceLookupEvent();
+		if (event.shouldCommit()) {
+			event.componentClass = componentClass;
+			event.hit = hit;
+			event.commit();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void fieldInjected(final Class<?> declaringClass, final String fieldName, final Object value) {
+		final FieldInjectedEvent event = new FieldInjectedEvent();
+		if (event.shouldCommit()) {
+			event.declaringClass = declaringClass;
+			event.fieldName = fieldName;
+			event.valueClass = value == null ? null : value.getClass();
+			event.commit();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void scanStarted(final ClassLoader classLoader) {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void scanFinished(final ClassLoader classLoader, final int entriesVisited, final int classesLoaded,
+			final long durationNanos) {
+		final ClasspathScanEvent event = new ClasspathScanEvent();
+		if (event.shouldCommit()) {
+			event.classLoader = String.valueOf(classLoader);
+			event.entriesVisited = entriesVisited;
+			event.classesLoaded = classesLoaded;
+			event.scanTime = durationNanos;
+			event.commit();
+		}
+	}
+}
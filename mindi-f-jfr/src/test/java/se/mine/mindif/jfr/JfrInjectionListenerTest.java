@@ -0,0 +1,95 @@
+package se.mine.mindif.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+import se.mine.mindif.Context;
+import se.mine.mindif.Dependency;
+
+public class JfrInjectionListenerTest extends TestCase {
+
+	public void testEventsAreRecorded() throws IOException {
+		final List<RecordedEvent> events = record(true);
+		assertEquals(2, count(events, "se.mine.mindif.InstanceCreated"));
+		assertEquals(3, count(events, "se.mine.mindif.FieldInjected"));
+		assertEquals(3, count(events, "se.mine.mindif.InstanceLookup"));
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals("se.mine.mindif.InstanceCreated")) {
+				assertTrue(event.getLong("constructionTime") >= 0);
+				final String className = event.getClass("componentClass").getName();
+				assertTrue(className, className.equals(Repository.class.getName())
+						|| className.equals(Cache.class.getName()));
+			}
+		}
+	}
+
+	public void testHighVolumeEventsAreDisabledByDefault() throws IOException {
+		final List<RecordedEvent> events = record(false);
+		assertEquals(2, count(events, "se.mine.mindif.InstanceCreated"));
+		assertEquals(0, count(events, "se.mine.mindif.FieldInjected"));
+		assertEquals(0, count(events, "se.mine.mindif.InstanceLookup"));
+	}
+
+	private static List<RecordedEvent> record(final boolean enableAll) throws IOException {
+		final Path file = Files.createTempFile("mindi-f", ".jfr");
+		try {
+			final Recording recording = new Recording();
+			try {
+				recording.enable("se.mine.mindif.InstanceCreated");
+				if (enableAll) {
+					recording.enable("se.mine.mindif.InstanceLookup");
+					recording.enable("se.mine.mindif.FieldInjected");
+				}
+				recording.start();
+				final Context context = new Context();
+				context.addListener(new JfrInjectionListener());
+				context.inject(new Service());
+				recording.stop();
+				recording.dump(file);
+			} finally {
+				recording.close();
+			}
+			final List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+				if (event.getEventType().getName().startsWith("se.mine.mindif.")) {
+					events.add(event);
+				}
+			}
+			return events;
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static int count(final List<RecordedEvent> events, final String name) {
+		int count = 0;
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals(name)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	static class Service {
+		@Dependency
+		private Repository repository;
+		@Dependency
+		private Cache cache;
+	}
+
+	static class Cache {
+		@Dependency
+		private Repository repository;
+	}
+
+	static class Repository {
+	}
+}
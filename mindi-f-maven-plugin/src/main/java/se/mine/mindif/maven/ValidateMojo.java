@@ -0,0 +1,319 @@
+package se.mine.mindif.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import se.mine.mindif.Dependency;
+import se.mine.mindif.DependencyValidator;
+import se.mine.mindif.ScanScope;
+
+/**
+ * Checks the MinDI F dependency graphs of the compiled classes, without
+ * running any constructors, and fails the build on missing, ambiguous or
+ * cyclic dependencies. The fields with an unspecified interface are reported,
+ * since they need a classpath scan at runtime, and the implementations that
+ * were found for them are written to the wiring resource that the context
+ * reads instead of scanning.
+ * <code>
+ * &lt;plugin&gt;
+ *   &lt;groupId&gt;com.google.code.mindi-f&lt;/groupId&gt;
+ *   &lt;artifactId&gt;mindi-f-maven-plugin&lt;/artifactId&gt;
+ *   &lt;executions&gt;
+ *     &lt;execution&gt;
+ *       &lt;goals&gt;&lt;goal&gt;validate&lt;/goal&gt;&lt;/goals&gt;
+ *     &lt;/execution&gt;
+ *   &lt;/executions&gt;
+ * &lt;/plugin&gt;
+ * </code>
+ *
+ * @author Bjorn
+ */
+@Mojo(name = "validate", defaultPhase = LifecyclePhase.PROCESS_CLASSES, requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class ValidateMojo extends AbstractMojo {
+	private static final String CLASS_SUFFIX = ".class";
+
+	/**
+	 * The directory with the compiled classes, where the wiring is written.
+	 */
+	@Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+	private File classesDirectory;
+
+	/**
+	 * The compile classpath of the project.
+	 */
+	@Parameter(defaultValue = "${project.compileClasspathElements}", readonly = true, required = true)
+	private List<String> classpathElements;
+
+	/**
+	 * The classes of the components that are injected. Every class in the
+	 * classes directory with a dependency field is a root if none are given.
+	 */
+	@Parameter
+	private String[] roots;
+
+	/**
+	 * The package prefixes that unspecified interfaces are looked up in. The
+	 * whole compile classpath is scanned if none are given.
+	 */
+	@Parameter
+	private String[] scanPackages;
+
+	/**
+	 * Packages or classes that are never picked as implementations.
+	 */
+	@Parameter
+	private String[] excludes;
+
+	/**
+	 * Fails the build if a dependency cannot be resolved.
+	 */
+	@Parameter(property = "mindif.failOnError", defaultValue = "true")
+	private boolean failOnError;
+
+	/**
+	 * Writes the resolved implementations of the unspecified interface fields
+	 * to the classes directory.
+	 */
+	@Parameter(property = "mindif.writeWiring", defaultValue = "true")
+	private boolean writeWiring;
+
+	/**
+	 * Skips the validation.
+	 */
+	@Parameter(property = "mindif.skip", defaultValue = "false")
+	private boolean skip;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if (skip) {
+			getLog().info("Skipping MinDI F validation");
+			return;
+		}
+		if (!classesDirectory.isDirectory()) {
+			getLog().info("No classes to validate in " + classesDirectory);
+			return;
+		}
+		final URLClassLoader classLoader = new URLClassLoader(getClassPath(), getClass().getClassLoader());
+		try {
+			final DependencyValidator validator = new DependencyValidator(getScanScope(classLoader));
+			final List<Class<?>> rootClasses = getRootClasses(classLoader);
+			getLog().info("Validating the dependencies of " + rootClasses.size() + " root classes");
+			validator.validate(rootClasses.toArray(new Class<?>[rootClasses.size()]));
+			report(validator);
+		} finally {
+			try {
+				classLoader.close();
+			} catch (IOException e) {
+				getLog().debug("Could not close the project class loader", e);
+			}
+		}
+	}
+
+	/**
+	 * Logs the unspecified interface fields and the errors, and writes the
+	 * wiring.
+	 *
+	 * @param validator the validator that has checked the root classes
+	 *
+	 * @throws MojoExecutionException if the wiring cannot be written
+	 * @throws MojoFailureException if there are errors and the build should
+	 *         fail on them
+	 */
+	private void report(final DependencyValidator validator) throws MojoExecutionException,
+			MojoFailureException {
+		for (String scannedField : validator.getScannedFields()) {
+			getLog().warn(
+					"Unspecified interface field " + scannedField + " "
+							+ (writeWiring ? "is resolved at build time" : "needs a classpath scan at runtime")
+							+ ", please name the implementing class in @Dependency where possible");
+		}
+		if (writeWiring) {
+			writeWiring(validator);
+		}
+		final List<String> errors = validator.getErrors();
+		for (String error : errors) {
+			if (failOnError) {
+				getLog().error(error);
+			} else {
+				getLog().warn(error);
+			}
+		}
+		if (failOnError && !errors.isEmpty()) {
+			throw new MojoFailureException("Found " + errors.size() + " MinDI F dependency errors");
+		}
+	}
+
+	/**
+	 * Writes the wiring to the classes directory, or removes an old wiring
+	 * file if no field needs one.
+	 *
+	 * @param validator the validator that has checked the root classes
+	 *
+	 * @throws MojoExecutionException if the wiring cannot be written
+	 */
+	private void writeWiring(final DependencyValidator validator) throws MojoExecutionException {
+		if (validator.getWiring().isEmpty()) {
+			final File file = new File(classesDirectory, DependencyValidator.WIRING_RESOURCE);
+			if (file.isFile() && !file.delete()) {
+				throw new MojoExecutionException("Cannot remove " + file);
+			}
+			return;
+		}
+		try {
+			final File file = validator.writeWiring(classesDirectory);
+			getLog().info("Wrote the wiring of " + validator.getWiring().size() + " fields to " + file);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Cannot write the MinDI F wiring", e);
+		}
+	}
+
+	/**
+	 * Gets the classes directory and the compile classpath as urls.
+	 *
+	 * @return the urls
+	 *
+	 * @throws MojoExecutionException if a classpath element is not a valid url
+	 */
+	private URL[] getClassPath() throws MojoExecutionException {
+		final Set<File> files = new LinkedHashSet<File>();
+		files.add(classesDirectory.getAbsoluteFile());
+		if (classpathElements != null) {
+			for (String element : classpathElements) {
+				files.add(new File(element).getAbsoluteFile());
+			}
+		}
+		final List<URL> urls = new ArrayList<URL>(files.size());
+		for (File file : files) {
+			try {
+				urls.add(file.toURI().toURL());
+			} catch (MalformedURLException e) {
+				throw new MojoExecutionException("Invalid classpath element " + file, e);
+			}
+		}
+		return urls.toArray(new URL[urls.size()]);
+	}
+
+	/**
+	 * Gets the scope that unspecified interfaces are looked up in.
+	 *
+	 * @param classLoader loads the project classes
+	 *
+	 * @return the scan scope
+	 */
+	private ScanScope getScanScope(final ClassLoader classLoader) {
+		ScanScope scope = ScanScope.all().withClassLoaders(classLoader);
+		if (scanPackages != null && scanPackages.length > 0) {
+			scope = scope.withPackages(scanPackages);
+		}
+		if (excludes != null && excludes.length > 0) {
+			scope = scope.exclude(excludes);
+		}
+		return scope;
+	}
+
+	/**
+	 * Gets the root classes, either the configured ones or every class in the
+	 * classes directory with a dependency field.
+	 *
+	 * @param classLoader loads the project classes
+	 *
+	 * @return the root classes
+	 *
+	 * @throws MojoExecutionException if a configured root cannot be loaded
+	 */
+	private List<Class<?>> getRootClasses(final ClassLoader classLoader) throws MojoExecutionException {
+		final List<Class<?>> returnValue = new ArrayList<Class<?>>();
+		if (roots != null && roots.length > 0) {
+			for (String root : roots) {
+				try {
+					returnValue.add(Class.forName(root.trim(), false, classLoader));
+				} catch (ClassNotFoundException e) {
+					throw new MojoExecutionException("Cannot find root class " + root, e);
+				} catch (LinkageError e) {
+					throw new MojoExecutionException("Cannot load root class " + root, e);
+				}
+			}
+			return returnValue;
+		}
+		addComponentClasses(returnValue, classesDirectory, "", classLoader);
+		return returnValue;
+	}
+
+	/**
+	 * Adds the classes in a directory, and its sub directories, that are
+	 * concrete and have a dependency field.
+	 *
+	 * @param classes the list to add to
+	 * @param directory the directory
+	 * @param packagePrefix the package of the directory, with a trailing dot
+	 * @param classLoader loads the classes
+	 */
+	private void addComponentClasses(final List<Class<?>> classes, final File directory,
+			final String packagePrefix, final ClassLoader classLoader) {
+		final File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			final String name = file.getName();
+			if (file.isDirectory()) {
+				addComponentClasses(classes, file, packagePrefix + name + ".", classLoader);
+			} else if (name.endsWith(CLASS_SUFFIX) && !name.equals("module-info.class")
+					&& !name.equals("package-info.class")) {
+				final String className = packagePrefix + name.substring(0, name.length() - CLASS_SUFFIX.length());
+				try {
+					final Class<?> clazz = Class.forName(className, false, classLoader);
+					if (isComponent(clazz)) {
+						classes.add(clazz);
+					}
+				} catch (ClassNotFoundException e) {
+					getLog().debug("Could not find class " + className);
+				} catch (LinkageError e) {
+					getLog().debug("Could not load class " + className + ": " + e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks if a class can be instantiated and has a dependency field, in the
+	 * class itself or in a superclass.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return true if the class is a component
+	 */
+	private static boolean isComponent(final Class<?> clazz) {
+		if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+			return false;
+		}
+		for (Class<?> current = clazz; current != null && current != Object.class; current = current
+				.getSuperclass()) {
+			for (Field field : current.getDeclaredFields()) {
+				if (field.isAnnotationPresent(Dependency.class)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,108 @@
+package se.mine.mindif.maven;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.MojoFailureException;
+
+import se.mine.mindif.Dependency;
+import se.mine.mindif.DependencyValidator;
+
+@SuppressWarnings("unused")
+public class ValidateMojoTest extends TestCase {
+	private File classesDirectory;
+
+	@Override
+	protected void setUp() {
+		classesDirectory = new File(System.getProperty("java.io.tmpdir"), "mindif-classes-" + System.nanoTime());
+		assertTrue(classesDirectory.mkdirs());
+	}
+
+	@Override
+	protected void tearDown() {
+		final File wiring = new File(classesDirectory, DependencyValidator.WIRING_RESOURCE);
+		if (wiring.isFile()) {
+			assertTrue(wiring.delete());
+			assertTrue(wiring.getParentFile().delete());
+			assertTrue(wiring.getParentFile().getParentFile().delete());
+		}
+		assertTrue(classesDirectory.delete());
+	}
+
+	public void testWritesWiring() throws Exception {
+		final ValidateMojo mojo = createMojo(ValidComponent.class);
+		mojo.execute();
+		final BufferedReader reader = new BufferedReader(new FileReader(new File(classesDirectory,
+				DependencyValidator.WIRING_RESOURCE)));
+		try {
+			assertEquals(ValidComponent.class.getName() + "#service=" + ServiceImpl.class.getName(), reader
+					.readLine());
+			assertNull(reader.readLine());
+		} finally {
+			reader.close();
+		}
+	}
+
+	public void testFailsOnMissingDependency() throws Exception {
+		final ValidateMojo mojo = createMojo(BrokenComponent.class);
+		try {
+			mojo.execute();
+			fail("Should throw exception");
+		} catch (MojoFailureException e) {
+			assertEquals("Found 1 MinDI F dependency errors", e.getMessage());
+		}
+	}
+
+	public void testFailOnErrorCanBeTurnedOff() throws Exception {
+		final ValidateMojo mojo = createMojo(BrokenComponent.class);
+		set(mojo, "failOnError", Boolean.FALSE);
+		mojo.execute();
+	}
+
+	private ValidateMojo createMojo(final Class<?> rootClass) throws Exception {
+		final ValidateMojo mojo = new ValidateMojo();
+		set(mojo, "classesDirectory", classesDirectory);
+		set(mojo, "classpathElements", Collections.singletonList(getTestClassesDirectory().getPath()));
+		set(mojo, "roots", new String[] { rootClass.getName() });
+		set(mojo, "scanPackages", new String[] { "se.mine.mindif.maven" });
+		set(mojo, "failOnError", Boolean.TRUE);
+		set(mojo, "writeWiring", Boolean.TRUE);
+		return mojo;
+	}
+
+	private static File getTestClassesDirectory() throws Exception {
+		return new File(ValidateMojoTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+	}
+
+	private static void set(final ValidateMojo mojo, final String fieldName, final Object value)
+			throws Exception {
+		final Field field = ValidateMojo.class.getDeclaredField(fieldName);
+		field.setAccessible(true);
+		field.set(mojo, value);
+	}
+
+	static class ValidComponent {
+		@Dependency
+		private Service service;
+	}
+
+	static class BrokenComponent {
+		@Dependency
+		private Missing missing;
+	}
+
+	static interface Service {
+	}
+
+	static class ServiceImpl implements Service {
+	}
+
+	static interface Missing {
+	}
+}
@@ -0,0 +1,168 @@
+package se.mine.mindif.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+import se.mine.mindif.ComponentInjector;
+import se.mine.mindif.SubclassLocator;
+
+/**
+ * Writes an index of interface to implementation mappings for all concrete
+ * classes in a compilation, except generated injectors, so that unspecified
+ * interface dependencies can be resolved without scanning the classpath. The
+ * index is written to {@link SubclassLocator#INDEX_RESOURCE}, with one
+ * <code>interface=implementation</code> line per mapping. An index that is
+ * already in the output directory, from an earlier compilation, is merged with
+ * the new entries, so an incremental compilation keeps the entries of the
+ * classes that it did not compile.
+ *
+ * @author Bjorn
+ */
+@SupportedAnnotationTypes("*")
+public class ImplementationIndexProcessor extends AbstractProcessor {
+	private final Set<String> entries = new TreeSet<String>();
+	private final Set<String> compiledNames = new HashSet<String>();
+	private final List<Element> originatingElements = new ArrayList<Element>();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeIndex();
+		} else {
+			for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+				processType(type);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds index entries for a class and its nested classes.
+	 *
+	 * @param type the class
+	 */
+	private void processType(final TypeElement type) {
+		for (TypeElement nestedType : ElementFilter.typesIn(type.getEnclosedElements())) {
+			processType(nestedType);
+		}
+		final String implementationName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		compiledNames.add(implementationName);
+		if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+			return;
+		}
+		if (implementationName.endsWith(ComponentInjector.SUFFIX)) {
+			return;
+		}
+		final int entryCount = entries.size();
+		addInterfaces(type, implementationName);
+		if (entries.size() != entryCount) {
+			originatingElements.add(type);
+		}
+	}
+
+	/**
+	 * Adds an entry for every interface that a type implements, directly or
+	 * through its supertypes.
+	 *
+	 * @param type the type
+	 * @param implementationName the binary name of the implementing class
+	 */
+	private void addInterfaces(final TypeElement type, final String implementationName) {
+		for (TypeMirror interfaceType : type.getInterfaces()) {
+			final TypeElement interfaceElement = (TypeElement) processingEnv.getTypeUtils().asElement(interfaceType);
+			entries.add(processingEnv.getElementUtils().getBinaryName(interfaceElement) + "=" + implementationName);
+			addInterfaces(interfaceElement, implementationName);
+		}
+		final TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() == TypeKind.DECLARED) {
+			addInterfaces((TypeElement) processingEnv.getTypeUtils().asElement(superclass), implementationName);
+		}
+	}
+
+	/**
+	 * Reads the entries of an index from an earlier compilation, except those
+	 * of the classes in this compilation, which are indexed again.
+	 *
+	 * @return the entries, or an empty set if there is no index
+	 */
+	private Set<String> readExistingIndex() {
+		final Set<String> returnValue = new TreeSet<String>();
+		try {
+			final BufferedReader reader = new BufferedReader(processingEnv.getFiler().getResource(
+					StandardLocation.CLASS_OUTPUT, "", SubclassLocator.INDEX_RESOURCE).openReader(true));
+			try {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					final int separator = line.indexOf('=');
+					if (separator > 0 && !compiledNames.contains(line.substring(separator + 1).trim())) {
+						returnValue.add(line.trim());
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			// No index from an earlier compilation
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Writes the collected entries, merged with the existing index, to the
+	 * index resource.
+	 */
+	private void writeIndex() {
+		final Set<String> existingEntries = readExistingIndex();
+		if (entries.isEmpty() && existingEntries.isEmpty()) {
+			return;
+		}
+		entries.addAll(existingEntries);
+		try {
+			final Writer writer = new OutputStreamWriter(processingEnv.getFiler().createResource(
+					StandardLocation.CLASS_OUTPUT, "", SubclassLocator.INDEX_RESOURCE,
+					originatingElements.toArray(new Element[originatingElements.size()])).openOutputStream(), "UTF-8");
+			try {
+				for (String entry : entries) {
+					writer.write(entry);
+					writer.write('\n');
+				}
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Could not write " + SubclassLocator.INDEX_RESOURCE + ": " + e.getMessage());
+		}
+	}
+}
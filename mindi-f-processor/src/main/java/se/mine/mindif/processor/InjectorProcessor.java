@@ -0,0 +1,454 @@
+package se.mine.mindif.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import se.mine.mindif.ComponentInjector;
+import se.mine.mindif.Dependency;
+import se.mine.mindif.Provider;
+import se.mine.mindif.Scope;
+
+/**
+ * Generates a {@link ComponentInjector} for every class that has fields
+ * annotated with {@link Dependency}, so that the class can be injected
+ * without reflection. Classes whose dependency fields cannot be written from
+ * generated code, such as private fields, get no injector and are injected
+ * with reflection as before.
+ *
+ * @author Bjorn
+ */
+@SupportedAnnotationTypes("*")
+public class InjectorProcessor extends AbstractProcessor {
+	private static final String DEPENDENCY_NAME = Dependency.class.getName();
+	private static final String NOTHING_NAME = Dependency.Nothing.class.getCanonicalName();
+	private static final String PROVIDER_NAME = Provider.class.getName();
+	private static final String LIST_NAME = List.class.getName();
+
+	private final Set<String> processedTypes = new HashSet<String>();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+			processType(type);
+		}
+		return false;
+	}
+
+	/**
+	 * Generates an injector for a class and its nested classes.
+	 *
+	 * @param type the class
+	 */
+	private void processType(final TypeElement type) {
+		for (TypeElement nestedType : ElementFilter.typesIn(type.getEnclosedElements())) {
+			processType(nestedType);
+		}
+		if (type.getKind() != ElementKind.CLASS || !processedTypes.add(type.getQualifiedName().toString())) {
+			return;
+		}
+		final List<VariableElement> fields = new ArrayList<VariableElement>();
+		addDependencyFields(fields, type);
+		if (fields.isEmpty()) {
+			return;
+		}
+		final String reason = getUnsupportedReason(type, fields);
+		if (reason != null) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+					"No injector generated for " + type.getQualifiedName() + ", " + reason
+							+ ". Reflection will be used", type);
+			return;
+		}
+		try {
+			writeInjector(type, fields);
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Could not write injector for " + type.getQualifiedName() + ": " + e.getMessage(), type);
+		}
+	}
+
+	/**
+	 * Adds the dependency fields of a class, superclass fields first.
+	 *
+	 * @param fields the list to add to
+	 * @param type the class
+	 */
+	private void addDependencyFields(final List<VariableElement> fields, final TypeElement type) {
+		final TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() == TypeKind.DECLARED) {
+			addDependencyFields(fields, (TypeElement) processingEnv.getTypeUtils().asElement(superclass));
+		}
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			if (getDependency(field) != null) {
+				fields.add(field);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether generated code can instantiate the class and write all of
+	 * its dependency fields. The injector is in the package of the class, so
+	 * the fields, and the classes that it names, must be accessible from that
+	 * package. A protected field in a superclass in another package is not,
+	 * since the injector is not a subclass.
+	 *
+	 * @param type the class
+	 * @param fields the dependency fields
+	 *
+	 * @return the reason an injector cannot be generated, or null if it can
+	 */
+	private String getUnsupportedReason(final TypeElement type, final List<VariableElement> fields) {
+		final PackageElement typePackage = processingEnv.getElementUtils().getPackageOf(type);
+		if (!isAccessible(type, typePackage)) {
+			return "the class is not accessible";
+		}
+		for (VariableElement field : fields) {
+			final Set<Modifier> modifiers = field.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+					|| modifiers.contains(Modifier.FINAL)) {
+				return "field " + field.getSimpleName() + " is " + modifiers;
+			}
+			final boolean samePackage = processingEnv.getElementUtils().getPackageOf(field).equals(typePackage);
+			if (!samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+				return "field " + field.getSimpleName() + " is not accessible";
+			}
+			if (!isAccessible((TypeElement) field.getEnclosingElement(), typePackage)
+					|| !isAccessible(field.asType(), typePackage)) {
+				return "the type of field " + field.getSimpleName() + " is not accessible";
+			}
+			if (field.asType().getKind().isPrimitive()) {
+				return "field " + field.getSimpleName() + " is primitive";
+			}
+			if (isMultiple(field)) {
+				return "field " + field.getSimpleName() + " gets all implementations";
+			}
+			final TypeMirror dependencyType = getDependencyType(field);
+			if (dependencyType == null) {
+				return "provider field " + field.getSimpleName() + " does not declare the provided class";
+			}
+			if (isProvider(field) && getScope(field) != null) {
+				return "provider field " + field.getSimpleName() + " does not have singleton scope";
+			}
+			final TypeMirror implementingType = getImplementingType(field);
+			if (implementingType != null && !processingEnv.getTypeUtils().isAssignable(erasure(implementingType),
+					erasure(dependencyType))) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+						implementingType + " is not a subclass of " + erasure(dependencyType), field);
+				return "field " + field.getSimpleName() + " has an illegal implementation";
+			}
+			if (!isAccessible(dependencyType, typePackage) || implementingType != null
+					&& !isAccessible(implementingType, typePackage)) {
+				return "the implementation of field " + field.getSimpleName() + " is not accessible";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether generated code in a package can name a type.
+	 *
+	 * @param typeMirror the type
+	 * @param fromPackage the package of the generated code
+	 *
+	 * @return true if the type, or the element type of an array, is accessible
+	 */
+	private boolean isAccessible(final TypeMirror typeMirror, final PackageElement fromPackage) {
+		final TypeMirror erasedType = erasure(typeMirror);
+		if (erasedType.getKind() == TypeKind.ARRAY) {
+			return isAccessible(((ArrayType) erasedType).getComponentType(), fromPackage);
+		}
+		if (erasedType.getKind() != TypeKind.DECLARED) {
+			return true;
+		}
+		return isAccessible((TypeElement) ((DeclaredType) erasedType).asElement(), fromPackage);
+	}
+
+	/**
+	 * Checks whether generated code in a package can name a class. The class
+	 * and the classes that it is nested in must not be private, local or
+	 * anonymous, and must be public if they are in another package.
+	 *
+	 * @param type the class
+	 * @param fromPackage the package of the generated code
+	 *
+	 * @return true if the class is accessible
+	 */
+	private boolean isAccessible(final TypeElement type, final PackageElement fromPackage) {
+		final boolean samePackage = processingEnv.getElementUtils().getPackageOf(type).equals(fromPackage);
+		for (Element element = type; element.getKind() != ElementKind.PACKAGE; element = element
+				.getEnclosingElement()) {
+			if (!(element instanceof TypeElement)) {
+				return false;
+			}
+			final NestingKind nestingKind = ((TypeElement) element).getNestingKind();
+			if (nestingKind == NestingKind.LOCAL || nestingKind == NestingKind.ANONYMOUS) {
+				return false;
+			}
+			final Set<Modifier> modifiers = element.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE) || !samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the injector source file for a class.
+	 *
+	 * @param type the class
+	 * @param fields the dependency fields
+	 *
+	 * @throws IOException if the file could not be written
+	 */
+	private void writeInjector(final TypeElement type, final List<VariableElement> fields) throws IOException {
+		final String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		final String injectorName = binaryName + ComponentInjector.SUFFIX;
+		final String simpleName = packageName.length() == 0 ? injectorName : injectorName.substring(packageName
+				.length() + 1);
+		final String typeName = type.getQualifiedName().toString();
+
+		final StringBuilder source = new StringBuilder();
+		if (packageName.length() != 0) {
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+		source.append("/**\n");
+		source.append(" * Injector for {@link ").append(typeName).append("}, generated by the MinDI F processor.\n");
+		source.append(" */\n");
+		source.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+		source.append("public final class ").append(simpleName).append(" implements ").append(
+				ComponentInjector.class.getName()).append("<").append(typeName).append("> {\n\n");
+		source.append("\tpublic ").append(typeName).append(" newInstance() {\n");
+		if (isInstantiable(type)) {
+			source.append("\t\treturn new ").append(typeName).append("();\n");
+		} else {
+			source.append("\t\treturn null;\n");
+		}
+		source.append("\t}\n\n");
+		source.append("\tpublic void inject(final ").append(typeName).append(" component, final ").append(
+				ComponentInjector.Resolver.class.getCanonicalName()).append(" resolver) {\n");
+		for (VariableElement field : fields) {
+			final TypeMirror fieldType = erasure(field.asType());
+			final TypeMirror dependencyType = erasure(getDependencyType(field));
+			final TypeElement declaringType = (TypeElement) field.getEnclosingElement();
+			final String scope = getScope(field);
+			source.append("\t\tcomponent.").append(field.getSimpleName()).append(" = (").append(fieldType).append(
+					isProvider(field) ? ") resolver.resolveLazy(" : ") resolver.resolve(").append(
+					declaringType.getQualifiedName()).append(".class, \"").append(field.getSimpleName()).append(
+					"\", ").append(dependencyType).append(".class, ").append(getImplementingClassLiteral(field));
+			if (scope != null) {
+				source.append(", ").append(Scope.class.getName()).append(".").append(scope);
+			}
+			source.append(");\n");
+		}
+		source.append("\t}\n");
+		source.append("}\n");
+
+		final Writer writer = processingEnv.getFiler().createSourceFile(injectorName, type).openWriter();
+		try {
+			writer.write(source.toString());
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Checks whether generated code can call the no-arg constructor of a class.
+	 *
+	 * @param type the class
+	 *
+	 * @return true if the class can be instantiated
+	 */
+	private boolean isInstantiable(final TypeElement type) {
+		if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+			return false;
+		}
+		if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+			return false;
+		}
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty()) {
+				return !constructor.getModifiers().contains(Modifier.PRIVATE);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the class literal of the class to instantiate for a field, the same
+	 * way as it is resolved at runtime.
+	 *
+	 * @param field the field
+	 *
+	 * @return the class literal, or "null" for an unspecified interface
+	 */
+	private String getImplementingClassLiteral(final VariableElement field) {
+		final TypeMirror implementingType = getImplementingType(field);
+		if (implementingType != null) {
+			return erasure(implementingType) + ".class";
+		}
+		final TypeMirror dependencyType = getDependencyType(field);
+		final Element dependencyElement = processingEnv.getTypeUtils().asElement(dependencyType);
+		if (dependencyElement != null && dependencyElement.getKind().isInterface()) {
+			return "null";
+		}
+		return erasure(dependencyType) + ".class";
+	}
+
+	/**
+	 * Gets the type of the dependency that is injected into a field, which is
+	 * the type argument for a {@link Provider} field.
+	 *
+	 * @param field the field
+	 *
+	 * @return the dependency type, or null if a provider field has no usable
+	 *         type argument
+	 */
+	private TypeMirror getDependencyType(final VariableElement field) {
+		if (!isProvider(field)) {
+			return field.asType();
+		}
+		final List<? extends TypeMirror> typeArguments = ((DeclaredType) field.asType()).getTypeArguments();
+		if (typeArguments.isEmpty() || typeArguments.get(0).getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		return typeArguments.get(0);
+	}
+
+	/**
+	 * Checks whether a field is a {@link Provider}.
+	 *
+	 * @param field the field
+	 *
+	 * @return true if the field is a provider
+	 */
+	private boolean isProvider(final VariableElement field) {
+		return erasure(field.asType()).toString().equals(PROVIDER_NAME);
+	}
+
+	/**
+	 * Checks whether a field is a <code>List</code> or an object array without
+	 * an implementing class, which gets all implementations of its element
+	 * type.
+	 *
+	 * @param field the field
+	 *
+	 * @return true if the field gets all implementations
+	 */
+	private boolean isMultiple(final VariableElement field) {
+		if (getImplementingType(field) != null) {
+			return false;
+		}
+		final TypeMirror fieldType = field.asType();
+		if (fieldType.getKind() == TypeKind.ARRAY) {
+			return !((ArrayType) fieldType).getComponentType().getKind().isPrimitive();
+		}
+		return erasure(fieldType).toString().equals(LIST_NAME);
+	}
+
+	/**
+	 * Gets the implementing class specified in the field's annotation.
+	 *
+	 * @param field the field
+	 *
+	 * @return the implementing type, or null if none is specified
+	 */
+	private TypeMirror getImplementingType(final VariableElement field) {
+		final AnnotationMirror dependency = getDependency(field);
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : dependency
+				.getElementValues().entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals("value")) {
+				final TypeMirror value = (TypeMirror) entry.getValue().getValue();
+				if (!erasure(value).toString().equals(NOTHING_NAME)) {
+					return value;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the scope specified in the field's annotation.
+	 *
+	 * @param field the field
+	 *
+	 * @return the name of the scope, or null for singleton scope
+	 */
+	private String getScope(final VariableElement field) {
+		final AnnotationMirror dependency = getDependency(field);
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : dependency
+				.getElementValues().entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals("scope")) {
+				final String scope = ((VariableElement) entry.getValue().getValue()).getSimpleName().toString();
+				if (!scope.equals(Scope.SINGLETON.name())) {
+					return scope;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the Dependency annotation of a field.
+	 *
+	 * @param field the field
+	 *
+	 * @return the annotation, or null if the field has none
+	 */
+	private AnnotationMirror getDependency(final VariableElement field) {
+		for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+			final TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+			if (annotationType.getQualifiedName().contentEquals(DEPENDENCY_NAME)) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the erasure of a type.
+	 *
+	 * @param type the type
+	 *
+	 * @return the erased type
+	 */
+	private TypeMirror erasure(final TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type);
+	}
+}
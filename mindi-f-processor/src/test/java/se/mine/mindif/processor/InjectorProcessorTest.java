@@ -0,0 +1,246 @@
+package se.mine.mindif.processor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+import se.mine.mindif.ComponentInjector;
+import se.mine.mindif.Context;
+import se.mine.mindif.Dependency;
+import se.mine.mindif.Provider;
+import se.mine.mindif.SubclassLocator;
+
+public class InjectorProcessorTest extends TestCase {
+	private File directory;
+	private ClassLoader classLoader;
+
+	@Override
+	protected void setUp() throws Exception {
+		directory = File.createTempFile("mindif", "processor");
+		directory.delete();
+		directory.mkdirs();
+		writeSource("sample/Cache.java", "package sample;\n public interface Cache {}");
+		writeSource("sample/CacheImpl.java", "package sample;\n public class CacheImpl implements Cache {}");
+		writeSource("sample/Repository.java", "package sample;\n public class Repository {\n"
+				+ " @se.mine.mindif.Dependency(CacheImpl.class) protected Cache cache;\n }");
+		writeSource("sample/Service.java", "package sample;\n public class Service {\n"
+				+ " @se.mine.mindif.Dependency Repository repository;\n"
+				+ " @se.mine.mindif.Dependency(CacheImpl.class) Cache cache;\n"
+				+ " @se.mine.mindif.Dependency(java.util.ArrayList.class) java.util.List<String> list;\n"
+				+ " @se.mine.mindif.Dependency(scope = se.mine.mindif.Scope.PROTOTYPE) Repository prototype;\n }");
+		writeSource("sample/Lookup.java", "package sample;\n public class Lookup {\n"
+				+ " @se.mine.mindif.Dependency Cache cache;\n }");
+		writeSource("sample/SubService.java", "package sample;\n public class SubService extends Service {}");
+		writeSource("sample/LazyService.java", "package sample;\n public class LazyService {\n"
+				+ " @se.mine.mindif.Dependency se.mine.mindif.Provider<Repository> repository;\n"
+				+ " @se.mine.mindif.Dependency se.mine.mindif.Provider<Cache> cache;\n }");
+		writeSource("sample/PrivateComponent.java", "package sample;\n public class PrivateComponent {\n"
+				+ " @se.mine.mindif.Dependency private Repository repository;\n }");
+		writeSource("other/ProtectedBase.java", "package other;\n public class ProtectedBase {\n"
+				+ " @se.mine.mindif.Dependency protected sample.Repository helper;\n }");
+		writeSource("sample/ProtectedSub.java", "package sample;\n public class ProtectedSub extends "
+				+ "other.ProtectedBase {}");
+		writeSource("other/Store.java", "package other;\n public interface Store {}");
+		writeSource("other/HiddenStore.java", "package other;\n class HiddenStore implements Store {}");
+		writeSource("other/HiddenBase.java", "package other;\n public class HiddenBase {\n"
+				+ " @se.mine.mindif.Dependency(HiddenStore.class) public Store store;\n }");
+		writeSource("sample/HiddenSub.java", "package sample;\n public class HiddenSub extends other.HiddenBase {}");
+		compile();
+		classLoader = new URLClassLoader(new URL[] { directory.toURI().toURL() }, getClass().getClassLoader());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(directory);
+	}
+
+	public void testGeneratedInjectors() throws Exception {
+		assertInjector("sample.Repository");
+		assertInjector("sample.Service");
+		assertInjector("sample.SubService");
+		assertFalse(new File(directory, "sample/PrivateComponent" + ComponentInjector.SUFFIX + ".class").exists());
+		assertFalse(new File(directory, "sample/CacheImpl" + ComponentInjector.SUFFIX + ".class").exists());
+		assertInjector("other.ProtectedBase");
+		assertFalse(new File(directory, "sample/ProtectedSub" + ComponentInjector.SUFFIX + ".class").exists());
+		assertFalse(new File(directory, "sample/HiddenSub" + ComponentInjector.SUFFIX + ".class").exists());
+	}
+
+	public void testGeneratedSource() throws Exception {
+		final String source = read(new File(directory, "sample/Repository" + ComponentInjector.SUFFIX + ".java"));
+		assertTrue(source, source.contains("return new sample.Repository();"));
+		assertTrue(source, source.contains("component.cache = (sample.Cache) resolver.resolve("
+				+ "sample.Repository.class, \"cache\", sample.Cache.class, sample.CacheImpl.class);"));
+		final String subSource = read(new File(directory, "sample/SubService" + ComponentInjector.SUFFIX + ".java"));
+		assertTrue(subSource, subSource.contains("component.list = (java.util.List) resolver.resolve("
+				+ "sample.Service.class, \"list\", java.util.List.class, java.util.ArrayList.class);"));
+		final String serviceSource = read(new File(directory, "sample/Service" + ComponentInjector.SUFFIX + ".java"));
+		assertTrue(serviceSource, serviceSource.contains("component.prototype = (sample.Repository) resolver.resolve("
+				+ "sample.Service.class, \"prototype\", sample.Repository.class, sample.Repository.class, "
+				+ "se.mine.mindif.Scope.PROTOTYPE);"));
+		final String lookupSource = read(new File(directory, "sample/Lookup" + ComponentInjector.SUFFIX + ".java"));
+		assertTrue(lookupSource, lookupSource.contains("component.cache = (sample.Cache) resolver.resolve("
+				+ "sample.Lookup.class, \"cache\", sample.Cache.class, null);"));
+	}
+
+	public void testInjectWithGeneratedInjector() throws Exception {
+		final Object service = classLoader.loadClass("sample.SubService").newInstance();
+		new Context().inject(service);
+		final Object repository = getField(service, "repository");
+		final Object cache = getField(service, "cache");
+		assertEquals("sample.CacheImpl", cache.getClass().getName());
+		assertSame(cache, getField(repository, "cache"));
+		assertNotSame(repository, getField(service, "prototype"));
+	}
+
+	public void testGeneratedLazySource() throws Exception {
+		final String source = read(new File(directory, "sample/LazyService" + ComponentInjector.SUFFIX + ".java"));
+		assertTrue(source, source.contains("component.repository = (se.mine.mindif.Provider) resolver.resolveLazy("
+				+ "sample.LazyService.class, \"repository\", sample.Repository.class, sample.Repository.class);"));
+		assertTrue(source, source.contains("component.cache = (se.mine.mindif.Provider) resolver.resolveLazy("
+				+ "sample.LazyService.class, \"cache\", sample.Cache.class, null);"));
+	}
+
+	public void testInjectLazyWithGeneratedInjector() throws Exception {
+		final Object service = classLoader.loadClass("sample.LazyService").newInstance();
+		new Context().inject(service);
+		final Provider<?> repository = (Provider<?>) getField(service, "repository");
+		assertEquals("sample.Repository", repository.get().getClass().getName());
+		assertSame(((Provider<?>) getField(service, "cache")).get(), getField(repository.get(), "cache"));
+	}
+
+	public void testInjectWithReflectionFallback() throws Exception {
+		final Object component = classLoader.loadClass("sample.PrivateComponent").newInstance();
+		new Context().inject(component);
+		assertNotNull(getField(getField(component, "repository"), "cache"));
+	}
+
+	public void testInjectInaccessibleSuperclassFieldsWithReflection() throws Exception {
+		final Object protectedSub = classLoader.loadClass("sample.ProtectedSub").newInstance();
+		final Object hiddenSub = classLoader.loadClass("sample.HiddenSub").newInstance();
+		final Context context = new Context();
+		context.inject(protectedSub);
+		context.inject(hiddenSub);
+		assertEquals("sample.Repository", getField(protectedSub, "helper").getClass().getName());
+		assertEquals("other.HiddenStore", getField(hiddenSub, "store").getClass().getName());
+	}
+
+	public void testImplementationIndex() throws Exception {
+		final String index = read(new File(directory, SubclassLocator.INDEX_RESOURCE));
+		assertEquals("other.Store=other.HiddenStore\nsample.Cache=sample.CacheImpl\n", index);
+	}
+
+	public void testIncrementalCompileMergesIndex() throws Exception {
+		writeSource("sample/SecondCache.java", "package sample;\n public class SecondCache implements Cache {}");
+		writeSource("sample/CacheImpl.java", "package sample;\n public class CacheImpl {}");
+		compile(Arrays.asList(new File(directory, "sample/SecondCache.java"), new File(directory,
+				"sample/CacheImpl.java")));
+		final String index = read(new File(directory, SubclassLocator.INDEX_RESOURCE));
+		assertEquals("other.Store=other.HiddenStore\nsample.Cache=sample.SecondCache\n", index);
+	}
+
+	public void testInjectUnspecifiedWithIndex() throws Exception {
+		final Object lookup = classLoader.loadClass("sample.Lookup").newInstance();
+		new Context().inject(lookup);
+		assertEquals("sample.CacheImpl", getField(lookup, "cache").getClass().getName());
+	}
+
+	private void assertInjector(final String className) throws Exception {
+		final Class<?> injectorClass = classLoader.loadClass(className + ComponentInjector.SUFFIX);
+		assertTrue(ComponentInjector.class.isAssignableFrom(injectorClass));
+	}
+
+	private void compile() throws IOException {
+		final List<File> sources = new ArrayList<File>();
+		addSources(sources, directory);
+		compile(sources);
+	}
+
+	private void compile(final List<File> sources) throws IOException {
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+		final Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(sources);
+		final String classpath = new File(Dependency.class.getProtectionDomain().getCodeSource().getLocation()
+				.getPath()).getPath() + File.pathSeparator + directory.getPath();
+		final List<String> options = Arrays.asList("-classpath", classpath, "-d", directory.getPath(), "-s",
+				directory.getPath());
+		final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, units);
+		task.setProcessors(Arrays.asList(new InjectorProcessor(), new ImplementationIndexProcessor()));
+		assertTrue(task.call());
+		fileManager.close();
+	}
+
+	private void writeSource(final String path, final String source) throws IOException {
+		final File file = new File(directory, path);
+		file.getParentFile().mkdirs();
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String read(final File file) throws IOException {
+		final Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		try {
+			final StringBuilder builder = new StringBuilder();
+			final char[] buffer = new char[1024];
+			for (int count = reader.read(buffer); count != -1; count = reader.read(buffer)) {
+				builder.append(buffer, 0, count);
+			}
+			return builder.toString();
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static void addSources(final List<File> sources, final File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				addSources(sources, child);
+			}
+		} else if (file.getName().endsWith(".java")) {
+			sources.add(file);
+		}
+	}
+
+	private static void delete(final File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private static Object getField(final Object object, final String name) throws Exception {
+		Class<?> clazz = object.getClass();
+		while (clazz != null) {
+			try {
+				final Field field = clazz.getDeclaredField(name);
+				field.setAccessible(true);
+				return field.get(object);
+			} catch (NoSuchFieldException e) {
+				clazz = clazz.getSuperclass();
+			}
+		}
+		throw new NoSuchFieldException(name);
+	}
+}
@@ -0,0 +1,92 @@
+package se.mine.mindif;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+
+import se.mine.mindif.InjectionPlan.InjectedField;
+
+/**
+ * Defines how a Context instantiates components and writes dependency fields.
+ * Constructors, fields and method handles are bound once per class and field
+ * and shared by all contexts.
+ *
+ * @author Bjorn
+ */
+public enum AccessStrategy {
+
+	/**
+	 * Uses core reflection, <code>Constructor.newInstance</code> and
+	 * <code>Field.set</code>.
+	 */
+	REFLECTION {
+		@Override
+		Object newInstance(final InjectionPlan plan) throws ReflectiveOperationException {
+			return plan.getConstructor().newInstance();
+		}
+
+		@Override
+		void setField(final InjectedField injectedField, final Object component, final Object value)
+				throws IllegalAccessException {
+			injectedField.getField().set(component, value);
+		}
+	},
+
+	/**
+	 * Uses constructor and field setter method handles. The handles are kept
+	 * in the injection plans and not in constants, so the JIT compiler cannot
+	 * inline through them, and they are about as fast as reflection. This is
+	 * the default strategy.
+	 */
+	METHOD_HANDLES {
+		@Override
+		Object newInstance(final InjectionPlan plan) throws ReflectiveOperationException {
+			final MethodHandle constructor = plan.getConstructorHandle();
+			try {
+				return (Object) constructor.invokeExact();
+			} catch (Throwable e) {
+				throw new InvocationTargetException(e);
+			}
+		}
+
+		@Override
+		void setField(final InjectedField injectedField, final Object component, final Object value)
+				throws IllegalAccessException {
+			final MethodHandle setter = injectedField.getSetterHandle();
+			try {
+				setter.invokeExact(component, value);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException("Cannot modify field " + injectedField.getField().getName(), e);
+			}
+		}
+	};
+
+	/**
+	 * Creates a new instance of the plan's component class with its no-arg
+	 * constructor.
+	 *
+	 * @param plan the plan for the class to instantiate
+	 *
+	 * @return the new instance
+	 *
+	 * @throws ReflectiveOperationException if the class cannot be instantiated,
+	 *         exceptions thrown by the constructor are wrapped in an
+	 *         InvocationTargetException
+	 */
+	abstract Object newInstance(InjectionPlan plan) throws ReflectiveOperationException;
+
+	/**
+	 * Writes a dependency to a field.
+	 *
+	 * @param injectedField the field
+	 * @param component the component that holds the field
+	 * @param value the dependency
+	 *
+	 * @throws IllegalAccessException if the field cannot be modified
+	 */
+	abstract void setField(InjectedField injectedField, Object component, Object value)
+			throws IllegalAccessException;
+}
@@ -0,0 +1,224 @@
+package se.mine.mindif;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The name, access flags, superclass and interfaces of a class, read from the
+ * raw bytes of a class file without loading the class. Only the constant pool
+ * entries that hold these names are decoded. Names are in internal form, such
+ * as <code>se/mine/mindif/Context</code>.
+ *
+ * @author Bjorn
+ */
+final class ClassHeader {
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final int ACC_INTERFACE = 0x0200;
+	private static final int ACC_ABSTRACT = 0x0400;
+	private static final int ACC_ANNOTATION = 0x2000;
+	private static final int ACC_ENUM = 0x4000;
+	private static final int ACC_MODULE = 0x8000;
+	private static final int NOT_CONCRETE = ACC_INTERFACE | ACC_ABSTRACT | ACC_ANNOTATION | ACC_ENUM | ACC_MODULE;
+	private static final String[] NO_INTERFACES = new String[0];
+
+	private final String name;
+	private final String superName;
+	private final String[] interfaceNames;
+	private final int accessFlags;
+
+	/**
+	 * Instantiates a new class header.
+	 *
+	 * @param name the class name
+	 * @param superName the superclass name, or null
+	 * @param interfaceNames the names of the directly implemented interfaces
+	 * @param accessFlags the access flags
+	 */
+	private ClassHeader(final String name, final String superName, final String[] interfaceNames,
+			final int accessFlags) {
+		this.name = name;
+		this.superName = superName;
+		this.interfaceNames = interfaceNames;
+		this.accessFlags = accessFlags;
+	}
+
+	/**
+	 * Reads the header of a class file.
+	 *
+	 * @param bytes the class file bytes
+	 * @param length the number of bytes in the array that belong to the class
+	 *        file
+	 *
+	 * @return the class header
+	 *
+	 * @throws IOException if the bytes are not a valid class file
+	 */
+	static ClassHeader read(final byte[] bytes, final int length) throws IOException {
+		if (length < 10 || readInt(bytes, 0) != MAGIC) {
+			throw new IOException("Not a class file");
+		}
+		final int constantPoolCount = readUnsignedShort(bytes, 8);
+		final int[] offsets = new int[constantPoolCount];
+		int offset = 10;
+		for (int i = 1; i < constantPoolCount; i++) {
+			offsets[i] = offset;
+			final int tag = bytes[offset] & 0xFF;
+			switch (tag) {
+			case 1: // Utf8
+				offset += 3 + readUnsignedShort(bytes, offset + 1);
+				break;
+			case 7: // Class
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				offset += 3;
+				break;
+			case 15: // MethodHandle
+				offset += 4;
+				break;
+			case 3: // Integer
+			case 4: // Float
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case 12: // NameAndType
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				offset += 5;
+				break;
+			case 5: // Long
+			case 6: // Double
+				offset += 9;
+				i++;
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag);
+			}
+			if (offset > length) {
+				throw new IOException("Truncated class file");
+			}
+		}
+		if (offset + 8 > length) {
+			throw new IOException("Truncated class file");
+		}
+		final int accessFlags = readUnsignedShort(bytes, offset);
+		final String name = readClassName(bytes, offsets, readUnsignedShort(bytes, offset + 2));
+		final String superName = readClassName(bytes, offsets, readUnsignedShort(bytes, offset + 4));
+		final int interfaceCount = readUnsignedShort(bytes, offset + 6);
+		if (offset + 8 + 2 * interfaceCount > length) {
+			throw new IOException("Truncated class file");
+		}
+		final String[] interfaceNames = interfaceCount == 0 ? NO_INTERFACES : new String[interfaceCount];
+		for (int i = 0; i < interfaceCount; i++) {
+			interfaceNames[i] = readClassName(bytes, offsets, readUnsignedShort(bytes, offset + 8 + 2 * i));
+		}
+		return new ClassHeader(name, superName, interfaceNames, accessFlags);
+	}
+
+	/**
+	 * Reads the name of a Class constant.
+	 *
+	 * @param bytes the class file bytes
+	 * @param offsets the offsets of the constant pool entries
+	 * @param index the constant pool index of the Class constant, 0 for none
+	 *
+	 * @return the class name, or null if the index is 0
+	 *
+	 * @throws IOException if the constant is not a class name
+	 */
+	private static String readClassName(final byte[] bytes, final int[] offsets, final int index)
+			throws IOException {
+		if (index == 0) {
+			return null;
+		}
+		if (index >= offsets.length || bytes[offsets[index]] != 7) {
+			throw new IOException("Invalid class constant " + index);
+		}
+		final int utf8Index = readUnsignedShort(bytes, offsets[index] + 1);
+		if (utf8Index >= offsets.length || bytes[offsets[utf8Index]] != 1) {
+			throw new IOException("Invalid name constant " + utf8Index);
+		}
+		final int utf8Offset = offsets[utf8Index];
+		final int utf8Length = readUnsignedShort(bytes, utf8Offset + 1);
+		for (int i = utf8Offset + 3; i < utf8Offset + 3 + utf8Length; i++) {
+			if (bytes[i] < 0) {
+				return new DataInputStream(new ByteArrayInputStream(bytes, utf8Offset + 1, utf8Length + 2)).readUTF();
+			}
+		}
+		return new String(bytes, utf8Offset + 3, utf8Length, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Reads an unsigned big-endian 16 bit value.
+	 *
+	 * @param bytes the bytes
+	 * @param offset the offset
+	 *
+	 * @return the value
+	 */
+	private static int readUnsignedShort(final byte[] bytes, final int offset) {
+		return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+	}
+
+	/**
+	 * Reads a big-endian 32 bit value.
+	 *
+	 * @param bytes the bytes
+	 * @param offset the offset
+	 *
+	 * @return the value
+	 */
+	private static int readInt(final byte[] bytes, final int offset) {
+		return (readUnsignedShort(bytes, offset) << 16) | readUnsignedShort(bytes, offset + 2);
+	}
+
+	/**
+	 * Gets the internal name of the class.
+	 *
+	 * @return the name
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the internal name of the superclass.
+	 *
+	 * @return the superclass name, or null for java.lang.Object
+	 */
+	String getSuperName() {
+		return superName;
+	}
+
+	/**
+	 * Gets the internal names of the directly implemented interfaces. The array
+	 * must not be modified.
+	 *
+	 * @return the interface names
+	 */
+	String[] getInterfaceNames() {
+		return interfaceNames;
+	}
+
+	/**
+	 * Checks whether the class can be instantiated, that is it is not an
+	 * interface, an abstract class, an annotation or an enum.
+	 *
+	 * @return true if the class is concrete
+	 */
+	boolean isConcrete() {
+		return (accessFlags & NOT_CONCRETE) == 0;
+	}
+
+	/**
+	 * Gets the binary name of the class, as used by Class.forName.
+	 *
+	 * @return the class name
+	 */
+	String getClassName() {
+		return name.replace('/', '.');
+	}
+}
@@ -0,0 +1,427 @@
+package se.mine.mindif;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import se.mine.mindif.InjectionPlan.InjectedField;
+
+/**
+ * Records the classes that contexts load while they inject components, and
+ * writes them as a class list for an Application Class Data Sharing (AppCDS)
+ * archive. The components, the types of their dependency fields, the generated
+ * injectors, the implementations of unspecified interfaces and all their
+ * supertypes are recorded, together with all classes of the MinDI F package.
+ * Only classes of the application class loader and its parents can be
+ * archived, so the classes of plugin class loaders are left out.
+ * <p>
+ * An application records its class list without changing any code by setting
+ * the system property {@value #CLASS_LIST_PROPERTY} to the file to write. Every
+ * context then records into the same list, which is written when the JVM exits.
+ * The archive is then built with the JDK, with the {@link #main(String[])}
+ * helper or by hand, and used on the next starts. The archive must be built
+ * with Java 11 or later, since Java 10 needs <code>-XX:+UseAppCDS</code> to
+ * archive application classes and earlier versions cannot archive them:
+ * <code>
+ * java -Dmindif.classList=app.classlist -cp app.jar com.acme.Main
+ * java -cp app.jar se.mine.mindif.ClassListRecorder app.classlist app.jsa
+ * java -XX:SharedArchiveFile=app.jsa -cp app.jar com.acme.Main
+ * </code>
+ *
+ * @author Bjorn
+ */
+public final class ClassListRecorder {
+	/**
+	 * System property with the class list file that all contexts record into.
+	 */
+	public static final String CLASS_LIST_PROPERTY = "mindif.classList";
+
+	private static final LoggerWrapper LOGGER = new LoggerWrapper(ClassListRecorder.class);
+	private static final int MINIMUM_ARCHIVE_VERSION = 11;
+	private static final String CLASS_SUFFIX = ".class";
+	private static List<Class<?>> frameworkClasses;
+	private static ClassListRecorder systemRecorder;
+
+	private final Set<String> classNames = new LinkedHashSet<String>();
+	private final Set<String> componentNames = new HashSet<String>();
+	private final Set<ClassLoader> archivableClassLoaders = new LinkedHashSet<ClassLoader>();
+
+	/**
+	 * Instantiates a new recorder, which has recorded the classes of MinDI F.
+	 */
+	public ClassListRecorder() {
+		ClassLoader classLoader = ClassLoader.getSystemClassLoader();
+		while (classLoader != null) {
+			archivableClassLoaders.add(classLoader);
+			classLoader = classLoader.getParent();
+		}
+		for (Class<?> clazz : getFrameworkClasses()) {
+			record(clazz);
+		}
+	}
+
+	/**
+	 * Gets the classes of MinDI F, listed from the jar file or directory that
+	 * this class is loaded from, so that no class of the package is left out.
+	 * The classes are listed once. Classes that cannot be loaded, such as a
+	 * logging backend without its library, are skipped.
+	 *
+	 * @return the classes
+	 */
+	private static synchronized List<Class<?>> getFrameworkClasses() {
+		if (frameworkClasses == null) {
+			final List<Class<?>> classes = new ArrayList<Class<?>>();
+			for (String className : getFrameworkClassNames()) {
+				try {
+					classes.add(Class.forName(className, false, ClassListRecorder.class.getClassLoader()));
+				} catch (ClassNotFoundException e) {
+					LOGGER.debug("MinDI F class {} could not be found", className);
+				} catch (LinkageError e) {
+					LOGGER.debug("MinDI F class {} could not be loaded", className);
+				}
+			}
+			frameworkClasses = classes;
+		}
+		return frameworkClasses;
+	}
+
+	/**
+	 * Lists the classes of the MinDI F package, without its sub packages.
+	 *
+	 * @return the class names, or only the name of this class if the package
+	 *         is not in a jar file or a directory
+	 */
+	private static List<String> getFrameworkClassNames() {
+		final String packagePath = ClassListRecorder.class.getPackage().getName().replace('.', '/') + "/";
+		final String resourcePath = ClassListRecorder.class.getName().replace('.', '/') + CLASS_SUFFIX;
+		final URL url = ClassListRecorder.class.getResource(ClassListRecorder.class.getSimpleName() + CLASS_SUFFIX);
+		final File root = url == null ? null : SubclassLocator.getRoot(url, resourcePath);
+		final List<String> returnValue = new ArrayList<String>();
+		try {
+			if (root != null && root.isDirectory()) {
+				final String[] fileNames = new File(root, packagePath).list();
+				for (String fileName : fileNames == null ? new String[0] : fileNames) {
+					addClassName(returnValue, packagePath + fileName, packagePath);
+				}
+			} else if (root != null) {
+				final JarFile jarFile = new JarFile(root);
+				try {
+					for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+						addClassName(returnValue, entries.nextElement().getName(), packagePath);
+					}
+				} finally {
+					jarFile.close();
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not list the classes of {}", root, e);
+		}
+		if (returnValue.isEmpty()) {
+			returnValue.add(ClassListRecorder.class.getName());
+		}
+		Collections.sort(returnValue);
+		return returnValue;
+	}
+
+	/**
+	 * Adds the class name of a class file in a package.
+	 *
+	 * @param classNames the class names to add to
+	 * @param path the path of a file in its jar file or directory
+	 * @param packagePath the path of the package
+	 */
+	private static void addClassName(final List<String> classNames, final String path, final String packagePath) {
+		if (path.startsWith(packagePath) && path.endsWith(CLASS_SUFFIX)
+				&& path.indexOf('/', packagePath.length()) < 0) {
+			classNames.add(path.substring(0, path.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+		}
+	}
+
+	/**
+	 * Gets the recorder that all contexts use when the system property
+	 * {@value #CLASS_LIST_PROPERTY} is set. The recorder is created the first
+	 * time, and writes the class list when the JVM exits.
+	 *
+	 * @return the recorder, or null if the property is not set
+	 */
+	static synchronized ClassListRecorder getSystemRecorder() {
+		if (systemRecorder == null) {
+			final String fileName = System.getProperty(CLASS_LIST_PROPERTY);
+			if (fileName == null || fileName.length() == 0) {
+				return null;
+			}
+			final File file = new File(fileName);
+			final ClassListRecorder recorder = new ClassListRecorder();
+			Runtime.getRuntime().addShutdownHook(new Thread("mindif-class-list") {
+				@Override
+				public void run() {
+					try {
+						recorder.writeClassList(file);
+					} catch (IOException e) {
+						LOGGER.info("Could not write class list {}", file, e);
+					}
+				}
+			});
+			systemRecorder = recorder;
+		}
+		return systemRecorder;
+	}
+
+	/**
+	 * Records a class, its supertypes and its interfaces.
+	 *
+	 * @param clazz the class
+	 */
+	void record(final Class<?> clazz) {
+		if (clazz == null || clazz.isPrimitive()) {
+			return;
+		}
+		if (clazz.isArray()) {
+			record(clazz.getComponentType());
+			return;
+		}
+		final String name = clazz.getName().replace('.', '/');
+		synchronized (classNames) {
+			if (classNames.contains(name) || !isArchivable(clazz)) {
+				return;
+			}
+		}
+		record(clazz.getSuperclass());
+		for (Class<?> interfaceClass : clazz.getInterfaces()) {
+			record(interfaceClass);
+		}
+		synchronized (classNames) {
+			classNames.add(name);
+		}
+	}
+
+	/**
+	 * Records a component class, the types and implementations of its
+	 * dependency fields, and its generated injector.
+	 *
+	 * @param plan the injection plan of the component class
+	 */
+	void recordComponent(final InjectionPlan plan) {
+		synchronized (classNames) {
+			if (!componentNames.add(plan.getComponentClass().getName())) {
+				return;
+			}
+		}
+		record(plan.getComponentClass());
+		if (plan.getGeneratedInjector() != null) {
+			record(plan.getGeneratedInjector().getClass());
+		}
+		for (InjectedField injectedField : plan.getFields()) {
+			record(injectedField.getField().getType());
+			record(injectedField.getFieldClass());
+			record(injectedField.getImplementingClass());
+		}
+	}
+
+	/**
+	 * Records the candidates that were found for an unspecified interface.
+	 *
+	 * @param candidates the classes
+	 */
+	void recordAll(final List<Class<?>> candidates) {
+		for (Class<?> candidate : candidates) {
+			record(candidate);
+		}
+	}
+
+	/**
+	 * Checks if a class can be put in a static class data sharing archive.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return true if the class is loaded by the application class loader or
+	 *         one of its parents, and is not generated at runtime
+	 */
+	private boolean isArchivable(final Class<?> clazz) {
+		final ClassLoader classLoader = clazz.getClassLoader();
+		if (classLoader != null && !archivableClassLoaders.contains(classLoader)) {
+			return false;
+		}
+		return clazz.getName().indexOf('/') < 0 && !Proxy.isProxyClass(clazz);
+	}
+
+	/**
+	 * Gets the recorded classes, supertypes first.
+	 *
+	 * @return the class names, in internal form
+	 */
+	public List<String> getClassNames() {
+		synchronized (classNames) {
+			return new ArrayList<String>(classNames);
+		}
+	}
+
+	/**
+	 * Writes the recorded classes as a class list, with one class name in
+	 * internal form per line, which is the format of
+	 * <code>-XX:SharedClassListFile</code>.
+	 *
+	 * @param file the class list file
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeClassList(final File file) throws IOException {
+		final File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create directory " + directory);
+		}
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			for (String className : getClassNames()) {
+				writer.write(className + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Builds an AppCDS archive from a class list with the <code>java</code>
+	 * launcher of the running JDK. The class list of the JDK itself is added,
+	 * so that the JDK classes that the default archive holds are archived too.
+	 * The running JDK must be Java 11 or later.
+	 *
+	 * @param classList the class list that was written by a recorder
+	 * @param archive the archive file to create
+	 * @param classPath the classpath of the application, which must be the same
+	 *        when the archive is used, and must only hold jar files
+	 *
+	 * @throws IOException if the archive cannot be built, or the JDK is older
+	 *         than Java 11
+	 */
+	public static void buildArchive(final File classList, final File archive, final String classPath)
+			throws IOException {
+		final String javaVersion = System.getProperty("java.specification.version", "");
+		if (getFeatureVersion(javaVersion) < MINIMUM_ARCHIVE_VERSION) {
+			throw new IOException("Archives of application classes can only be built with Java "
+					+ MINIMUM_ARCHIVE_VERSION + " or later, this is Java " + javaVersion);
+		}
+		final String javaHome = System.getProperty("java.home");
+		final File mergedList = File.createTempFile("mindif", ".classlist");
+		try {
+			final Set<String> lines = new LinkedHashSet<String>();
+			final File jdkClassList = new File(javaHome, "lib" + File.separator + "classlist");
+			if (jdkClassList.isFile()) {
+				readLines(jdkClassList, lines);
+			}
+			readLines(classList, lines);
+			final Writer writer = new OutputStreamWriter(new FileOutputStream(mergedList), "UTF-8");
+			try {
+				for (String line : lines) {
+					writer.write(line + "\n");
+				}
+			} finally {
+				writer.close();
+			}
+			final List<String> command = Arrays.asList(new File(javaHome, "bin" + File.separator + "java")
+					.getPath(), "-Xshare:dump", "-XX:SharedClassListFile=" + mergedList.getPath(),
+					"-XX:SharedArchiveFile=" + archive.getPath(), "-cp", classPath);
+			final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			final StringBuilder output = new StringBuilder();
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			try {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					output.append(line).append('\n');
+				}
+			} finally {
+				reader.close();
+			}
+			final int exitValue = process.waitFor();
+			if (exitValue != 0) {
+				throw new IOException("Could not build archive " + archive + ", exit value " + exitValue + ":\n"
+						+ output);
+			}
+			LOGGER.debug("Built archive {}:\n{}", archive, output);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while building archive " + archive, e);
+		} finally {
+			if (!mergedList.delete()) {
+				mergedList.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Gets the feature release of a Java specification version.
+	 *
+	 * @param specificationVersion the version, such as <code>1.8</code> or
+	 *        <code>11</code>
+	 *
+	 * @return the feature release, such as 8 or 11, or 0 if the version is
+	 *         not known
+	 */
+	static int getFeatureVersion(final String specificationVersion) {
+		final String version = specificationVersion.startsWith("1.") ? specificationVersion.substring(2)
+				: specificationVersion;
+		final int end = version.indexOf('.');
+		try {
+			return Integer.parseInt(end < 0 ? version : version.substring(0, end));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Reads the lines of a class list, except comments and empty lines.
+	 *
+	 * @param file the class list
+	 * @param lines the lines to add to
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	private static void readLines(final File file, final Set<String> lines) throws IOException {
+		final InputStream inputStream = new FileInputStream(file);
+		try {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				final String trimmed = line.trim();
+				if (trimmed.length() > 0 && !trimmed.startsWith("#")) {
+					lines.add(trimmed);
+				}
+			}
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Builds an AppCDS archive from a class list, with the classpath of this
+	 * JVM.
+	 *
+	 * @param args the class list file and the archive file
+	 *
+	 * @throws IOException if the archive cannot be built
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: java -cp <classpath> " + ClassListRecorder.class.getName()
+					+ " <class list> <archive>");
+			System.exit(1);
+		}
+		buildArchive(new File(args[0]), new File(args[1]), System.getProperty("java.class.path", ""));
+	}
+}
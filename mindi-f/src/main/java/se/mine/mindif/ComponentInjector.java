@@ -0,0 +1,90 @@
+package se.mine.mindif;
+
+/**
+ * Injects dependencies into a component class without reflection.
+ * Implementations are generated at compile time by the MinDI F annotation
+ * processor, in the same package as the component and named after the
+ * component's binary name with the suffix {@link #SUFFIX}. A Context uses a
+ * generated injector whenever one is found and falls back to reflection
+ * otherwise.
+ *
+ * @param <T> the component class
+ *
+ * @author Bjorn
+ */
+public interface ComponentInjector<T> {
+
+	/**
+	 * Suffix added to the binary name of a component class to get the name of
+	 * its generated injector.
+	 */
+	String SUFFIX = "$$MindifInjector";
+
+	/**
+	 * Creates a new instance of the component with its no-arg constructor.
+	 *
+	 * @return the new instance, or null if the component cannot be instantiated
+	 *         by the injector
+	 */
+	T newInstance();
+
+	/**
+	 * Injects all dependencies of the component, including those declared in
+	 * superclasses.
+	 *
+	 * @param component the component
+	 * @param resolver provides the dependency instances
+	 */
+	void inject(T component, Resolver resolver);
+
+	/**
+	 * Provides dependency instances for a generated injector, with the same
+	 * singleton semantics as reflective injection.
+	 */
+	interface Resolver {
+
+		/**
+		 * Gets the dependency instance for a field.
+		 *
+		 * @param declaringClass the class that declares the field
+		 * @param fieldName the name of the field
+		 * @param fieldClass the declared type of the field
+		 * @param implementingClass the class to instantiate, or null if the field
+		 *        is an unspecified interface
+		 *
+		 * @return the injected dependency
+		 */
+		Object resolve(Class<?> declaringClass, String fieldName, Class<?> fieldClass, Class<?> implementingClass);
+
+		/**
+		 * Gets the dependency instance for a field that does not have singleton
+		 * scope.
+		 *
+		 * @param declaringClass the class that declares the field
+		 * @param fieldName the name of the field
+		 * @param fieldClass the declared type of the field
+		 * @param implementingClass the class to instantiate, or null if the field
+		 *        is an unspecified interface
+		 * @param scope the scope of the field
+		 *
+		 * @return the injected dependency
+		 */
+		Object resolve(Class<?> declaringClass, String fieldName, Class<?> fieldClass, Class<?> implementingClass,
+				Scope scope);
+
+		/**
+		 * Gets a provider for a field of type {@link Provider}. The dependency is
+		 * not resolved until the provider is used.
+		 *
+		 * @param declaringClass the class that declares the field
+		 * @param fieldName the name of the field
+		 * @param providedClass the type argument of the provider
+		 * @param implementingClass the class to instantiate, or null if the
+		 *        provided type is an unspecified interface
+		 *
+		 * @return the provider to inject
+		 */
+		Provider<?> resolveLazy(Class<?> declaringClass, String fieldName, Class<?> providedClass,
+				Class<?> implementingClass);
+	}
+}
@@ -0,0 +1,562 @@
+package se.mine.mindif;
+
+import java.io.Closeable;
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Injects dependencies into a Java object. Injected instances will be reused as
+ * long as they belong to the same Context.
+ * Example:
+ * <code>
+ * public class BaseComponentImpl {
+ *   @Dependency
+ *   private AnotherComponentImpl anotherComponent;
+ *
+ * ...
+ * }
+ * </code>
+ * Calling code:
+ * <code>
+ * // Create base component
+ * final BaseComponentImpl component = new BaseComponentImpl();
+ * // Inject dependencies recursively
+ * new Context().inject(component);
+ * </code>
+ *
+ * The dependency can be an interface with a specified implementing class
+ * <code>
+ *   @Dependency(AnotherComponentImpl.class)
+ *   private AnotherComponent anotherComponent;
+ * </code>
+ *
+ * If there is only one implementing class then the framework can find it
+ * <code>
+ *   @Dependency
+ *   private AnotherComponent anotherComponent;
+ * </code>
+ *
+ * Components are instantiated and fields are written with method handles by
+ * default, the reflection based strategy can be chosen instead
+ * <code>
+ * new Context(AccessStrategy.REFLECTION).inject(component);
+ * </code>
+ *
+ * Finding an unspecified implementation may require a classpath scan, which
+ * can be done in parallel
+ * <code>
+ * context.setScanExecutor(new ForkJoinPool());
+ * </code>
+ *
+ * The scan can be limited to the packages that hold the implementations, with
+ * filters for classes that should never be picked
+ * <code>
+ * context.setScanScope(ScanScope.packages("com.acme").exclude("com.acme.test"));
+ * </code>
+ *
+ * A list or array field gets all implementations of its element type, for
+ * example to dispatch to every plugin
+ * <code>
+ *   &#064;Dependency
+ *   private List&lt;RequestHandler&gt; handlers;
+ * </code>
+ *
+ * Components with expensive constructors can be instantiated concurrently.
+ * The dependency graph is computed first and every component in it is
+ * constructed on the executor before the fields are injected
+ * <code>
+ * context.setInstantiationExecutor(Context.newInstantiationExecutor());
+ * </code>
+ *
+ * Dependencies are singletons within the context by default. A dependency can
+ * instead get a new instance for every field, or an instance borrowed from a
+ * pool that is returned with {@link #release(Object)}
+ * <code>
+ *   &#064;Dependency(scope = Scope.POOLED)
+ *   private Encoder encoder;
+ * </code>
+ *
+ * A child context reuses the instances of its parent and keeps the instances
+ * it creates itself, which gives cheap per request scopes
+ * <code>
+ * final Context request = application.createChild();
+ * request.inject(requestHandler);
+ * </code>
+ *
+ * Command line tools that start often can keep the resolved wiring in a file,
+ * which is reused as long as the classpath is unchanged
+ * <code>
+ * context.setWiringCache(new File(System.getProperty("user.home"), ".myapp/wiring.properties"));
+ * </code>
+ *
+ * A context that is fully wired can be frozen. Its instances are then
+ * fetched directly from an immutable registry, and no new instances are
+ * created
+ * <code>
+ * context.freeze();
+ * final AnotherComponent anotherComponent = context.get(AnotherComponent.class);
+ * </code>
+ *
+ * Startup can be made faster with a class data sharing archive of the
+ * classes that the contexts load, which are recorded by starting once with
+ * the system property <code>mindif.classList</code>, see
+ * {@link ClassListRecorder}
+ * <code>
+ * java -Dmindif.classList=app.classlist -cp app.jar com.acme.Main
+ * </code>
+ *
+ * Seldom used dependencies can be dropped by the context when memory is
+ * needed, or when there are too many of them, and are created again on the
+ * next use
+ * <code>
+ * context.setReferencePolicy(ParsedModel.class, ReferencePolicy.SOFT);
+ * </code>
+ *
+ * A plugin host gives each plugin a context of its own. Closing the context
+ * destroys its instances, after which the plugin class loader can be
+ * discarded
+ * <code>
+ * final Context pluginContext = new Context(pluginClassLoader);
+ * pluginContext.inject(plugin);
+ * ...
+ * pluginContext.close();
+ * </code>
+ *
+ * A listener is told when instances are created, looked up and injected, and
+ * when the classpath is scanned, to find out where the startup time goes
+ * <code>
+ * context.addListener(new InjectionListenerAdapter() {
+ *   public void instanceCreated(Class&lt;?&gt; componentClass, long constructionNanos) {
+ *     ...
+ *   }
+ * });
+ * </code>
+ *
+ * @author Bjorn
+ */
+public class Context implements Closeable {
+	private final DependencyUtil dependencyUtil;
+	private final Context parent;
+
+	/**
+	 * Instantiates a new dependency util.
+	 *
+	 * @param component the component
+	 */
+	public Context() {
+		this(AccessStrategy.METHOD_HANDLES);
+	}
+
+	/**
+	 * Instantiates a new context that uses a specific access strategy.
+	 *
+	 * @param accessStrategy instantiates components and writes fields
+	 */
+	public Context(final AccessStrategy accessStrategy) {
+		dependencyUtil = new DependencyUtil(new InstanceStore(), accessStrategy);
+		parent = null;
+	}
+
+	/**
+	 * Instantiates a new context for the components of a plugin. The
+	 * implementations of unspecified interfaces are found by scanning the jar
+	 * files and directories of the plugin class loader, and are loaded with
+	 * it. Nothing in MinDI F keeps the class loader alive, so the plugin can
+	 * be unloaded after the context has been closed.
+	 *
+	 * @param classLoader the class loader of the plugin
+	 */
+	public Context(final ClassLoader classLoader) {
+		this(AccessStrategy.METHOD_HANDLES);
+		dependencyUtil.setScanScope(ScanScope.all().withClassLoaders(classLoader));
+	}
+
+	/**
+	 * Instantiates a new child context.
+	 *
+	 * @param parent the parent context
+	 */
+	private Context(final Context parent) {
+		dependencyUtil = new DependencyUtil(parent.dependencyUtil);
+		this.parent = parent;
+	}
+
+	/**
+	 * Creates a child context. Dependencies that already exist in this context,
+	 * or in one of its parents, are reused by the child. Dependencies that are
+	 * created while injecting through the child are kept in the child only, and
+	 * are discarded with it. The child starts with the access strategy and
+	 * executors of this context. Its reference policies, listeners and
+	 * resolved implementations are read from this context instead of being
+	 * copied, and the maps of the child are only created when it first needs
+	 * them, so creating a child per request or job is cheap.
+	 * <p>
+	 * Application wide components should be injected through the parent before
+	 * children are created, otherwise each child creates its own instances.
+	 *
+	 * @return the child context
+	 */
+	public Context createChild() {
+		dependencyUtil.checkOpen();
+		return new Context(this);
+	}
+
+	/**
+	 * Gets the parent of a child context.
+	 *
+	 * @return the parent context, or null if this is not a child context
+	 */
+	public Context getParent() {
+		return parent;
+	}
+
+	/**
+	 * Sets the executor that scans jar files and directories concurrently when
+	 * the implementation of an unspecified interface must be found. By default
+	 * the classpath is scanned on the calling thread.
+	 *
+	 * @param scanExecutor the executor, such as a ForkJoinPool, or null to scan
+	 *        on the calling thread
+	 */
+	public void setScanExecutor(final ExecutorService scanExecutor) {
+		dependencyUtil.setScanExecutor(scanExecutor);
+	}
+
+	/**
+	 * Limits the classpath scan for unspecified interface implementations to
+	 * some packages, class loaders or jar files, and filters the classes that
+	 * are found. By default every loaded package is scanned, except the
+	 * packages of the Java runtime. A field can name its own packages with
+	 * {@link Dependency#scan()}. Child contexts that are created afterwards
+	 * use the same scope.
+	 *
+	 * @param scanScope the scan scope
+	 */
+	public void setScanScope(final ScanScope scanScope) {
+		dependencyUtil.setScanScope(scanScope);
+	}
+
+	/**
+	 * Gets the scope of the classpath scan for unspecified interface
+	 * implementations.
+	 *
+	 * @return the scan scope
+	 */
+	public ScanScope getScanScope() {
+		return dependencyUtil.getScanScope();
+	}
+
+	/**
+	 * Sets the executor that constructs the components of a dependency graph
+	 * concurrently. Errors are reported with the path of fields that leads to
+	 * the failing component. By default each component is constructed on the
+	 * calling thread when it is injected.
+	 *
+	 * @param instantiationExecutor the executor, or null to construct components
+	 *        on the calling thread
+	 */
+	public void setInstantiationExecutor(final ExecutorService instantiationExecutor) {
+		dependencyUtil.setInstantiationExecutor(instantiationExecutor);
+	}
+
+	/**
+	 * Creates an executor that is suitable for instantiating components. Virtual
+	 * threads are used if the Java runtime supports them, otherwise a pool of
+	 * daemon threads with one thread per processor.
+	 *
+	 * @return a new executor, which should be shut down by the caller
+	 */
+	public static ExecutorService newInstantiationExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException e) {
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "mindi-f-instantiation");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Cannot create virtual thread executor", e);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException("Cannot create virtual thread executor", e.getCause());
+		}
+	}
+
+	/**
+	 * Keeps the wiring that this context resolves in a file, so that the next
+	 * run can skip the classpath scans for unspecified interfaces and the
+	 * discovery of dependency fields. The file is loaded now if it was written
+	 * for the same classpath, and is written again after each injection that
+	 * resolved something new. If any jar file or class file on the classpath
+	 * has changed, the file is ignored and everything is resolved again. The
+	 * file should be kept outside the classpath. Child contexts that are
+	 * created afterwards share the cache.
+	 *
+	 * @param file the cache file, or null to stop using a cache
+	 *
+	 * @return true if the wiring was loaded from the file
+	 */
+	public boolean setWiringCache(final File file) {
+		if (file == null) {
+			dependencyUtil.setWiringCache(null);
+			return false;
+		}
+		final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		final WiringCache wiringCache = new WiringCache(file, System.getProperty("java.class.path", ""),
+				contextClassLoader == null ? Context.class.getClassLoader() : contextClassLoader);
+		dependencyUtil.setWiringCache(wiringCache);
+		return wiringCache.isLoaded();
+	}
+
+	/**
+	 * Records the classes that this context loads for injection, so that they
+	 * can be put in a class data sharing archive. Contexts record into the
+	 * recorder of the system property {@value ClassListRecorder#CLASS_LIST_PROPERTY}
+	 * by default, if it is set. Child contexts that are created afterwards use
+	 * the same recorder.
+	 *
+	 * @param recorder the recorder, or null to stop recording
+	 */
+	public void setClassListRecorder(final ClassListRecorder recorder) {
+		dependencyUtil.setClassListRecorder(recorder);
+	}
+
+	/**
+	 * Adds a listener that is called back when this context creates, looks up
+	 * and injects instances, or scans the classpath. Child contexts that are
+	 * created afterwards get the listeners of this context. Nothing is
+	 * measured while a context has no listeners.
+	 *
+	 * @param listener the listener
+	 */
+	public void addListener(final InjectionListener listener) {
+		dependencyUtil.addListener(listener);
+	}
+
+	/**
+	 * Removes a listener from this context.
+	 *
+	 * @param listener the listener
+	 */
+	public void removeListener(final InjectionListener listener) {
+		dependencyUtil.removeListener(listener);
+	}
+
+	/**
+	 * Sets the maximum number of instances that are kept in the pool of each
+	 * component class with {@link Scope#POOLED} scope. The default capacity is
+	 * 16. Pools are shared with child contexts.
+	 *
+	 * @param poolCapacity the pool capacity
+	 */
+	public void setPoolCapacity(final int poolCapacity) {
+		dependencyUtil.setPoolCapacity(poolCapacity);
+	}
+
+	/**
+	 * Gets the hits, misses and size of the pool for a component class.
+	 *
+	 * @param componentClass the component class
+	 *
+	 * @return the pool statistics
+	 */
+	public PoolStatistics getPoolStatistics(final Class<?> componentClass) {
+		return dependencyUtil.getPoolStatistics(componentClass);
+	}
+
+	/**
+	 * Sets how long this context keeps the dependencies that it creates, for
+	 * the dependency classes without a policy of their own. A dependency that
+	 * is no longer kept is created and injected again the next time a field
+	 * needs it. The policy applies to dependencies that are created
+	 * afterwards, and child contexts that are created afterwards start with
+	 * the same policies. A frozen context keeps all its dependencies, and
+	 * dependencies that implement {@link Destroyable} are always kept.
+	 *
+	 * @param policy the reference policy, {@link ReferencePolicy#STRONG} by
+	 *        default
+	 */
+	public void setReferencePolicy(final ReferencePolicy policy) {
+		dependencyUtil.setReferencePolicy(policy);
+	}
+
+	/**
+	 * Sets how long this context keeps the dependencies of one class, such as
+	 * a large cache that is seldom used.
+	 *
+	 * @param dependencyClass the class of the dependency
+	 * @param policy the reference policy
+	 *
+	 * @throws IllegalArgumentException if the class implements
+	 *         {@link Destroyable} and the policy is not
+	 *         {@link ReferencePolicy#STRONG}
+	 */
+	public void setReferencePolicy(final Class<?> dependencyClass, final ReferencePolicy policy) {
+		dependencyUtil.setReferencePolicy(dependencyClass, policy);
+	}
+
+	/**
+	 * Sets the maximum number of dependencies with the
+	 * {@link ReferencePolicy#BOUNDED} policy. The least recently used ones are
+	 * evicted when there are more.
+	 *
+	 * @param maximumSize the maximum number of bounded dependencies
+	 */
+	public void setMaximumSize(final int maximumSize) {
+		dependencyUtil.setMaximumWeight(maximumSize, null);
+	}
+
+	/**
+	 * Sets the maximum total weight of the dependencies with the
+	 * {@link ReferencePolicy#BOUNDED} policy. The least recently used ones are
+	 * evicted when the weight is above the maximum.
+	 *
+	 * @param maximumWeight the maximum total weight
+	 * @param weigher gives the weight of each dependency, such as its estimated
+	 *        size in bytes
+	 */
+	public void setMaximumWeight(final long maximumWeight, final InstanceWeigher weigher) {
+		if (weigher == null) {
+			throw new IllegalArgumentException("Weigher must not be null");
+		}
+		dependencyUtil.setMaximumWeight(maximumWeight, weigher);
+	}
+
+	/**
+	 * Gets the number and total weight of the dependencies that this context
+	 * keeps, and how many it has evicted.
+	 *
+	 * @return the instance statistics
+	 */
+	public InstanceStatistics getInstanceStatistics() {
+		return dependencyUtil.getInstanceStatistics();
+	}
+
+	/**
+	 * Returns the pooled dependencies of a component to their pools. Pooled
+	 * dependencies that implement {@link Poolable} are reset first, and the
+	 * fields of the component that referred to them are cleared.
+	 *
+	 * @param component the component
+	 */
+	public void release(final Object component) {
+		dependencyUtil.release(component);
+	}
+
+	/**
+	 * Freezes the context after startup. The instances of the context are
+	 * copied into an immutable registry, where {@link #get(Class)} finds them
+	 * in constant time without locks. Components can still be injected with
+	 * the existing instances, but creating a new instance throws an
+	 * IllegalStateException. Freezing should be done when no other thread is
+	 * injecting through the context. Child contexts are not frozen with their
+	 * parent.
+	 */
+	public void freeze() {
+		dependencyUtil.freeze();
+	}
+
+	/**
+	 * Checks if the context has been frozen.
+	 *
+	 * @return true if no new instances can be created
+	 */
+	public boolean isFrozen() {
+		return dependencyUtil.isFrozen();
+	}
+
+	/**
+	 * Gets an instance from the context, or from a parent context. The instance
+	 * is found by its class, or by an interface or superclass if exactly one
+	 * instance has it. Nothing is created, so the instance must already have
+	 * been injected somewhere. Lookups in a frozen context are constant time
+	 * and do not allocate.
+	 *
+	 * @param <T> the type of the instance
+	 * @param clazz the class or interface of the instance
+	 *
+	 * @return the instance, or null if there is none
+	 *
+	 * @throws IllegalArgumentException if more than one instance is an
+	 *         implementation of the interface or a subclass of the class
+	 */
+	public <T> T get(final Class<T> clazz) {
+		return clazz.cast(dependencyUtil.get(clazz));
+	}
+
+	/**
+	 * Injects dependencies into many components, such as one processor per
+	 * record. The dependencies of each component class are resolved once for
+	 * the whole batch, so for singleton dependencies only the field writes are
+	 * repeated. Components of the same class should be next to each other.
+	 *
+	 * @param components the components
+	 */
+	public void injectAll(final Iterable<?> components) {
+		dependencyUtil.injectAll(components);
+	}
+
+	/**
+	 * Injects dependencies into an array of components, see
+	 * {@link #injectAll(Iterable)}.
+	 *
+	 * @param components the components
+	 */
+	public void injectAll(final Object[] components) {
+		dependencyUtil.injectAll(components, null);
+	}
+
+	/**
+	 * Injects dependencies into a large array of components concurrently. The
+	 * dependencies are resolved on the calling thread, then the array is split
+	 * into chunks of a few thousand components whose fields are written on the
+	 * executor. Small arrays are injected on the calling thread.
+	 *
+	 * @param components the components
+	 * @param executor writes the fields of the chunks, or null to inject on the
+	 *        calling thread
+	 */
+	public void injectAll(final Object[] components, final ExecutorService executor) {
+		dependencyUtil.injectAll(components, executor);
+	}
+
+	/**
+	 * Closes the context. All instances that the context has created are
+	 * removed from it, and the ones that implement {@link Destroyable} are
+	 * destroyed, the most recently created first. Instances of a parent
+	 * context are not touched, and pooled instances are only destroyed by the
+	 * context that owns the pools, which is the root context. Child contexts
+	 * should be closed before their parent. Nothing can be injected through a
+	 * closed context, and closing it again does nothing.
+	 *
+	 * @throws RuntimeException the first exception from a destroy callback,
+	 *         after all instances have been destroyed
+	 */
+	public void close() {
+		dependencyUtil.close();
+	}
+
+	/**
+	 * Checks if the context has been closed.
+	 *
+	 * @return true if nothing can be injected
+	 */
+	public boolean isClosed() {
+		return dependencyUtil.isClosed();
+	}
+
+	/**
+	 * Inject dependencies into the component..
+	 *
+	 * @param component the component
+	 */
+	public void inject(final Object component) {
+		dependencyUtil.injectComponent(component);
+	}
+
+}
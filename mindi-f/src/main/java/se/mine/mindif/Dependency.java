@@ -23,6 +23,21 @@ public @interface Dependency {
 	 */
 	Class<?> value() default Nothing.class;
 
+	/**
+	 * Defines how many instances of the dependency are created
+	 *
+	 * @return
+	 */
+	Scope scope() default Scope.SINGLETON;
+
+	/**
+	 * Defines the packages that are scanned for the implementation of an
+	 * unspecified interface, instead of the packages of the context scan scope
+	 *
+	 * @return
+	 */
+	String[] scan() default {};
+
 	/**
 	 * Default value for implementation, it indicates that the framework should
 	 * find the concrete class.
@@ -0,0 +1,113 @@
+package se.mine.mindif;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.mine.mindif.InjectionPlan.InjectedField;
+
+/**
+ * The classes that must be instantiated to inject a component, computed from
+ * the {@link Dependency} metadata without creating any instances. Each class is
+ * recorded with the path of fields that first leads to it, which is used in
+ * error messages.
+ *
+ * @author Bjorn
+ */
+final class DependencyGraph {
+	private final Map<Class<?>, String> paths;
+
+	/**
+	 * Instantiates a new dependency graph.
+	 *
+	 * @param paths the dependency path by class
+	 */
+	private DependencyGraph(final Map<Class<?>, String> paths) {
+		this.paths = paths;
+	}
+
+	/**
+	 * Computes the classes that must be instantiated to inject a component.
+	 * Classes that already have an instance in the context are left out, and so
+	 * are their dependencies. Unspecified interfaces are included when exactly
+	 * one implementation is found, and list or array fields with all their
+	 * implementations. {@link Provider} fields and fields that do not have
+	 * singleton scope are not followed.
+	 *
+	 * @param componentClass the class of the component to inject
+	 * @param dependencyUtil finds the instances that already exist in the context,
+	 *        and the implementations of unspecified interfaces
+	 *
+	 * @return the dependency graph
+	 */
+	static DependencyGraph forClass(final Class<?> componentClass, final DependencyUtil dependencyUtil) {
+		final Map<Class<?>, String> paths = new LinkedHashMap<Class<?>, String>();
+		final Deque<Class<?>> pending = new ArrayDeque<Class<?>>();
+		pending.add(componentClass);
+		while (!pending.isEmpty()) {
+			final Class<?> clazz = pending.poll();
+			final String path = clazz == componentClass ? "" : paths.get(clazz) + " -> ";
+			for (InjectedField injectedField : InjectionPlan.forClass(clazz).getFields()) {
+				if (injectedField.isLazy() || injectedField.getScope() != Scope.SINGLETON) {
+					continue;
+				}
+				for (Class<?> implementingClass : getImplementingClasses(injectedField, dependencyUtil)) {
+					if (implementingClass == componentClass || paths.containsKey(implementingClass)
+							|| dependencyUtil.findInstance(implementingClass) != null) {
+						continue;
+					}
+					paths.put(implementingClass, path + injectedField.getField().getDeclaringClass().getName()
+							+ "." + injectedField.getField().getName());
+					pending.add(implementingClass);
+				}
+			}
+		}
+		return new DependencyGraph(paths);
+	}
+
+	/**
+	 * Gets the classes that will be instantiated for a field.
+	 *
+	 * @param injectedField the field
+	 * @param dependencyUtil finds the implementations of unspecified interfaces
+	 *
+	 * @return the classes, or an empty list if they are not known before
+	 *         injection
+	 */
+	private static List<Class<?>> getImplementingClasses(final InjectedField injectedField,
+			final DependencyUtil dependencyUtil) {
+		if (injectedField.getImplementingClass() != null) {
+			return Collections.<Class<?>> singletonList(injectedField.getImplementingClass());
+		}
+		final List<Class<?>> subClasses = dependencyUtil.findSubClasses(injectedField.getField()
+				.getDeclaringClass(), injectedField.getField().getName(), injectedField.getFieldClass());
+		if (injectedField.isMultiple() || subClasses.size() == 1) {
+			return subClasses;
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Gets the classes to instantiate, in the order they were found.
+	 *
+	 * @return the classes
+	 */
+	Iterable<Class<?>> getClasses() {
+		return Collections.unmodifiableSet(paths.keySet());
+	}
+
+	/**
+	 * Gets the path of fields from the component to a class, for error
+	 * messages.
+	 *
+	 * @param clazz a class in the graph
+	 *
+	 * @return the dependency path
+	 */
+	String getPath(final Class<?> clazz) {
+		return paths.get(clazz);
+	}
+}
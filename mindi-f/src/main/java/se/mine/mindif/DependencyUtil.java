@@ -0,0 +1,1466 @@
+package se.mine.mindif;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import se.mine.mindif.InjectionPlan.InjectedField;
+
+/**
+ * Injects dependencies into Java components.
+ *
+ * @author Bjorn
+ */
+class DependencyUtil implements ComponentInjector.Resolver {
+	private static final LoggerWrapper LOGGER = new LoggerWrapper(DependencyUtil.class);
+	private static final int DEFAULT_POOL_CAPACITY = 16;
+	private static final int BATCH_CHUNK_SIZE = 4096;
+	private static final Comparator<Class<?>> CLASS_NAME_ORDER = new Comparator<Class<?>>() {
+		public int compare(final Class<?> first, final Class<?> second) {
+			return first.getName().compareTo(second.getName());
+		}
+	};
+
+	private static final ConcurrentHashMap<Thread, Creation> WAITING_THREADS = new ConcurrentHashMap<Thread, Creation>();
+
+	private final InstanceStore instances;
+	private volatile ConcurrentHashMap<Class<?>, Creation> creations;
+	private volatile ConcurrentHashMap<InjectedField, Class<?>[]> implementations;
+	private volatile int implementationsGeneration = SubclassLocator.getGeneration();
+	private volatile Set<Class<?>> instantiatedGraphs;
+	private final AccessStrategy accessStrategy;
+	private final DependencyUtil parent;
+	private final ConcurrentHashMap<Class<?>, InstancePool> pools;
+	private volatile int poolCapacity;
+	private volatile ExecutorService scanExecutor;
+	private volatile ExecutorService instantiationExecutor;
+	private List<InjectionListener> listeners;
+	private volatile InjectionListener listener;
+	private volatile ListenerChain inheritedListener;
+	private volatile FrozenRegistry frozen;
+	private volatile WiringCache wiringCache;
+	private volatile ClassListRecorder classListRecorder;
+	private volatile ScanScope scanScope = ScanScope.all();
+	private volatile boolean closed;
+
+	/**
+	 * Instantiates a new dependency util.
+	 *
+	 * @param instances contains previously injected dependencies, which are reused
+	 * @param accessStrategy instantiates components and writes fields
+	 */
+	DependencyUtil(final InstanceStore instances, final AccessStrategy accessStrategy) {
+		this.instances = instances;
+		this.accessStrategy = accessStrategy;
+		this.parent = null;
+		this.pools = new ConcurrentHashMap<Class<?>, InstancePool>();
+		this.poolCapacity = DEFAULT_POOL_CAPACITY;
+		this.classListRecorder = ClassListRecorder.getSystemRecorder();
+	}
+
+	/**
+	 * Instantiates a new dependency util for a child context. Instances and
+	 * pools of the parent are reused, and the settings of the parent are
+	 * copied. The reference policies, the listeners and the resolved
+	 * implementations are read from the parent instead of being copied, and
+	 * the maps of the child are created when they are first needed.
+	 *
+	 * @param parent the dependency util of the parent context
+	 */
+	DependencyUtil(final DependencyUtil parent) {
+		this.instances = new InstanceStore(parent.instances);
+		this.accessStrategy = parent.accessStrategy;
+		this.parent = parent;
+		this.pools = parent.pools;
+		this.poolCapacity = parent.poolCapacity;
+		this.scanExecutor = parent.scanExecutor;
+		this.instantiationExecutor = parent.instantiationExecutor;
+		this.wiringCache = parent.wiringCache;
+		this.classListRecorder = parent.classListRecorder;
+		this.scanScope = parent.scanScope;
+	}
+
+	/**
+	 * Sets the reference policy for the dependencies that have no policy of
+	 * their own.
+	 *
+	 * @param policy the reference policy
+	 */
+	void setReferencePolicy(final ReferencePolicy policy) {
+		instances.setDefaultPolicy(policy);
+	}
+
+	/**
+	 * Sets the reference policy for a dependency class.
+	 *
+	 * @param clazz the class
+	 * @param policy the reference policy
+	 */
+	void setReferencePolicy(final Class<?> clazz, final ReferencePolicy policy) {
+		instances.setPolicy(clazz, policy);
+	}
+
+	/**
+	 * Sets the maximum total weight of the dependencies with the bounded
+	 * reference policy.
+	 *
+	 * @param maximumWeight the maximum weight
+	 * @param weigher weighs the dependencies, or null to count them
+	 */
+	void setMaximumWeight(final long maximumWeight, final InstanceWeigher weigher) {
+		instances.setMaximumWeight(maximumWeight, weigher);
+	}
+
+	/**
+	 * Gets the number and weight of the dependencies in this context, and how
+	 * many have been evicted.
+	 *
+	 * @return the statistics
+	 */
+	InstanceStatistics getInstanceStatistics() {
+		return instances.getStatistics();
+	}
+
+	/**
+	 * Sets the executor that scans the classpath for unspecified interface
+	 * implementations.
+	 *
+	 * @param scanExecutor the executor, or null to scan on the calling thread
+	 */
+	void setScanExecutor(final ExecutorService scanExecutor) {
+		this.scanExecutor = scanExecutor;
+	}
+
+	/**
+	 * Sets the packages, class loaders, jar files and filters that limit the
+	 * classpath scan for unspecified interface implementations.
+	 *
+	 * @param scanScope the scan scope
+	 */
+	void setScanScope(final ScanScope scanScope) {
+		if (scanScope == null) {
+			throw new IllegalArgumentException("Scan scope must not be null");
+		}
+		this.scanScope = scanScope;
+		clearResolved();
+	}
+
+	/**
+	 * Gets the scan scope.
+	 *
+	 * @return the scan scope
+	 */
+	ScanScope getScanScope() {
+		return scanScope;
+	}
+
+	/**
+	 * Sets the executor that instantiates the dependencies of a component
+	 * concurrently before they are injected.
+	 *
+	 * @param instantiationExecutor the executor, or null to instantiate each
+	 *        dependency on the calling thread when it is injected
+	 */
+	void setInstantiationExecutor(final ExecutorService instantiationExecutor) {
+		this.instantiationExecutor = instantiationExecutor;
+	}
+
+	/**
+	 * Sets the cache that keeps the resolved wiring between runs.
+	 *
+	 * @param wiringCache the cache, or null to resolve everything each run
+	 */
+	void setWiringCache(final WiringCache wiringCache) {
+		this.wiringCache = wiringCache;
+	}
+
+	/**
+	 * Sets the recorder of the classes that are loaded for injection.
+	 *
+	 * @param classListRecorder the recorder, or null to stop recording
+	 */
+	void setClassListRecorder(final ClassListRecorder classListRecorder) {
+		this.classListRecorder = classListRecorder;
+	}
+
+	/**
+	 * Adds a listener that is called back when this context creates, looks up
+	 * and injects instances, or scans the classpath.
+	 *
+	 * @param injectionListener the listener
+	 */
+	synchronized void addListener(final InjectionListener injectionListener) {
+		if (injectionListener == null) {
+			throw new IllegalArgumentException("Listener must not be null");
+		}
+		if (listeners == null) {
+			listeners = new ArrayList<InjectionListener>();
+		}
+		listeners.add(injectionListener);
+		listener = ListenerChain.of(listeners);
+	}
+
+	/**
+	 * Removes a listener.
+	 *
+	 * @param injectionListener the listener
+	 */
+	synchronized void removeListener(final InjectionListener injectionListener) {
+		if (listeners != null) {
+			listeners.remove(injectionListener);
+			listener = ListenerChain.of(listeners);
+		}
+	}
+
+	/**
+	 * Gets the listener that is called back by this context. A child context
+	 * calls the listeners of its parent first, then its own.
+	 *
+	 * @return the listener, or null if there are no listeners
+	 */
+	private InjectionListener getListener() {
+		final InjectionListener ownListener = listener;
+		if (parent == null || closed) {
+			return ownListener;
+		}
+		final InjectionListener parentListener = parent.getListener();
+		if (ownListener == null) {
+			return parentListener;
+		}
+		if (parentListener == null) {
+			return ownListener;
+		}
+		final ListenerChain chain = inheritedListener;
+		if (chain != null && chain.combines(parentListener, ownListener)) {
+			return chain;
+		}
+		final ListenerChain newChain = ListenerChain.of(parentListener, ownListener);
+		inheritedListener = newChain;
+		return newChain;
+	}
+
+	/**
+	 * Sets the maximum number of instances that are kept in the pool of each
+	 * pooled component class. Pools that already exist keep their capacity.
+	 *
+	 * @param poolCapacity the pool capacity
+	 */
+	void setPoolCapacity(final int poolCapacity) {
+		if (poolCapacity < 0) {
+			throw new IllegalArgumentException("Pool capacity must not be negative: " + poolCapacity);
+		}
+		this.poolCapacity = poolCapacity;
+	}
+
+	/**
+	 * Gets the usage of the pool for a component class.
+	 *
+	 * @param clazz the component class
+	 *
+	 * @return the statistics
+	 */
+	PoolStatistics getPoolStatistics(final Class<?> clazz) {
+		final InstancePool pool = pools.get(clazz);
+		if (pool == null) {
+			return new PoolStatistics(0, 0, 0, poolCapacity);
+		}
+		return pool.getStatistics();
+	}
+
+	/**
+	 * Returns the pooled dependencies of a component to their pools, and
+	 * clears the fields that referred to them.
+	 *
+	 * @param component the component
+	 */
+	void release(final Object component) {
+		for (InjectedField injectedField : InjectionPlan.forClass(component.getClass()).getFields()) {
+			if (injectedField.getScope() != Scope.POOLED) {
+				continue;
+			}
+			final Field field = injectedField.getField();
+			try {
+				final Object instance = field.get(component);
+				if (instance == null) {
+					continue;
+				}
+				accessStrategy.setField(injectedField, component, null);
+				if (instance instanceof Poolable) {
+					((Poolable) instance).reset();
+				}
+				getPool(instance.getClass()).release(instance);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException("Cannot modify field " + field.getName() + " in class "
+						+ field.getDeclaringClass().getName(), e);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the instance map with an immutable registry. No instances can be
+	 * created afterwards.
+	 */
+	synchronized void freeze() {
+		checkOpen();
+		if (frozen == null) {
+			frozen = FrozenRegistry.of(instances.snapshot());
+		}
+	}
+
+	/**
+	 * Removes all instances from the context and destroys the ones that
+	 * implement {@link Destroyable}, the most recently created first. Pooled
+	 * instances are destroyed too, unless this is a child context that shares
+	 * the pools of its parent. Every instance is destroyed even if one of them
+	 * fails, and the first failure is thrown afterwards.
+	 */
+	void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			frozen = null;
+		}
+		final List<Object> closedInstances = instances.clear();
+		clearResolved();
+		if (parent == null) {
+			for (InstancePool pool : pools.values()) {
+				closedInstances.addAll(pool.drain());
+			}
+			pools.clear();
+		}
+		synchronized (this) {
+			listeners = null;
+			listener = null;
+			inheritedListener = null;
+		}
+		RuntimeException failure = null;
+		for (Object instance : closedInstances) {
+			if (instance instanceof Destroyable) {
+				try {
+					((Destroyable) instance).destroy();
+				} catch (RuntimeException e) {
+					LOGGER.debug("Could not destroy {}", instance.getClass().getName(), e);
+					if (failure == null) {
+						failure = e;
+					} else {
+						failure.addSuppressed(e);
+					}
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Checks if the context is closed.
+	 *
+	 * @return true if nothing can be injected
+	 */
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Throws an exception if the context is closed.
+	 */
+	void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Context is closed");
+		}
+	}
+
+	/**
+	 * Checks if the context is frozen.
+	 *
+	 * @return true if no instances can be created
+	 */
+	boolean isFrozen() {
+		return frozen != null;
+	}
+
+	/**
+	 * Gets the instance of a class, or the only instance that is a subclass or
+	 * an implementation of it, from this context or a parent context.
+	 *
+	 * @param clazz the class or interface
+	 *
+	 * @return the instance, or null if no context has one
+	 */
+	Object get(final Class<?> clazz) {
+		checkOpen();
+		final FrozenRegistry registry = frozen;
+		final Object instance = registry != null ? registry.get(clazz) : findAssignableInstance(clazz);
+		if (instance != null || parent == null) {
+			return instance;
+		}
+		return parent.get(clazz);
+	}
+
+	/**
+	 * Finds the instance of a class in the instance map, or the only instance
+	 * that is assignable to it.
+	 *
+	 * @param clazz the class or interface
+	 *
+	 * @return the instance, or null if there is none
+	 */
+	private Object findAssignableInstance(final Class<?> clazz) {
+		final Object instance = instances.get(clazz);
+		if (instance != null) {
+			return instance;
+		}
+		Object returnValue = null;
+		for (Object value : instances.values()) {
+			if (clazz.isInstance(value)) {
+				if (returnValue != null) {
+					throw new IllegalArgumentException("More than one instance in the context is a "
+							+ clazz.getName());
+				}
+				returnValue = value;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Inject dependencies into a component from outside the context. If there
+	 * is an instantiation executor, the whole dependency graph is instantiated
+	 * on it first, the first time a component of the class is injected. The
+	 * wiring cache is written if the injection resolved anything new.
+	 *
+	 * @param component the component
+	 */
+	void injectComponent(final Object component) {
+		checkOpen();
+		final ExecutorService executor = instantiationExecutor;
+		if (executor != null) {
+			instantiateGraph(component.getClass(), executor);
+		}
+		inject(component);
+		saveWiringCache();
+	}
+
+	/**
+	 * Injects dependencies into many components. The dependencies of each
+	 * component class are resolved once, and are then written to every
+	 * component of that class.
+	 *
+	 * @param components the components
+	 */
+	void injectAll(final Iterable<?> components) {
+		checkOpen();
+		final Map<Class<?>, BatchPlan> plans = new HashMap<Class<?>, BatchPlan>();
+		Class<?> lastClass = null;
+		BatchPlan lastPlan = null;
+		for (Object component : components) {
+			if (component.getClass() != lastClass) {
+				lastClass = component.getClass();
+				lastPlan = getBatchPlan(plans, lastClass);
+			}
+			lastPlan.inject(component);
+		}
+		saveWiringCache();
+	}
+
+	/**
+	 * Injects dependencies into many components, split in chunks that are
+	 * injected concurrently. The dependencies of all component classes are
+	 * resolved on the calling thread first, so the chunks only write fields.
+	 *
+	 * @param components the components
+	 * @param executor injects the chunks, or null to inject on the calling
+	 *        thread
+	 */
+	void injectAll(final Object[] components, final ExecutorService executor) {
+		checkOpen();
+		if (executor == null || components.length <= BATCH_CHUNK_SIZE) {
+			injectAll(Arrays.asList(components));
+			return;
+		}
+		final Map<Class<?>, BatchPlan> plans = new HashMap<Class<?>, BatchPlan>();
+		for (Object component : components) {
+			getBatchPlan(plans, component.getClass());
+		}
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		try {
+			for (int start = 0; start < components.length; start += BATCH_CHUNK_SIZE) {
+				final int chunkStart = start;
+				final int chunkEnd = Math.min(start + BATCH_CHUNK_SIZE, components.length);
+				futures.add(executor.submit(new Runnable() {
+					public void run() {
+						for (int i = chunkStart; i < chunkEnd; i++) {
+							plans.get(components[i].getClass()).inject(components[i]);
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				waitForChunk(future);
+			}
+		} finally {
+			for (Future<?> future : futures) {
+				future.cancel(false);
+			}
+		}
+		saveWiringCache();
+	}
+
+	/**
+	 * Gets the batch plan for a component class, and resolves it if this is
+	 * the first component of the class in the batch.
+	 *
+	 * @param plans the plans of the batch
+	 * @param clazz the component class
+	 *
+	 * @return the batch plan
+	 */
+	private BatchPlan getBatchPlan(final Map<Class<?>, BatchPlan> plans, final Class<?> clazz) {
+		BatchPlan plan = plans.get(clazz);
+		if (plan == null) {
+			final ExecutorService executor = instantiationExecutor;
+			if (executor != null) {
+				instantiateGraph(clazz, executor);
+			}
+			plan = new BatchPlan(InjectionPlan.forClass(clazz));
+			plans.put(clazz, plan);
+		}
+		return plan;
+	}
+
+	/**
+	 * Waits for a chunk of a batch to be injected.
+	 *
+	 * @param future the pending chunk
+	 */
+	private static void waitForChunk(final Future<?> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while injecting components", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Cannot inject components", cause);
+		}
+	}
+
+	/**
+	 * Writes the wiring cache, if there is one and anything new was resolved.
+	 */
+	private void saveWiringCache() {
+		final WiringCache cache = wiringCache;
+		if (cache != null) {
+			cache.saveIfChanged();
+		}
+	}
+
+	/**
+	 * Instantiates the dependency graph of a component class, unless it has
+	 * been done before. The graph is only computed once per class, since the
+	 * singletons in it are in the context after that. A singleton that has
+	 * been evicted since then is created again while injecting.
+	 *
+	 * @param componentClass the class of the component to inject
+	 * @param executor runs the constructors
+	 */
+	private void instantiateGraph(final Class<?> componentClass, final ExecutorService executor) {
+		Set<Class<?>> graphs = instantiatedGraphs;
+		if (graphs == null || !graphs.contains(componentClass)) {
+			instantiateGraph(DependencyGraph.forClass(componentClass, this), executor);
+			synchronized (this) {
+				graphs = instantiatedGraphs;
+				if (graphs == null) {
+					graphs = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+					instantiatedGraphs = graphs;
+				}
+			}
+			graphs.add(componentClass);
+		}
+	}
+
+	/**
+	 * Instantiates and wires all classes in a dependency graph concurrently and
+	 * adds them to the context, unless they are created by another thread.
+	 * Dependencies are only injected through fields, so no constructor has to
+	 * wait for another one. If a constructor fails, the error names that class
+	 * and its dependency path, rather than the classes that depend on it.
+	 *
+	 * @param graph the classes to instantiate
+	 * @param executor runs the constructors
+	 */
+	private void instantiateGraph(final DependencyGraph graph, final ExecutorService executor) {
+		final Map<Class<?>, Future<Object>> futures = new LinkedHashMap<Class<?>, Future<Object>>();
+		for (final Class<?> clazz : graph.getClasses()) {
+			futures.put(clazz, executor.submit(new Callable<Object>() {
+				public Object call() throws ReflectiveOperationException {
+					return getOrCreate(clazz);
+				}
+			}));
+		}
+		Class<?> failedClass = null;
+		Throwable failure = null;
+		try {
+			for (Map.Entry<Class<?>, Future<Object>> entry : futures.entrySet()) {
+				final Throwable cause = getFailure(entry.getKey(), entry.getValue());
+				if (cause != null && (failure == null || !(failure instanceof ReflectiveOperationException)
+						&& cause instanceof ReflectiveOperationException)) {
+					failedClass = entry.getKey();
+					failure = cause;
+				}
+			}
+		} finally {
+			for (Future<Object> future : futures.values()) {
+				future.cancel(false);
+			}
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure != null) {
+			throw new RuntimeException("Cannot create an instance of " + failedClass.getName() + ", dependency path: "
+					+ graph.getPath(failedClass), failure instanceof InvocationTargetException ? failure.getCause()
+					: failure);
+		}
+	}
+
+	/**
+	 * Waits for a class in a dependency graph to be instantiated and wired.
+	 *
+	 * @param clazz the class
+	 * @param future the pending instance
+	 *
+	 * @return the failure, or null if the instance was created
+	 */
+	private static Throwable getFailure(final Class<?> clazz, final Future<Object> future) {
+		try {
+			future.get();
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while creating an instance of " + clazz.getName(), e);
+		} catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+
+	/**
+	 * Inject dependecies into component.
+	 *
+	 * @param component the component
+	 */
+	void inject(final Object component) {
+		final InjectionPlan plan = InjectionPlan.forClass(component.getClass());
+		final WiringCache cache = wiringCache;
+		if (cache != null) {
+			cache.putComponent(plan);
+		}
+		final ClassListRecorder recorder = classListRecorder;
+		if (recorder != null) {
+			recorder.recordComponent(plan);
+		}
+		final ComponentInjector<Object> generatedInjector = plan.getGeneratedInjector();
+		if (generatedInjector != null) {
+			generatedInjector.inject(component, this);
+			return;
+		}
+		final InjectedField[] fields = plan.getFields();
+		for (int i = 0; i < fields.length; i++) {
+			injectDependency(component, fields[i]);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Object resolve(final Class<?> declaringClass, final String fieldName, final Class<?> fieldClass,
+			final Class<?> implementingClass) {
+		return injected(declaringClass, fieldName, createInstance(declaringClass, fieldName, fieldClass,
+				implementingClass));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Object resolve(final Class<?> declaringClass, final String fieldName, final Class<?> fieldClass,
+			final Class<?> implementingClass, final Scope scope) {
+		if (scope == Scope.SINGLETON) {
+			return injected(declaringClass, fieldName, createInstance(declaringClass, fieldName, fieldClass,
+					implementingClass));
+		}
+		final Class<?> clazz = implementingClass != null ? implementingClass : findImplementation(declaringClass,
+				fieldName, fieldClass);
+		if (scope == Scope.POOLED) {
+			final Object pooledInstance = getPool(clazz).borrow();
+			if (pooledInstance != null) {
+				return injected(declaringClass, fieldName, pooledInstance);
+			}
+		}
+		final Object newInstance = createUnsharedObject(clazz);
+		inject(newInstance);
+		return injected(declaringClass, fieldName, newInstance);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Provider<?> resolveLazy(final Class<?> declaringClass, final String fieldName,
+			final Class<?> providedClass, final Class<?> implementingClass) {
+		return (Provider<?>) injected(declaringClass, fieldName, new LazyDependency<Object>(this, declaringClass,
+				fieldName, providedClass, implementingClass));
+	}
+
+	/**
+	 * Reports a resolved field value to the listeners.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 * @param value the value
+	 *
+	 * @return the value
+	 */
+	private Object injected(final Class<?> declaringClass, final String fieldName, final Object value) {
+		final InjectionListener currentListener = getListener();
+		if (currentListener != null) {
+			currentListener.fieldInjected(declaringClass, fieldName, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Inject a dependency into a field.
+	 *
+	 * @param component the component
+	 * @param injectedField the field
+	 */
+	private void injectDependency(final Object component, final InjectedField injectedField) {
+		final Field field = injectedField.getField();
+		final Object value;
+		if (injectedField.isLazy()) {
+			value = resolveLazy(field.getDeclaringClass(), field.getName(), injectedField.getFieldClass(),
+					injectedField.getImplementingClass());
+		} else if (injectedField.isMultiple()) {
+			value = injected(field.getDeclaringClass(), field.getName(), resolveAll(injectedField));
+		} else {
+			value = resolve(field.getDeclaringClass(), field.getName(), injectedField.getFieldClass(),
+					injectedField.getImplementingClass(), injectedField.getScope());
+		}
+		setField(component, injectedField, value);
+	}
+
+	/**
+	 * Gets all implementations of the element type of a list or array field,
+	 * ordered by class name. The implementations are looked up the first time
+	 * the field is injected, and the same classes are used after that. Each
+	 * implementation is the singleton instance of the context. A list field
+	 * gets an unmodifiable list, and an array field gets an array of its own.
+	 *
+	 * @param injectedField the field
+	 *
+	 * @return the list or array
+	 */
+	private Object resolveAll(final InjectedField injectedField) {
+		final Field field = injectedField.getField();
+		final Class<?> declaringClass = field.getDeclaringClass();
+		final Map<InjectedField, Class<?>[]> cache = getImplementations();
+		Class<?>[] classes = cache.get(injectedField);
+		if (classes == null) {
+			final List<Class<?>> subClasses = findSubClasses(declaringClass, field.getName(), injectedField
+					.getFieldClass());
+			classes = subClasses.toArray(new Class<?>[subClasses.size()]);
+			Arrays.sort(classes, CLASS_NAME_ORDER);
+			cache.put(injectedField, classes);
+		}
+		final Object[] values = (Object[]) Array.newInstance(injectedField.getFieldClass(), classes.length);
+		for (int i = 0; i < classes.length; i++) {
+			values[i] = createInstance(declaringClass, field.getName(), injectedField.getFieldClass(), classes[i]);
+		}
+		return field.getType().isArray() ? values : Collections.unmodifiableList(Arrays.asList(values));
+	}
+
+	/**
+	 * Writes a dependency to a field.
+	 *
+	 * @param component the component
+	 * @param injectedField the field
+	 * @param value the dependency
+	 */
+	private void setField(final Object component, final InjectedField injectedField, final Object value) {
+		try {
+			accessStrategy.setField(injectedField, component, value);
+		} catch (IllegalAccessException e) {
+			final Field field = injectedField.getField();
+			throw new RuntimeException("Cannot modify field " + field.getName() + " in class "
+					+ field.getDeclaringClass().getName(), e);
+		}
+	}
+
+	/**
+	 * Gets the instance for the field from the context, and creates and
+	 * injects it if there is none.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 * @param fieldClass the declared type of the field
+	 * @param implementingClass the class to instantiate, or null for an
+	 *        unspecified interface
+	 *
+	 * @return the object
+	 */
+	private Object createInstance(final Class<?> declaringClass, final String fieldName, final Class<?> fieldClass,
+			final Class<?> implementingClass) {
+		if (implementingClass != null) {
+			return createObject(implementingClass);
+		}
+		return createInterfaceInstance(declaringClass, fieldName, fieldClass);
+	}
+
+	/**
+	 * Creates an instance for an unspecified interface field.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 * @param fieldClass the declared type of the field
+	 *
+	 * @return the object
+	 */
+	private Object createInterfaceInstance(final Class<?> declaringClass, final String fieldName,
+			final Class<?> fieldClass) {
+		return createObject(findImplementation(declaringClass, fieldName, fieldClass));
+	}
+
+	/**
+	 * Finds the only implementation of an unspecified interface field. The
+	 * implementation is chosen from the class metadata, so no candidate is
+	 * instantiated to find out if it can be. It is looked up the first time
+	 * the field is injected, and the same class is used after that, so the
+	 * hint to name the implementation is only logged once per field.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 * @param fieldClass the declared type of the field
+	 *
+	 * @return the implementing class
+	 */
+	private Class<?> findImplementation(final Class<?> declaringClass, final String fieldName,
+			final Class<?> fieldClass) {
+		final InjectedField injectedField = InjectionPlan.forClass(declaringClass).getField(declaringClass,
+				fieldName);
+		final Map<InjectedField, Class<?>[]> cache = getImplementations();
+		final Class<?>[] cachedClasses = injectedField == null ? null : cache.get(injectedField);
+		if (cachedClasses != null) {
+			return cachedClasses[0];
+		}
+		final List<Class<?>> concreteClasses = findSubClasses(declaringClass, fieldName, fieldClass);
+		if (concreteClasses.isEmpty()) {
+			throw new IllegalArgumentException("Could not find concrete implementation of interface: "
+					+ fieldClass.getName());
+		}
+		if (concreteClasses.size() > 1) {
+			throw ambiguousImplementations(declaringClass, fieldName, fieldClass, concreteClasses);
+		}
+		if (injectedField != null) {
+			cache.put(injectedField, new Class<?>[] { concreteClasses.get(0) });
+		}
+		LOGGER.debug("Found instance for interface {}. But please use @Dependency({}.class) to improve type "
+				+ "safety and instantiation speed", fieldClass.getName(), concreteClasses.get(0).getSimpleName());
+		return concreteClasses.get(0);
+	}
+
+	/**
+	 * Gets the implementations that have been resolved for unspecified
+	 * interface fields. They are discarded when the indexes of the subclass
+	 * locator have been invalidated since they were resolved. A child context
+	 * uses the implementations of its parent while it has the same scan scope.
+	 *
+	 * @return the implementing classes by field
+	 */
+	private Map<InjectedField, Class<?>[]> getImplementations() {
+		if (parent != null && scanScope.equals(parent.scanScope)) {
+			return parent.getImplementations();
+		}
+		ConcurrentHashMap<InjectedField, Class<?>[]> map = implementations;
+		final int generation = SubclassLocator.getGeneration();
+		if (map == null || generation != implementationsGeneration) {
+			synchronized (this) {
+				map = implementations;
+				if (map == null) {
+					map = new ConcurrentHashMap<InjectedField, Class<?>[]>();
+					implementations = map;
+				} else if (generation != implementationsGeneration) {
+					map.clear();
+				}
+				implementationsGeneration = generation;
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Discards the implementations and dependency graphs that have been
+	 * resolved by this context.
+	 */
+	private void clearResolved() {
+		final Map<InjectedField, Class<?>[]> map = implementations;
+		if (map != null) {
+			map.clear();
+		}
+		final Set<Class<?>> graphs = instantiatedGraphs;
+		if (graphs != null) {
+			graphs.clear();
+		}
+	}
+
+	/**
+	 * Finds the implementations of an unspecified interface that the context
+	 * can instantiate, which are the concrete classes with a no-arg
+	 * constructor.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 * @param fieldClass the interface
+	 *
+	 * @return the implementing classes
+	 */
+	List<Class<?>> findSubClasses(final Class<?> declaringClass, final String fieldName, final Class<?> fieldClass) {
+		final List<Class<?>> subClasses = locateSubClasses(declaringClass, fieldName, fieldClass);
+		final ClassListRecorder recorder = classListRecorder;
+		if (recorder != null) {
+			recorder.recordAll(subClasses);
+		}
+		for (int i = 0; i < subClasses.size(); i++) {
+			if (InjectionPlan.getInstantiationProblem(subClasses.get(i)) != null) {
+				final List<Class<?>> returnValue = new ArrayList<Class<?>>(subClasses.subList(0, i));
+				for (Class<?> subClass : subClasses.subList(i + 1, subClasses.size())) {
+					if (InjectionPlan.getInstantiationProblem(subClass) == null) {
+						returnValue.add(subClass);
+					}
+				}
+				return returnValue;
+			}
+		}
+		return subClasses;
+	}
+
+	/**
+	 * Finds the implementations of an unspecified interface. The wiring that
+	 * was resolved at build time is used first, then the wiring cache if there
+	 * is one, otherwise a subclass locator. Fields that name their own packages
+	 * to scan, and scopes without a cache key, are not cached.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 * @param fieldClass the interface
+	 *
+	 * @return the implementing classes, including those that cannot be
+	 *         instantiated
+	 */
+	private List<Class<?>> locateSubClasses(final Class<?> declaringClass, final String fieldName,
+			final Class<?> fieldClass) {
+		final InjectedField injectedField = InjectionPlan.forClass(declaringClass).getField(declaringClass,
+				fieldName);
+		final boolean fieldScope = injectedField != null && injectedField.getScanPackages().length > 0;
+		final ScanScope scope = fieldScope ? scanScope.withPackages(injectedField.getScanPackages()) : scanScope;
+		final ClassLoader declaringClassLoader = declaringClass.getClassLoader();
+		final ClassLoader classLoader = declaringClassLoader == null ? ClassLoader.getSystemClassLoader()
+				: declaringClassLoader;
+		final List<Class<?>> wiredClasses = ResolvedWiring.forClassLoader(classLoader).getImplementations(
+				declaringClass, fieldName, fieldClass, classLoader);
+		if (wiredClasses != null && isInScope(wiredClasses, scope)) {
+			return wiredClasses;
+		}
+		if (fieldScope) {
+			return new SubclassLocator(fieldClass, scanExecutor, getListener(), scope).getSubClasses();
+		}
+		final WiringCache cache = wiringCache;
+		final String scopeKey = scope.getCacheKey();
+		if (cache == null || scopeKey == null) {
+			return new SubclassLocator(fieldClass, scanExecutor, getListener(), scope).getSubClasses();
+		}
+		List<Class<?>> subClasses = cache.getSubClasses(fieldClass, scopeKey);
+		if (subClasses == null) {
+			subClasses = new SubclassLocator(fieldClass, scanExecutor, getListener(), scope).getSubClasses();
+			cache.putSubClasses(fieldClass, scopeKey, subClasses);
+		}
+		return subClasses;
+	}
+
+	/**
+	 * Checks if classes are in a scan scope.
+	 *
+	 * @param classes the classes
+	 * @param scope the scan scope
+	 *
+	 * @return true if the scope contains every class
+	 */
+	private static boolean isInScope(final List<Class<?>> classes, final ScanScope scope) {
+		for (Class<?> clazz : classes) {
+			if (!scope.contains(clazz.getName())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the error for an unspecified interface field with more than one
+	 * implementation.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 * @param fieldClass the declared type of the field
+	 * @param classes the implementing classes
+	 *
+	 * @return the exception to throw
+	 */
+	private static IllegalArgumentException ambiguousImplementations(final Class<?> declaringClass,
+			final String fieldName, final Class<?> fieldClass, final List<Class<?>> classes) {
+		final StringBuilder msg = new StringBuilder().append("Found more than one implementation of interface: ")
+				.append(fieldClass.getName()).append(". Please use either of: \n");
+		for (Class<?> clazz : classes) {
+			msg.append("@Dependency(").append(clazz.getSimpleName()).append(".class) \n");
+		}
+		msg.append(getModifiers(declaringClass, fieldName)).append(" ").append(fieldClass.getSimpleName()).append(
+				" ").append(fieldName);
+		return new IllegalArgumentException(msg.toString());
+	}
+
+	/**
+	 * Creates an object that is not shared through the context.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the new instance
+	 */
+	private Object createUnsharedObject(final Class<?> clazz) {
+		try {
+			return newInstance(InjectionPlan.forClass(clazz));
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Cannot create an instance of " + clazz.getName(), e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Cannot create an instance of " + clazz.getName(), e);
+		}
+	}
+
+	/**
+	 * Gets the pool for a class, and creates it if this is the first use.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the pool
+	 */
+	private InstancePool getPool(final Class<?> clazz) {
+		final InstancePool pool = pools.get(clazz);
+		if (pool != null) {
+			return pool;
+		}
+		final InstancePool newPool = new InstancePool(poolCapacity);
+		final InstancePool existingPool = pools.putIfAbsent(clazz, newPool);
+		return existingPool == null ? newPool : existingPool;
+	}
+
+	/**
+	 * Gets the instance of a class from the context, and creates it if there is
+	 * none.
+	 *
+	 * @param clazz the clazz
+	 *
+	 * @return the instance
+	 */
+	private Object createObject(final Class<?> clazz) {
+		try {
+			return getOrCreate(clazz);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Cannot create an instance of " + clazz.getName(), e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Cannot create an instance of " + clazz.getName(), e);
+		}
+	}
+
+	/**
+	 * Gets the instance of a class from the context, and creates and injects it
+	 * if there is none. Each class is constructed at most once per context. A
+	 * thread that needs a class that another thread is creating waits until
+	 * that instance is injected, instead of creating its own. No lock is held
+	 * while a constructor runs.
+	 * <p>
+	 * The instance is added to the context after it is injected, so other
+	 * threads never get an instance with unwired fields. A dependency cycle
+	 * gets the instance before it is injected, either on the thread that
+	 * creates it, or on a thread whose wait would otherwise close a circle of
+	 * threads that wait for each other.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the instance in the context
+	 *
+	 * @throws ReflectiveOperationException if the class cannot be instantiated
+	 */
+	private Object getOrCreate(final Class<?> clazz) throws ReflectiveOperationException {
+		final Object existingInstance = findInstance(clazz);
+		final InjectionListener currentListener = getListener();
+		if (currentListener != null) {
+			currentListener.instanceLookup(clazz, existingInstance != null);
+		}
+		if (existingInstance != null) {
+			return existingInstance;
+		}
+		final Creation creation = new Creation();
+		final ConcurrentHashMap<Class<?>, Creation> runningCreations = getCreations();
+		final Creation runningCreation = runningCreations.putIfAbsent(clazz, creation);
+		if (runningCreation != null) {
+			return getCreated(clazz, runningCreation);
+		}
+		try {
+			final Object instance = findInstance(clazz);
+			if (instance != null) {
+				creation.instance = instance;
+				return instance;
+			}
+			creation.instance = newInstance(InjectionPlan.forClass(clazz));
+			inject(creation.instance);
+			instances.put(clazz, creation.instance);
+			return creation.instance;
+		} catch (ReflectiveOperationException e) {
+			creation.failure = e;
+			throw e;
+		} catch (RuntimeException e) {
+			creation.failure = e;
+			throw e;
+		} catch (Error e) {
+			creation.failure = e;
+			throw e;
+		} finally {
+			runningCreations.remove(clazz, creation);
+			creation.done.countDown();
+		}
+	}
+
+	/**
+	 * Gets the creations that are running in this context.
+	 *
+	 * @return the creations by class
+	 */
+	private ConcurrentHashMap<Class<?>, Creation> getCreations() {
+		ConcurrentHashMap<Class<?>, Creation> map = creations;
+		if (map == null) {
+			synchronized (this) {
+				map = creations;
+				if (map == null) {
+					map = new ConcurrentHashMap<Class<?>, Creation>();
+					creations = map;
+				}
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Finds the instance of a class in this context or in a parent context.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the instance, or null if no context has one
+	 */
+	Object findInstance(final Class<?> clazz) {
+		final FrozenRegistry registry = frozen;
+		final Object instance = registry != null ? registry.getExact(clazz) : instances.get(clazz);
+		if (instance != null || parent == null) {
+			return instance;
+		}
+		return parent.findInstance(clazz);
+	}
+
+	/**
+	 * Waits for a class that another thread creates to be injected. The
+	 * instance is returned right away to the creating thread itself, and to a
+	 * thread that the creating thread waits for, directly or through other
+	 * threads, since they are in a dependency cycle.
+	 *
+	 * @param clazz the class
+	 * @param creation the running creation
+	 *
+	 * @return the instance
+	 *
+	 * @throws ReflectiveOperationException if the class cannot be instantiated
+	 */
+	private static Object getCreated(final Class<?> clazz, final Creation creation)
+			throws ReflectiveOperationException {
+		final Thread currentThread = Thread.currentThread();
+		if (creation.owner == currentThread) {
+			return creation.instance;
+		}
+		WAITING_THREADS.put(currentThread, creation);
+		try {
+			if (isWaitingFor(creation, currentThread)) {
+				return creation.instance;
+			}
+			creation.done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for an instance of " + clazz.getName(), e);
+		} finally {
+			WAITING_THREADS.remove(currentThread);
+		}
+		final Throwable failure = creation.failure;
+		if (failure == null) {
+			return creation.instance;
+		}
+		if (failure instanceof ReflectiveOperationException) {
+			throw (ReflectiveOperationException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		throw (Error) failure;
+	}
+
+	/**
+	 * Checks if the thread that runs a creation waits for a thread, directly
+	 * or through the creations that other threads wait for.
+	 *
+	 * @param creation the creation
+	 * @param thread the thread
+	 *
+	 * @return true if waiting for the creation would deadlock the thread
+	 */
+	private static boolean isWaitingFor(final Creation creation, final Thread thread) {
+		Creation current = creation;
+		for (int i = WAITING_THREADS.size(); current != null && i >= 0; i--) {
+			if (current.owner == thread) {
+				return true;
+			}
+			current = WAITING_THREADS.get(current.owner);
+		}
+		return false;
+	}
+
+	/**
+	 * Creates a new instance, and reports the construction time to the
+	 * listeners. No instances are created in a frozen context.
+	 *
+	 * @param plan the plan for the class to instantiate
+	 *
+	 * @return the new instance
+	 *
+	 * @throws ReflectiveOperationException if the class cannot be instantiated
+	 */
+	private Object newInstance(final InjectionPlan plan) throws ReflectiveOperationException {
+		if (closed) {
+			throw new IllegalStateException("Context is closed, cannot create an instance of "
+					+ plan.getComponentClass().getName());
+		}
+		if (frozen != null) {
+			throw new IllegalStateException("Context is frozen, cannot create an instance of "
+					+ plan.getComponentClass().getName());
+		}
+		final ClassListRecorder recorder = classListRecorder;
+		if (recorder != null) {
+			recorder.recordComponent(plan);
+		}
+		final InjectionListener currentListener = getListener();
+		if (currentListener == null) {
+			return construct(plan);
+		}
+		final long start = System.nanoTime();
+		final Object instance = construct(plan);
+		currentListener.instanceCreated(instance.getClass(), System.nanoTime() - start);
+		return instance;
+	}
+
+	/**
+	 * Creates a new instance with the generated injector for the class, or with
+	 * the access strategy if there is none.
+	 *
+	 * @param plan the plan for the class to instantiate
+	 *
+	 * @return the new instance
+	 *
+	 * @throws ReflectiveOperationException if the class cannot be instantiated
+	 */
+	private Object construct(final InjectionPlan plan) throws ReflectiveOperationException {
+		final ComponentInjector<Object> generatedInjector = plan.getGeneratedInjector();
+		if (generatedInjector != null) {
+			final Object newInstance = generatedInjector.newInstance();
+			if (newInstance != null) {
+				return newInstance;
+			}
+		}
+		return accessStrategy.newInstance(plan);
+	}
+
+	/**
+	 * Gets the modifiers of a field as a string, for error messages.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 *
+	 * @return the modifiers
+	 */
+	private static String getModifiers(final Class<?> declaringClass, final String fieldName) {
+		try {
+			return Modifier.toString(declaringClass.getDeclaredField(fieldName).getModifiers());
+		} catch (NoSuchFieldException e) {
+			return "";
+		}
+	}
+
+	/**
+	 * A class that a thread is creating and injecting.
+	 */
+	private static final class Creation {
+		private final Thread owner = Thread.currentThread();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile Object instance;
+		private volatile Throwable failure;
+	}
+
+	/**
+	 * The dependencies of one component class in a batch. Singleton and
+	 * provider dependencies are resolved once, dependencies with other scopes
+	 * are resolved for each component. A generated injector gets the resolved
+	 * dependencies from the plan, so it still writes the fields directly.
+	 */
+	private final class BatchPlan implements ComponentInjector.Resolver {
+		private final ComponentInjector<Object> generatedInjector;
+		private final InjectedField[] fields;
+		private final Class<?>[] declaringClasses;
+		private final String[] fieldNames;
+		private final Object[] sharedValues;
+
+		/**
+		 * Resolves the shared dependencies of a component class.
+		 *
+		 * @param plan the injection plan of the class
+		 */
+		private BatchPlan(final InjectionPlan plan) {
+			final WiringCache cache = wiringCache;
+			if (cache != null) {
+				cache.putComponent(plan);
+			}
+			final ClassListRecorder recorder = classListRecorder;
+			if (recorder != null) {
+				recorder.recordComponent(plan);
+			}
+			generatedInjector = plan.getGeneratedInjector();
+			fields = plan.getFields();
+			declaringClasses = new Class<?>[fields.length];
+			fieldNames = new String[fields.length];
+			sharedValues = new Object[fields.length];
+			for (int i = 0; i < fields.length; i++) {
+				final InjectedField injectedField = fields[i];
+				declaringClasses[i] = injectedField.getField().getDeclaringClass();
+				fieldNames[i] = injectedField.getField().getName();
+				if (injectedField.isLazy()) {
+					sharedValues[i] = new LazyDependency<Object>(DependencyUtil.this, declaringClasses[i],
+							fieldNames[i], injectedField.getFieldClass(), injectedField.getImplementingClass());
+				} else if (injectedField.isMultiple()) {
+					if (injectedField.getField().getType() == List.class) {
+						sharedValues[i] = resolveAll(injectedField);
+					}
+				} else if (injectedField.getScope() == Scope.SINGLETON) {
+					sharedValues[i] = createInstance(declaringClasses[i], fieldNames[i], injectedField
+							.getFieldClass(), injectedField.getImplementingClass());
+				}
+			}
+		}
+
+		/**
+		 * Writes the dependencies to a component.
+		 *
+		 * @param component the component
+		 */
+		private void inject(final Object component) {
+			if (generatedInjector != null) {
+				generatedInjector.inject(component, this);
+				return;
+			}
+			for (int i = 0; i < fields.length; i++) {
+				final Object sharedValue = sharedValues[i];
+				if (sharedValue == null) {
+					injectDependency(component, fields[i]);
+				} else {
+					setField(component, fields[i], sharedValue);
+					injected(declaringClasses[i], fieldNames[i], sharedValue);
+				}
+			}
+		}
+
+		/**
+		 * Gets the resolved value of a shared dependency.
+		 *
+		 * @param declaringClass the class that declares the field
+		 * @param fieldName the name of the field
+		 *
+		 * @return the value, or null if the field is not shared
+		 */
+		private Object getSharedValue(final Class<?> declaringClass, final String fieldName) {
+			for (int i = 0; i < fieldNames.length; i++) {
+				if (declaringClasses[i] == declaringClass && fieldNames[i].equals(fieldName)) {
+					return sharedValues[i];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Object resolve(final Class<?> declaringClass, final String fieldName, final Class<?> fieldClass,
+				final Class<?> implementingClass) {
+			final Object sharedValue = getSharedValue(declaringClass, fieldName);
+			if (sharedValue == null) {
+				return DependencyUtil.this.resolve(declaringClass, fieldName, fieldClass, implementingClass);
+			}
+			return injected(declaringClass, fieldName, sharedValue);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Object resolve(final Class<?> declaringClass, final String fieldName, final Class<?> fieldClass,
+				final Class<?> implementingClass, final Scope scope) {
+			if (scope != Scope.SINGLETON) {
+				return DependencyUtil.this.resolve(declaringClass, fieldName, fieldClass, implementingClass, scope);
+			}
+			return resolve(declaringClass, fieldName, fieldClass, implementingClass);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Provider<?> resolveLazy(final Class<?> declaringClass, final String fieldName,
+				final Class<?> providedClass, final Class<?> implementingClass) {
+			final Object sharedValue = getSharedValue(declaringClass, fieldName);
+			if (sharedValue == null) {
+				return DependencyUtil.this.resolveLazy(declaringClass, fieldName, providedClass, implementingClass);
+			}
+			return (Provider<?>) injected(declaringClass, fieldName, sharedValue);
+		}
+	}
+}
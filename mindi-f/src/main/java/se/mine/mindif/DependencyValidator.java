@@ -0,0 +1,355 @@
+package se.mine.mindif;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import se.mine.mindif.InjectionPlan.InjectedField;
+
+/**
+ * Checks the dependency graphs of component classes without creating any
+ * instances, for use at build time. Every {@link Dependency} field that can be
+ * reached from a root class is resolved the way a context would resolve it,
+ * and the problems that a context would only find during injection are
+ * reported:
+ * <ul>
+ * <li>a field without an implementation, or with an implementation that is
+ * abstract or has no no-arg constructor</li>
+ * <li>an unspecified interface with more than one implementation</li>
+ * <li>a cycle of fields that all get new instances, which never ends</li>
+ * </ul>
+ * A list or array field gets all implementations of its element type, so it
+ * is never ambiguous and may have none.
+ * Cycles through singleton or {@link Provider} fields are allowed, as the
+ * context injects them fine.
+ * <p>
+ * The implementations that were found for unspecified interface fields,
+ * including list and array fields, can be written to the
+ * {@link #WIRING_RESOURCE}, which a context reads instead of scanning the
+ * classpath.
+ * <code>
+ * final DependencyValidator validator = new DependencyValidator(ScanScope.all().withClassLoaders(loader));
+ * validator.validate(Class.forName("com.acme.Main", false, loader));
+ * if (validator.getErrors().isEmpty()) {
+ *   validator.writeWiring(classesDirectory);
+ * }
+ * </code>
+ *
+ * @author Bjorn
+ */
+public final class DependencyValidator {
+	/**
+	 * Resource with the implementation of each unspecified interface field,
+	 * one <code>declaringClass#field=implementation</code> line per field. A
+	 * list or array field has all its implementations, comma separated and
+	 * ordered by class name. The resource is written at build time by the
+	 * MinDI F Maven plugin.
+	 */
+	public static final String WIRING_RESOURCE = "META-INF/mindi-f/wiring";
+
+	private static final String FIELD_SEPARATOR = "#";
+	private final ScanScope scope;
+	private final Map<Class<?>, List<Edge>> edges = new LinkedHashMap<Class<?>, List<Edge>>();
+	private final Set<String> errors = new LinkedHashSet<String>();
+	private final Set<String> scannedFields = new LinkedHashSet<String>();
+	private final Map<String, String> wiring = new TreeMap<String, String>();
+
+	/**
+	 * Instantiates a new dependency validator.
+	 *
+	 * @param scope the scope that unspecified interfaces are looked up in
+	 */
+	public DependencyValidator(final ScanScope scope) {
+		if (scope == null) {
+			throw new IllegalArgumentException("Scan scope must not be null");
+		}
+		this.scope = scope;
+	}
+
+	/**
+	 * Checks the dependency graphs of some root classes. Classes that have
+	 * already been checked, from this or an earlier call, are not checked
+	 * again.
+	 *
+	 * @param rootClasses the classes of the components that are injected
+	 */
+	public void validate(final Class<?>... rootClasses) {
+		for (Class<?> rootClass : rootClasses) {
+			visit(rootClass, rootClass.getName());
+		}
+		findCycles();
+	}
+
+	/**
+	 * Gets the problems that were found, each with the path of fields that
+	 * leads to it.
+	 *
+	 * @return the error messages, or an empty list if the graphs are valid
+	 */
+	public List<String> getErrors() {
+		return new ArrayList<String>(errors);
+	}
+
+	/**
+	 * Gets the unspecified interface fields, which need a classpath scan at
+	 * runtime unless the resolved wiring is used. List and array fields are
+	 * included with their declared type.
+	 *
+	 * @return the fields, as <code>declaringClass.field (interface)</code>,
+	 *         <code>(java.util.List&lt;interface&gt;)</code> or
+	 *         <code>(interface[])</code>
+	 */
+	public List<String> getScannedFields() {
+		return new ArrayList<String>(scannedFields);
+	}
+
+	/**
+	 * Gets the implementations that were found for the unspecified interface
+	 * fields.
+	 *
+	 * @return the implementation class names by
+	 *         <code>declaringClass#field</code>, comma separated for list and
+	 *         array fields
+	 */
+	public Map<String, String> getWiring() {
+		return Collections.unmodifiableMap(wiring);
+	}
+
+	/**
+	 * Writes the resolved wiring as the {@link #WIRING_RESOURCE} of a classes
+	 * directory.
+	 *
+	 * @param classesDirectory the directory that the classes are packaged from
+	 *
+	 * @return the written file
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public File writeWiring(final File classesDirectory) throws IOException {
+		final File file = new File(classesDirectory, WIRING_RESOURCE);
+		final File directory = file.getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create directory " + directory);
+		}
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			for (Map.Entry<String, String> entry : wiring.entrySet()) {
+				writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Checks the fields of a class, and the classes that they lead to.
+	 *
+	 * @param clazz the class
+	 * @param path the path of fields that leads to the class
+	 */
+	private void visit(final Class<?> clazz, final String path) {
+		if (edges.containsKey(clazz)) {
+			return;
+		}
+		final List<Edge> classEdges = new ArrayList<Edge>();
+		edges.put(clazz, classEdges);
+		final InjectedField[] fields;
+		try {
+			fields = InjectionPlan.forClass(clazz).getFields();
+		} catch (IllegalArgumentException e) {
+			errors.add(e.getMessage() + ", dependency path: " + path);
+			return;
+		} catch (LinkageError e) {
+			errors.add("Cannot load the fields of " + clazz.getName() + ": " + e + ", dependency path: " + path);
+			return;
+		}
+		for (InjectedField injectedField : fields) {
+			final String fieldPath = path + " -> " + getName(injectedField.getField());
+			for (Class<?> implementingClass : resolve(injectedField, fieldPath)) {
+				classEdges.add(new Edge(injectedField, implementingClass));
+				visit(implementingClass, fieldPath);
+			}
+		}
+	}
+
+	/**
+	 * Resolves the classes that a context would instantiate for a field.
+	 *
+	 * @param injectedField the field
+	 * @param path the path of fields that leads to the field
+	 *
+	 * @return the classes, or an empty list if the field cannot be injected
+	 */
+	private List<Class<?>> resolve(final InjectedField injectedField, final String path) {
+		final Field field = injectedField.getField();
+		final Class<?> implementingClass = injectedField.getImplementingClass();
+		if (implementingClass != null) {
+			final String problem = InjectionPlan.getInstantiationProblem(implementingClass);
+			if (problem != null) {
+				errors.add("Cannot instantiate " + implementingClass.getName() + " for field " + getName(field)
+						+ ", the class " + problem + ", dependency path: " + path);
+				return Collections.emptyList();
+			}
+			return Collections.<Class<?>> singletonList(implementingClass);
+		}
+		final Class<?> fieldClass = injectedField.getFieldClass();
+		scannedFields.add(getName(field) + " (" + getTypeName(injectedField) + ")");
+		final String[] scanPackages = injectedField.getScanPackages();
+		final ScanScope fieldScope = scanPackages.length > 0 ? scope.withPackages(scanPackages) : scope;
+		final List<Class<?>> candidates = new ArrayList<Class<?>>();
+		for (Class<?> subClass : new SubclassLocator(fieldClass, fieldScope).getSubClasses()) {
+			if (InjectionPlan.getInstantiationProblem(subClass) == null) {
+				candidates.add(subClass);
+			}
+		}
+		if (injectedField.isMultiple()) {
+			final List<String> names = new ArrayList<String>();
+			for (Class<?> candidate : candidates) {
+				names.add(candidate.getName());
+			}
+			Collections.sort(names);
+			final StringBuilder value = new StringBuilder();
+			for (String name : names) {
+				if (value.length() > 0) {
+					value.append(',');
+				}
+				value.append(name);
+			}
+			wiring.put(field.getDeclaringClass().getName() + FIELD_SEPARATOR + field.getName(), value.toString());
+			return candidates;
+		}
+		if (candidates.isEmpty()) {
+			errors.add("Could not find concrete implementation of interface " + fieldClass.getName()
+					+ " for field " + getName(field) + ", dependency path: " + path);
+			return candidates;
+		}
+		if (candidates.size() > 1) {
+			final List<String> names = new ArrayList<String>();
+			for (Class<?> candidate : candidates) {
+				names.add(candidate.getName());
+			}
+			errors.add("Found more than one implementation of interface " + fieldClass.getName() + " for field "
+					+ getName(field) + ": " + names + ", dependency path: " + path);
+			return Collections.emptyList();
+		}
+		wiring.put(field.getDeclaringClass().getName() + FIELD_SEPARATOR + field.getName(), candidates.get(0)
+				.getName());
+		return candidates;
+	}
+
+	/**
+	 * Finds the cycles of fields that all get a new instance. Injecting such a
+	 * cycle creates instances until the stack overflows. Each cycle is reported
+	 * once, from the class that was visited first.
+	 */
+	private void findCycles() {
+		final Set<Class<?>> done = new HashSet<Class<?>>();
+		for (Class<?> clazz : edges.keySet()) {
+			findCycles(clazz, new ArrayList<Edge>(), new HashMap<Class<?>, Integer>(), done);
+		}
+	}
+
+	/**
+	 * Follows the fields that get a new instance from a class, depth first.
+	 *
+	 * @param clazz the class
+	 * @param stack the fields that lead to the class
+	 * @param onStack the classes on the stack, by the stack index of the field
+	 *        that leaves them
+	 * @param done the classes whose cycles are already reported
+	 */
+	private void findCycles(final Class<?> clazz, final List<Edge> stack, final Map<Class<?>, Integer> onStack,
+			final Set<Class<?>> done) {
+		if (done.contains(clazz)) {
+			return;
+		}
+		onStack.put(clazz, stack.size());
+		for (Edge edge : edges.get(clazz)) {
+			if (!edge.createsInstance()) {
+				continue;
+			}
+			stack.add(edge);
+			final Integer start = onStack.get(edge.target);
+			if (start != null) {
+				final StringBuilder cycle = new StringBuilder("Cyclic dependency of fields that get new instances: ");
+				for (Edge cycleEdge : stack.subList(start, stack.size())) {
+					cycle.append(getName(cycleEdge.field.getField())).append(" -> ");
+				}
+				errors.add(cycle.append(edge.target.getName()).toString());
+			} else {
+				findCycles(edge.target, stack, onStack, done);
+			}
+			stack.remove(stack.size() - 1);
+		}
+		onStack.remove(clazz);
+		done.add(clazz);
+	}
+
+	/**
+	 * Gets the declared type of an unspecified interface field.
+	 *
+	 * @param injectedField the field
+	 *
+	 * @return the interface, or the list or array of it
+	 */
+	private static String getTypeName(final InjectedField injectedField) {
+		final String name = injectedField.getFieldClass().getName();
+		if (!injectedField.isMultiple()) {
+			return name;
+		}
+		return injectedField.getField().getType().isArray() ? name + "[]" : List.class.getName() + "<" + name + ">";
+	}
+
+	/**
+	 * Gets the name of a field, with its declaring class.
+	 *
+	 * @param field the field
+	 *
+	 * @return the name
+	 */
+	private static String getName(final Field field) {
+		return field.getDeclaringClass().getName() + "." + field.getName();
+	}
+
+	/**
+	 * A field and the class that is instantiated for it.
+	 */
+	private static final class Edge {
+		private final InjectedField field;
+		private final Class<?> target;
+
+		/**
+		 * Instantiates a new edge.
+		 *
+		 * @param field the field
+		 * @param target the class that is instantiated for the field
+		 */
+		private Edge(final InjectedField field, final Class<?> target) {
+			this.field = field;
+			this.target = target;
+		}
+
+		/**
+		 * Checks if the field gets a new instance every time it is injected.
+		 *
+		 * @return true for prototype and pooled fields
+		 */
+		private boolean createsInstance() {
+			return !field.isLazy() && field.getScope() != Scope.SINGLETON;
+		}
+	}
+}
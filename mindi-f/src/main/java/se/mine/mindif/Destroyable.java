@@ -0,0 +1,17 @@
+package se.mine.mindif;
+
+/**
+ * Shutdown hook for the dependencies of a context. The dependency is
+ * destroyed when its context is closed, so that it can release files,
+ * threads or other resources before the class loader of a plugin is
+ * discarded.
+ *
+ * @author Bjorn
+ */
+public interface Destroyable {
+
+	/**
+	 * Releases the resources of the dependency.
+	 */
+	void destroy();
+}
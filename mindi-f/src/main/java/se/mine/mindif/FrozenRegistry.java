@@ -0,0 +1,186 @@
+package se.mine.mindif;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup table for the instances of a frozen context. Every instance
+ * is found by its own class, and by each superclass and interface that no
+ * other instance has. The classes are kept in an open addressing table whose
+ * size is chosen so that there are as few collisions as possible, so a lookup
+ * is a few array reads without locks or allocation. All fields are final,
+ * which publishes the instances safely to every thread.
+ *
+ * @author Bjorn
+ */
+final class FrozenRegistry {
+	private static final Object AMBIGUOUS = new Object();
+	private static final int MAX_TABLE_GROWTH = 8;
+
+	private final Class<?>[] keys;
+	private final Object[] values;
+	private final int mask;
+
+	/**
+	 * Instantiates a new registry from a filled table.
+	 *
+	 * @param keys the classes
+	 * @param values the instance for each class
+	 */
+	private FrozenRegistry(final Class<?>[] keys, final Object[] values) {
+		this.keys = keys;
+		this.values = values;
+		this.mask = keys.length - 1;
+	}
+
+	/**
+	 * Creates a registry for the instances of a context.
+	 *
+	 * @param instances the instances by class
+	 *
+	 * @return the registry
+	 */
+	static FrozenRegistry of(final Map<Class<?>, Object> instances) {
+		final Map<Class<?>, Object> entries = new LinkedHashMap<Class<?>, Object>(instances);
+		for (Object instance : instances.values()) {
+			for (Class<?> supertype : getSupertypes(instance.getClass())) {
+				if (instances.containsKey(supertype)) {
+					continue;
+				}
+				final Object existing = entries.get(supertype);
+				entries.put(supertype, existing == null || existing == instance ? instance : AMBIGUOUS);
+			}
+		}
+		int capacity = 2;
+		while (capacity < entries.size() * 2) {
+			capacity <<= 1;
+		}
+		final int maxCapacity = capacity * MAX_TABLE_GROWTH;
+		while (capacity < maxCapacity && hasCollisions(entries, capacity)) {
+			capacity <<= 1;
+		}
+		final Class<?>[] keys = new Class<?>[capacity];
+		final Object[] values = new Object[capacity];
+		for (Map.Entry<Class<?>, Object> entry : entries.entrySet()) {
+			int index = hash(entry.getKey()) & (capacity - 1);
+			while (keys[index] != null) {
+				index = (index + 1) & (capacity - 1);
+			}
+			keys[index] = entry.getKey();
+			values[index] = entry.getValue();
+		}
+		return new FrozenRegistry(keys, values);
+	}
+
+	/**
+	 * Gets the instance of a class, or the only instance of a superclass or an
+	 * interface.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the instance, or null if there is none
+	 */
+	Object get(final Class<?> clazz) {
+		int index = hash(clazz) & mask;
+		for (Class<?> key = keys[index]; key != null; key = keys[index]) {
+			if (key == clazz) {
+				final Object value = values[index];
+				if (value == AMBIGUOUS) {
+					throw new IllegalArgumentException("More than one instance in the context is a "
+							+ clazz.getName());
+				}
+				return value;
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the instance whose class is exactly the given class.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the instance, or null if there is none
+	 */
+	Object getExact(final Class<?> clazz) {
+		int index = hash(clazz) & mask;
+		for (Class<?> key = keys[index]; key != null; key = keys[index]) {
+			if (key == clazz) {
+				final Object value = values[index];
+				return value != AMBIGUOUS && value.getClass() == clazz ? value : null;
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if two classes would share a slot in a table of a given size.
+	 *
+	 * @param entries the entries of the table
+	 * @param capacity the table size, a power of two
+	 *
+	 * @return true if there is a collision
+	 */
+	private static boolean hasCollisions(final Map<Class<?>, Object> entries, final int capacity) {
+		final boolean[] used = new boolean[capacity];
+		for (Class<?> key : entries.keySet()) {
+			final int index = hash(key) & (capacity - 1);
+			if (used[index]) {
+				return true;
+			}
+			used[index] = true;
+		}
+		return false;
+	}
+
+	/**
+	 * Spreads the identity hash of a class over the low bits.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the hash
+	 */
+	private static int hash(final Class<?> clazz) {
+		final int hash = System.identityHashCode(clazz);
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Gets the superclasses, except java.lang.Object, and all interfaces of a
+	 * class.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the supertypes
+	 */
+	private static List<Class<?>> getSupertypes(final Class<?> clazz) {
+		final List<Class<?>> supertypes = new ArrayList<Class<?>>();
+		for (Class<?> current = clazz; current != null && current != Object.class; current = current
+				.getSuperclass()) {
+			if (current != clazz) {
+				supertypes.add(current);
+			}
+			addInterfaces(supertypes, current);
+		}
+		return supertypes;
+	}
+
+	/**
+	 * Adds the interfaces of a class and their super interfaces.
+	 *
+	 * @param supertypes the list to add to
+	 * @param clazz the class
+	 */
+	private static void addInterfaces(final List<Class<?>> supertypes, final Class<?> clazz) {
+		for (Class<?> interfaceClass : clazz.getInterfaces()) {
+			if (!supertypes.contains(interfaceClass)) {
+				supertypes.add(interfaceClass);
+				addInterfaces(supertypes, interfaceClass);
+			}
+		}
+	}
+}
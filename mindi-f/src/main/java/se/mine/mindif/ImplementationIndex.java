@@ -0,0 +1,167 @@
+package se.mine.mindif;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Interface to implementation mappings read from the index files that the
+ * MinDI F processor writes at build time. The index files of all jars and
+ * directories are read once per class loader. The processor indexes every
+ * concrete class that it compiles, so the index of a jar or directory is
+ * complete for that root, but says nothing about the roots without one.
+ *
+ * @author Bjorn
+ */
+final class ImplementationIndex {
+	private static final LoggerWrapper LOGGER = new LoggerWrapper(ImplementationIndex.class);
+	private static final Map<ClassLoader, ImplementationIndex> INDEXES = Collections
+			.synchronizedMap(new WeakHashMap<ClassLoader, ImplementationIndex>());
+
+	private final Map<String, List<String>> implementationNames = new HashMap<String, List<String>>();
+	private final Set<File> roots = new HashSet<File>();
+
+	/**
+	 * Reads all index files that are visible to a class loader.
+	 *
+	 * @param classLoader the class loader
+	 */
+	private ImplementationIndex(final ClassLoader classLoader) {
+		try {
+			final Enumeration<URL> resources = classLoader.getResources(SubclassLocator.INDEX_RESOURCE);
+			while (resources.hasMoreElements()) {
+				read(resources.nextElement());
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not read " + SubclassLocator.INDEX_RESOURCE, e);
+		}
+	}
+
+	/**
+	 * Gets the index for a class loader.
+	 *
+	 * @param classLoader the class loader
+	 *
+	 * @return the index
+	 */
+	static ImplementationIndex forClassLoader(final ClassLoader classLoader) {
+		synchronized (INDEXES) {
+			ImplementationIndex index = INDEXES.get(classLoader);
+			if (index == null) {
+				index = new ImplementationIndex(classLoader);
+				INDEXES.put(classLoader, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Discards the index of a class loader.
+	 *
+	 * @param classLoader the class loader
+	 */
+	static void invalidate(final ClassLoader classLoader) {
+		INDEXES.remove(classLoader);
+	}
+
+	/**
+	 * Discards the indexes of all class loaders.
+	 */
+	static void invalidateAll() {
+		INDEXES.clear();
+	}
+
+	/**
+	 * Reads one index file.
+	 *
+	 * @param url the url of the index file
+	 */
+	private void read(final URL url) {
+		try {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), "UTF-8"));
+			try {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					final int separator = line.indexOf('=');
+					if (separator > 0) {
+						add(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+					}
+				}
+			} finally {
+				reader.close();
+			}
+			final File root = SubclassLocator.getRoot(url, SubclassLocator.INDEX_RESOURCE);
+			if (root != null) {
+				roots.add(root);
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not read index file {}", url, e);
+		}
+	}
+
+	/**
+	 * Gets the jar files and directories that have an index file.
+	 *
+	 * @return the indexed classpath roots
+	 */
+	Set<File> getRoots() {
+		return Collections.unmodifiableSet(roots);
+	}
+
+	/**
+	 * Adds an implementation of an interface.
+	 *
+	 * @param interfaceName the interface name
+	 * @param implementationName the implementation name
+	 */
+	private void add(final String interfaceName, final String implementationName) {
+		List<String> names = implementationNames.get(interfaceName);
+		if (names == null) {
+			names = new ArrayList<String>();
+			implementationNames.put(interfaceName, names);
+		}
+		if (!names.contains(implementationName)) {
+			names.add(implementationName);
+		}
+	}
+
+	/**
+	 * Gets the indexed implementations of an interface. Entries for classes
+	 * that cannot be loaded are skipped.
+	 *
+	 * @param fieldClass the interface
+	 * @param classLoader loads the implementations
+	 *
+	 * @return the implementations, or null if the interface is not indexed
+	 */
+	List<Class<?>> getImplementations(final Class<?> fieldClass, final ClassLoader classLoader) {
+		final List<String> names = implementationNames.get(fieldClass.getName());
+		if (names == null) {
+			return null;
+		}
+		final List<Class<?>> returnValue = new ArrayList<Class<?>>(names.size());
+		for (String name : names) {
+			try {
+				final Class<?> valueClass = Class.forName(name, false, classLoader);
+				if (fieldClass.isAssignableFrom(valueClass)) {
+					returnValue.add(valueClass);
+				}
+			} catch (ClassNotFoundException e) {
+				LOGGER.debug("Indexed class {} could not be found", name);
+			} catch (LinkageError e) {
+				LOGGER.debug("Indexed class {} could not be loaded", name);
+			}
+		}
+		return returnValue;
+	}
+}
@@ -0,0 +1,64 @@
+package se.mine.mindif;
+
+/**
+ * Receives callbacks about the work that a context does, to find out where
+ * the startup time goes. Listeners are added with
+ * {@link Context#addListener(InjectionListener)}. The callbacks are made on
+ * the thread that does the work, so they should be fast and thread safe. A
+ * context without listeners does not measure anything.
+ * <p>
+ * Extend {@link InjectionListenerAdapter} to implement only some of the
+ * callbacks.
+ *
+ * @author Bjorn
+ */
+public interface InjectionListener {
+
+	/**
+	 * Called when a component has been constructed, before its dependencies
+	 * are injected.
+	 *
+	 * @param componentClass the class of the component
+	 * @param constructionNanos the time the constructor took, in nanoseconds
+	 */
+	void instanceCreated(Class<?> componentClass, long constructionNanos);
+
+	/**
+	 * Called when a shared instance is looked up in the context.
+	 *
+	 * @param componentClass the class of the instance
+	 * @param hit true if the instance already existed, false if it must be
+	 *        created
+	 */
+	void instanceLookup(Class<?> componentClass, boolean hit);
+
+	/**
+	 * Called when the value of a dependency field has been resolved, just
+	 * before it is written to the field. A {@link Provider} field is reported
+	 * when the provider is injected, and again when it resolves its value.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 * @param value the injected value
+	 */
+	void fieldInjected(Class<?> declaringClass, String fieldName, Object value);
+
+	/**
+	 * Called before the classpath is scanned for the implementations of an
+	 * unspecified interface. The scan result is shared by all contexts, so
+	 * only the context that triggers the scan reports it.
+	 *
+	 * @param classLoader the class loader whose classpath is scanned
+	 */
+	void scanStarted(ClassLoader classLoader);
+
+	/**
+	 * Called when a classpath scan has finished.
+	 *
+	 * @param classLoader the class loader whose classpath was scanned
+	 * @param entriesVisited the number of files and jar entries visited
+	 * @param classesLoaded the number of classes loaded to find supertypes
+	 * @param durationNanos the time the scan took, in nanoseconds
+	 */
+	void scanFinished(ClassLoader classLoader, int entriesVisited, int classesLoaded, long durationNanos);
+}
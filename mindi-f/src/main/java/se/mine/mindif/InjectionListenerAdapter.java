@@ -0,0 +1,41 @@
+package se.mine.mindif;
+
+/**
+ * Injection listener with empty callbacks, for listeners that are only
+ * interested in some of them.
+ *
+ * @author Bjorn
+ */
+public abstract class InjectionListenerAdapter implements InjectionListener {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void instanceCreated(final Class<?> componentClass, final long constructionNanos) {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void instanceLookup(final Class<?> componentClass, final boolean hit) {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void fieldInjected(final Class<?> declaringClass, final String fieldName, final Object value) {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void scanStarted(final ClassLoader classLoader) {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void scanFinished(final ClassLoader classLoader, final int entriesVisited, final int classesLoaded,
+			final long durationNanos) {
+	}
+}
@@ -0,0 +1,492 @@
+package se.mine.mindif;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable description of how dependencies are injected into a component
+ * class. The plan is resolved once per class, with accessibility already
+ * granted, and shared by all contexts. Plans are attached to their class with
+ * a class value, so they do not keep the class loader of a plugin alive.
+ *
+ * @author Bjorn
+ */
+final class InjectionPlan {
+	private static final Map<Class<?>, String[]> PREPARED_FIELD_NAMES = Collections
+			.synchronizedMap(new WeakHashMap<Class<?>, String[]>());
+	private static final ClassValue<InjectionPlan> PLANS = new ClassValue<InjectionPlan>() {
+		@Override
+		protected InjectionPlan computeValue(final Class<?> componentClass) {
+			final String[] fieldNames = PREPARED_FIELD_NAMES.remove(componentClass);
+			return new InjectionPlan(componentClass, fieldNames != null ? findFields(componentClass, fieldNames)
+					: null);
+		}
+	};
+	private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Class<?> componentClass;
+	private final ComponentInjector<Object> generatedInjector;
+	private volatile InjectedField[] fields;
+	private volatile Constructor<?> constructor;
+	private volatile MethodHandle constructorHandle;
+
+	/**
+	 * Instantiates a new injection plan with fields that are already known.
+	 *
+	 * @param componentClass the component class
+	 * @param fields the fields, or null to discover them
+	 */
+	private InjectionPlan(final Class<?> componentClass, final InjectedField[] fields) {
+		this.componentClass = componentClass;
+		this.generatedInjector = findGeneratedInjector(componentClass);
+		if (generatedInjector == null) {
+			this.fields = fields != null ? fields : resolveFields(componentClass);
+		}
+	}
+
+	/**
+	 * Gets the plan for a component class. The plan is created the first time a
+	 * class is requested.
+	 *
+	 * @param componentClass the component class
+	 *
+	 * @return the injection plan
+	 */
+	static InjectionPlan forClass(final Class<?> componentClass) {
+		return PLANS.get(componentClass);
+	}
+
+	/**
+	 * Creates the plan for a component class from the names of its dependency
+	 * fields, which were recorded by an earlier run. Looking up the named
+	 * fields is cheaper than going through all fields of the class hierarchy.
+	 * Nothing is done if the class already has a plan, and the fields are
+	 * discovered as usual if a name does not match a dependency field.
+	 *
+	 * @param componentClass the component class
+	 * @param fieldNames the fields, as declaring class name and field name
+	 *        separated by <code>#</code>, superclass fields first
+	 */
+	static void prepare(final Class<?> componentClass, final String[] fieldNames) {
+		PREPARED_FIELD_NAMES.put(componentClass, fieldNames);
+		PLANS.get(componentClass);
+		PREPARED_FIELD_NAMES.remove(componentClass);
+	}
+
+	/**
+	 * Looks up named dependency fields in a class hierarchy.
+	 *
+	 * @param componentClass the component class
+	 * @param fieldNames the fields, as declaring class name and field name
+	 *        separated by <code>#</code>
+	 *
+	 * @return the fields, or null if a name does not match a dependency field
+	 */
+	private static InjectedField[] findFields(final Class<?> componentClass, final String[] fieldNames) {
+		final InjectedField[] returnValue = new InjectedField[fieldNames.length];
+		for (int i = 0; i < fieldNames.length; i++) {
+			final int separator = fieldNames[i].lastIndexOf('#');
+			final String declaringClassName = fieldNames[i].substring(0, Math.max(separator, 0));
+			Class<?> declaringClass = componentClass;
+			while (declaringClass != null && !declaringClass.getName().equals(declaringClassName)) {
+				declaringClass = declaringClass.getSuperclass();
+			}
+			if (declaringClass == null) {
+				return null;
+			}
+			try {
+				final Field field = declaringClass.getDeclaredField(fieldNames[i].substring(separator + 1));
+				if (!field.isAnnotationPresent(Dependency.class)) {
+					return null;
+				}
+				returnValue[i] = new InjectedField(field);
+			} catch (NoSuchFieldException e) {
+				return null;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Finds the injector generated at compile time for a class.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the generated injector, or null if the class has none
+	 */
+	@SuppressWarnings("unchecked")
+	private static ComponentInjector<Object> findGeneratedInjector(final Class<?> clazz) {
+		final ClassLoader classLoader = clazz.getClassLoader();
+		if (classLoader == null) {
+			return null;
+		}
+		try {
+			final Class<?> injectorClass = Class.forName(clazz.getName() + ComponentInjector.SUFFIX, true, classLoader);
+			return (ComponentInjector<Object>) injectorClass.getDeclaredConstructor().newInstance();
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot create generated injector for " + clazz.getName(), e);
+		}
+	}
+
+	/**
+	 * Resolves the dependency fields of a class.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the fields, superclass fields first
+	 */
+	private static InjectedField[] resolveFields(final Class<?> clazz) {
+		final List<InjectedField> fieldList = new ArrayList<InjectedField>();
+		addFields(fieldList, clazz);
+		return fieldList.toArray(new InjectedField[fieldList.size()]);
+	}
+
+	/**
+	 * Adds the dependency fields of a class, superclass fields first.
+	 *
+	 * @param fieldList the list to add to
+	 * @param clazz the class
+	 */
+	private static void addFields(final List<InjectedField> fieldList, final Class<?> clazz) {
+		if (clazz == null || clazz == Object.class) {
+			return;
+		}
+		addFields(fieldList, clazz.getSuperclass());
+		final Field[] declaredFields = clazz.getDeclaredFields();
+		for (Field field : declaredFields) {
+			if (field.isAnnotationPresent(Dependency.class)) {
+				fieldList.add(new InjectedField(field));
+			}
+		}
+	}
+
+	/**
+	 * Gets the component class.
+	 *
+	 * @return the component class
+	 */
+	Class<?> getComponentClass() {
+		return componentClass;
+	}
+
+	/**
+	 * Gets the injector that was generated at compile time for the component
+	 * class.
+	 *
+	 * @return the generated injector, or null if the class has none
+	 */
+	ComponentInjector<Object> getGeneratedInjector() {
+		return generatedInjector;
+	}
+
+	/**
+	 * Gets the fields that should be injected. The array must not be modified.
+	 * For classes with a generated injector the fields are resolved the first
+	 * time they are requested.
+	 *
+	 * @return the fields
+	 */
+	InjectedField[] getFields() {
+		InjectedField[] result = fields;
+		if (result == null) {
+			result = resolveFields(componentClass);
+			fields = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Gets a dependency field of the component class or one of its
+	 * superclasses.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 *
+	 * @return the field, or null if there is no such dependency field
+	 */
+	InjectedField getField(final Class<?> declaringClass, final String fieldName) {
+		for (InjectedField injectedField : getFields()) {
+			final Field field = injectedField.getField();
+			if (field.getDeclaringClass() == declaringClass && field.getName().equals(fieldName)) {
+				return injectedField;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the accessible no-arg constructor of the component class. The
+	 * constructor is looked up the first time it is needed.
+	 *
+	 * @return the constructor
+	 *
+	 * @throws NoSuchMethodException if the class has no no-arg constructor
+	 */
+	Constructor<?> getConstructor() throws NoSuchMethodException {
+		Constructor<?> result = constructor;
+		if (result == null) {
+			result = componentClass.getDeclaredConstructor();
+			result.setAccessible(true);
+			constructor = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Gets a method handle for the no-arg constructor, with the type
+	 * <code>()Object</code>. The handle is bound the first time it is needed.
+	 *
+	 * @return the constructor handle
+	 *
+	 * @throws ReflectiveOperationException if the class cannot be instantiated
+	 */
+	MethodHandle getConstructorHandle() throws ReflectiveOperationException {
+		MethodHandle result = constructorHandle;
+		if (result == null) {
+			if (Modifier.isAbstract(componentClass.getModifiers())) {
+				throw new InstantiationException(componentClass.getName());
+			}
+			result = MethodHandles.lookup().unreflectConstructor(getConstructor()).asType(FACTORY_TYPE);
+			constructorHandle = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Checks if a context can instantiate a class, from its metadata and
+	 * without running the constructor.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return why the class cannot be instantiated, or null if it can
+	 */
+	static String getInstantiationProblem(final Class<?> clazz) {
+		if (clazz.isInterface()) {
+			return "is an interface";
+		}
+		if (Modifier.isAbstract(clazz.getModifiers())) {
+			return "is abstract";
+		}
+		try {
+			clazz.getDeclaredConstructor();
+			return null;
+		} catch (NoSuchMethodException e) {
+			return "has no no-arg constructor";
+		} catch (LinkageError e) {
+			return "cannot be loaded: " + e;
+		}
+	}
+
+	/**
+	 * A field annotated with {@link Dependency}, with the implementing class
+	 * resolved from the annotation. For a {@link Provider} field the classes
+	 * refer to the provided type, and for a <code>List</code> or array field
+	 * that gets all implementations they refer to the element type.
+	 */
+	static final class InjectedField {
+		private final Field field;
+		private final Class<?> fieldClass;
+		private final Class<?> implementingClass;
+		private final boolean lazy;
+		private final boolean multiple;
+		private final Scope scope;
+		private final String[] scanPackages;
+		private volatile MethodHandle setterHandle;
+
+		/**
+		 * Instantiates a new injected field.
+		 *
+		 * @param field the field
+		 */
+		private InjectedField(final Field field) {
+			this.field = field;
+			final Dependency dependency = field.getAnnotation(Dependency.class);
+			final Class<?> dependencyValue = dependency.value();
+			final Class<?> type = field.getType();
+			this.lazy = type == Provider.class;
+			this.multiple = dependencyValue.equals(Dependency.Nothing.class)
+					&& (type == List.class || type.isArray() && !type.getComponentType().isPrimitive());
+			if (lazy) {
+				this.fieldClass = getProvidedClass(field);
+			} else if (multiple) {
+				this.fieldClass = type.isArray() ? type.getComponentType() : getElementClass(field);
+			} else {
+				this.fieldClass = type;
+			}
+			this.scope = dependency.scope();
+			this.scanPackages = dependency.scan();
+			if (lazy && scope != Scope.SINGLETON) {
+				throw new IllegalArgumentException("Provider field " + field.getName() + " in class "
+						+ field.getDeclaringClass().getName() + " must have singleton scope");
+			}
+			if (multiple && scope != Scope.SINGLETON) {
+				throw new IllegalArgumentException("List or array field " + field.getName() + " in class "
+						+ field.getDeclaringClass().getName() + " must have singleton scope");
+			}
+			if (multiple) {
+				this.implementingClass = null;
+			} else if (!dependencyValue.equals(Dependency.Nothing.class)) {
+				if (!fieldClass.isAssignableFrom(dependencyValue)) {
+					throw new IllegalArgumentException(dependencyValue.getName() + " is not a subclass of "
+							+ fieldClass.getName());
+				}
+				this.implementingClass = dependencyValue;
+			} else if (fieldClass.isInterface()) {
+				this.implementingClass = null;
+			} else {
+				this.implementingClass = fieldClass;
+			}
+			field.setAccessible(true);
+		}
+
+		/**
+		 * Gets the type argument of a provider field.
+		 *
+		 * @param field the provider field
+		 *
+		 * @return the provided class
+		 */
+		private static Class<?> getProvidedClass(final Field field) {
+			final Type genericType = field.getGenericType();
+			if (genericType instanceof ParameterizedType) {
+				Type providedType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+				if (providedType instanceof ParameterizedType) {
+					providedType = ((ParameterizedType) providedType).getRawType();
+				}
+				if (providedType instanceof Class<?>) {
+					return (Class<?>) providedType;
+				}
+			}
+			throw new IllegalArgumentException("Provider field " + field.getName() + " in class "
+					+ field.getDeclaringClass().getName() + " must declare the provided class");
+		}
+
+		/**
+		 * Gets the type argument of a list field.
+		 *
+		 * @param field the list field
+		 *
+		 * @return the element class
+		 */
+		private static Class<?> getElementClass(final Field field) {
+			final Type genericType = field.getGenericType();
+			if (genericType instanceof ParameterizedType) {
+				Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+				if (elementType instanceof ParameterizedType) {
+					elementType = ((ParameterizedType) elementType).getRawType();
+				}
+				if (elementType instanceof Class<?>) {
+					return (Class<?>) elementType;
+				}
+			}
+			throw new IllegalArgumentException("List field " + field.getName() + " in class "
+					+ field.getDeclaringClass().getName() + " must declare the element class");
+		}
+
+		/**
+		 * Gets the field, which is already accessible.
+		 *
+		 * @return the field
+		 */
+		Field getField() {
+			return field;
+		}
+
+		/**
+		 * Gets the declared type of the field, the provided type for a
+		 * {@link Provider} field, or the element type for a list or array field.
+		 *
+		 * @return the field class
+		 */
+		Class<?> getFieldClass() {
+			return fieldClass;
+		}
+
+		/**
+		 * Gets the class that should be instantiated for the field.
+		 *
+		 * @return the implementing class, or null if the field is an unspecified
+		 *         interface or gets all implementations
+		 */
+		Class<?> getImplementingClass() {
+			return implementingClass;
+		}
+
+		/**
+		 * Checks whether the field is a <code>List</code> or an array without an
+		 * implementing class, which gets all implementations of the element
+		 * type.
+		 *
+		 * @return true if the field gets all implementations
+		 */
+		boolean isMultiple() {
+			return multiple;
+		}
+
+		/**
+		 * Checks whether the field is a {@link Provider} that should get a lazy
+		 * dependency.
+		 *
+		 * @return true if the field is a provider
+		 */
+		boolean isLazy() {
+			return lazy;
+		}
+
+		/**
+		 * Gets the scope of the dependency.
+		 *
+		 * @return the scope
+		 */
+		Scope getScope() {
+			return scope;
+		}
+
+		/**
+		 * Gets the packages that are scanned for the implementation of an
+		 * unspecified interface.
+		 *
+		 * @return the package names, or an empty array to use the scan scope of
+		 *         the context
+		 */
+		String[] getScanPackages() {
+			return scanPackages;
+		}
+
+		/**
+		 * Gets a method handle that writes the field, with the type
+		 * <code>(Object component, Object value)void</code>. The handle is bound
+		 * the first time it is needed.
+		 *
+		 * @return the setter handle
+		 *
+		 * @throws IllegalAccessException if the field cannot be modified
+		 */
+		MethodHandle getSetterHandle() throws IllegalAccessException {
+			MethodHandle result = setterHandle;
+			if (result == null) {
+				result = MethodHandles.lookup().unreflectSetter(field);
+				if (Modifier.isStatic(field.getModifiers())) {
+					result = MethodHandles.dropArguments(result, 0, Object.class);
+				}
+				result = result.asType(SETTER_TYPE);
+				setterHandle = result;
+			}
+			return result;
+		}
+	}
+}
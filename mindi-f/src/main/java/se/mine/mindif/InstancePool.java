@@ -0,0 +1,94 @@
+package se.mine.mindif;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free pool of component instances. The instances are kept in a
+ * fixed array of slots that are taken and filled with atomic operations, so
+ * borrowing and releasing never block and never allocate.
+ *
+ * @author Bjorn
+ */
+final class InstancePool {
+	private final AtomicReferenceArray<Object> slots;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Instantiates a new instance pool.
+	 *
+	 * @param capacity the maximum number of instances in the pool
+	 */
+	InstancePool(final int capacity) {
+		this.slots = new AtomicReferenceArray<Object>(capacity);
+	}
+
+	/**
+	 * Takes an instance from the pool.
+	 *
+	 * @return the instance, or null if the pool is empty
+	 */
+	Object borrow() {
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.get(i) != null) {
+				final Object instance = slots.getAndSet(i, null);
+				if (instance != null) {
+					hits.incrementAndGet();
+					return instance;
+				}
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Puts an instance in the pool.
+	 *
+	 * @param instance the instance
+	 *
+	 * @return false if the pool was full and the instance was discarded
+	 */
+	boolean release(final Object instance) {
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.get(i) == null && slots.compareAndSet(i, null, instance)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Takes all instances out of the pool.
+	 *
+	 * @return the instances that were in the pool
+	 */
+	List<Object> drain() {
+		final List<Object> returnValue = new ArrayList<Object>();
+		for (int i = 0; i < slots.length(); i++) {
+			final Object instance = slots.getAndSet(i, null);
+			if (instance != null) {
+				returnValue.add(instance);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the current usage of the pool.
+	 *
+	 * @return the statistics
+	 */
+	PoolStatistics getStatistics() {
+		int size = 0;
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.get(i) != null) {
+				size++;
+			}
+		}
+		return new PoolStatistics(hits.get(), misses.get(), size, slots.length());
+	}
+}
@@ -0,0 +1,80 @@
+package se.mine.mindif;
+
+/**
+ * Snapshot of the instances that a context keeps, for tuning the reference
+ * policies and the maximum weight.
+ *
+ * @author Bjorn
+ */
+public final class InstanceStatistics {
+	private final int instanceCount;
+	private final long weight;
+	private final long maximumWeight;
+	private final long evictionCount;
+
+	/**
+	 * Instantiates new instance statistics.
+	 *
+	 * @param instanceCount the number of instances in the context
+	 * @param weight the total weight of the bounded instances
+	 * @param maximumWeight the maximum weight of the bounded instances
+	 * @param evictionCount the number of instances that have been evicted
+	 */
+	InstanceStatistics(final int instanceCount, final long weight, final long maximumWeight,
+			final long evictionCount) {
+		this.instanceCount = instanceCount;
+		this.weight = weight;
+		this.maximumWeight = maximumWeight;
+		this.evictionCount = evictionCount;
+	}
+
+	/**
+	 * Gets the number of instances that the context keeps, whatever their
+	 * reference policy is.
+	 *
+	 * @return the number of instances
+	 */
+	public int getInstanceCount() {
+		return instanceCount;
+	}
+
+	/**
+	 * Gets the total weight of the instances with the bounded reference
+	 * policy.
+	 *
+	 * @return the weight
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Gets the maximum total weight of the instances with the bounded
+	 * reference policy.
+	 *
+	 * @return the maximum weight
+	 */
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	/**
+	 * Gets the number of instances that the context has dropped, because they
+	 * were the least recently used bounded instances or because the garbage
+	 * collector cleared their soft or weak references.
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "InstanceStatistics[instances=" + instanceCount + ", weight=" + weight + ", maximumWeight="
+				+ maximumWeight + ", evictions=" + evictionCount + "]";
+	}
+}
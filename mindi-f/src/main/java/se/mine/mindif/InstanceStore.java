@@ -0,0 +1,440 @@
+package se.mine.mindif;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The instances of a context, kept according to the reference policy of
+ * their class. Strongly kept instances are in a plain concurrent map, so a
+ * context that only uses the default policy looks instances up exactly as
+ * before. Soft and weak instances are kept in references that are dropped
+ * when the garbage collector clears them. Bounded instances are kept in least
+ * recently used order and the oldest ones are evicted when their total weight
+ * is above the maximum. Destroyable instances are always kept strongly,
+ * since an instance that is evicted or collected cannot be destroyed when the
+ * context is closed.
+ * <p>
+ * The maps are created when the first instance is added, and the soft, weak
+ * and bounded ones only when the first such instance is added, so that a
+ * child context that only reads from its parent allocates nothing.
+ *
+ * @author Bjorn
+ */
+final class InstanceStore {
+	private final InstanceStore parent;
+	private volatile ConcurrentHashMap<Class<?>, Object> strongInstances;
+	private volatile Set<Class<?>> addedClasses;
+	private volatile ConcurrentHashMap<Class<?>, ReferencePolicy> policies;
+	private ConcurrentHashMap<Class<?>, InstanceReference> references;
+	private LinkedHashMap<Class<?>, BoundedInstance> boundedInstances;
+	private ReferenceQueue<Object> referenceQueue;
+	private final AtomicLong evictions = new AtomicLong();
+	private volatile ReferencePolicy defaultPolicy;
+	private volatile boolean evictable;
+	private long weight;
+	private long maximumWeight;
+	private InstanceWeigher weigher;
+
+	/**
+	 * Instantiates a new instance store where every instance is kept strongly.
+	 */
+	InstanceStore() {
+		this.parent = null;
+		this.defaultPolicy = ReferencePolicy.STRONG;
+		this.maximumWeight = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Instantiates a new instance store for a child context, with the maximum
+	 * weight of the parent store. The reference policies are read from the
+	 * parent store until the child sets its own, and the instances of the
+	 * parent are not copied.
+	 *
+	 * @param parent the store of the parent context
+	 */
+	InstanceStore(final InstanceStore parent) {
+		this.parent = parent;
+		synchronized (parent) {
+			this.maximumWeight = parent.maximumWeight;
+			this.weigher = parent.weigher;
+		}
+	}
+
+	/**
+	 * Sets the reference policy for the classes that have no policy of their
+	 * own.
+	 *
+	 * @param policy the policy
+	 */
+	void setDefaultPolicy(final ReferencePolicy policy) {
+		this.defaultPolicy = checkPolicy(policy);
+	}
+
+	/**
+	 * Sets the reference policy for a class.
+	 *
+	 * @param clazz the class
+	 * @param policy the policy
+	 */
+	void setPolicy(final Class<?> clazz, final ReferencePolicy policy) {
+		if (policy != ReferencePolicy.STRONG && Destroyable.class.isAssignableFrom(clazz)) {
+			throw new IllegalArgumentException("Destroyable class " + clazz.getName()
+					+ " must be kept with the STRONG reference policy");
+		}
+		checkPolicy(policy);
+		synchronized (this) {
+			if (policies == null) {
+				policies = new ConcurrentHashMap<Class<?>, ReferencePolicy>();
+			}
+			policies.put(clazz, policy);
+		}
+	}
+
+	/**
+	 * Gets the reference policy of a class. A policy that is set for the class
+	 * in this store or in a parent store wins over the default policies.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the policy
+	 */
+	private ReferencePolicy getPolicy(final Class<?> clazz) {
+		for (InstanceStore store = this; store != null; store = store.parent) {
+			final Map<Class<?>, ReferencePolicy> storePolicies = store.policies;
+			final ReferencePolicy policy = storePolicies != null ? storePolicies.get(clazz) : null;
+			if (policy != null) {
+				return policy;
+			}
+		}
+		for (InstanceStore store = this; store != null; store = store.parent) {
+			final ReferencePolicy policy = store.defaultPolicy;
+			if (policy != null) {
+				return policy;
+			}
+		}
+		return ReferencePolicy.STRONG;
+	}
+
+	/**
+	 * Checks that there is a policy.
+	 *
+	 * @param policy the policy
+	 *
+	 * @return the policy
+	 */
+	private static ReferencePolicy checkPolicy(final ReferencePolicy policy) {
+		if (policy == null) {
+			throw new IllegalArgumentException("Reference policy must not be null");
+		}
+		return policy;
+	}
+
+	/**
+	 * Sets the maximum total weight of the bounded instances, and evicts the
+	 * least recently used ones until they fit.
+	 *
+	 * @param maximum the maximum weight
+	 * @param instanceWeigher weighs the instances, or null to count them
+	 */
+	synchronized void setMaximumWeight(final long maximum, final InstanceWeigher instanceWeigher) {
+		if (maximum < 0) {
+			throw new IllegalArgumentException("Maximum weight must not be negative");
+		}
+		this.maximumWeight = maximum;
+		this.weigher = instanceWeigher;
+		weight = 0;
+		if (boundedInstances != null) {
+			for (BoundedInstance boundedInstance : boundedInstances.values()) {
+				boundedInstance.weight = weigh(boundedInstance.instance);
+				weight += boundedInstance.weight;
+			}
+			evictBounded(null);
+		}
+	}
+
+	/**
+	 * Gets the instance of a class.
+	 *
+	 * @param clazz the class
+	 *
+	 * @return the instance, or null if the store does not keep one
+	 */
+	Object get(final Class<?> clazz) {
+		final Map<Class<?>, Object> strong = strongInstances;
+		final Object instance = strong != null ? strong.get(clazz) : null;
+		if (instance != null || !evictable) {
+			return instance;
+		}
+		expungeClearedReferences();
+		final InstanceReference reference = references.get(clazz);
+		if (reference != null) {
+			final Object referent = reference.get();
+			if (referent == null && references.remove(clazz, reference)) {
+				evictions.incrementAndGet();
+			}
+			return referent;
+		}
+		synchronized (this) {
+			final BoundedInstance boundedInstance = boundedInstances.get(clazz);
+			return boundedInstance != null ? boundedInstance.instance : null;
+		}
+	}
+
+	/**
+	 * Adds the instance of a class, which is kept according to the reference
+	 * policy of the class, or strongly if it is destroyable.
+	 *
+	 * @param clazz the class
+	 * @param instance the instance
+	 */
+	void put(final Class<?> clazz, final Object instance) {
+		final ReferencePolicy policy = getPolicy(clazz);
+		if (addedClasses == null) {
+			createMaps();
+		}
+		addedClasses.add(clazz);
+		if (policy == ReferencePolicy.STRONG || instance instanceof Destroyable) {
+			strongInstances.put(clazz, instance);
+			return;
+		}
+		if (!evictable) {
+			createEvictableMaps();
+		}
+		expungeClearedReferences();
+		if (policy == ReferencePolicy.BOUNDED) {
+			synchronized (this) {
+				final BoundedInstance boundedInstance = new BoundedInstance(instance, weigh(instance));
+				final BoundedInstance previous = boundedInstances.put(clazz, boundedInstance);
+				if (previous != null) {
+					weight -= previous.weight;
+				}
+				weight += boundedInstance.weight;
+				evictBounded(clazz);
+			}
+		} else {
+			references.put(clazz, new InstanceReference(clazz, instance, policy == ReferencePolicy.SOFT,
+					referenceQueue));
+		}
+	}
+
+	/**
+	 * Creates the maps of the strongly kept instances and of the order that
+	 * instances were added in.
+	 */
+	private synchronized void createMaps() {
+		if (addedClasses == null) {
+			strongInstances = new ConcurrentHashMap<Class<?>, Object>();
+			addedClasses = Collections.synchronizedSet(new LinkedHashSet<Class<?>>());
+		}
+	}
+
+	/**
+	 * Creates the maps of the soft, weak and bounded instances, which are only
+	 * read once the store is evictable.
+	 */
+	private synchronized void createEvictableMaps() {
+		if (!evictable) {
+			references = new ConcurrentHashMap<Class<?>, InstanceReference>();
+			boundedInstances = new LinkedHashMap<Class<?>, BoundedInstance>(16, 0.75f, true);
+			referenceQueue = new ReferenceQueue<Object>();
+			evictable = true;
+		}
+	}
+
+	/**
+	 * Evicts the least recently used bounded instances until the total weight
+	 * is within the maximum. The instance that was just added is kept, even if
+	 * it is heavier than the maximum on its own.
+	 *
+	 * @param addedClass the class of the instance that was just added, or null
+	 */
+	private void evictBounded(final Class<?> addedClass) {
+		final Iterator<Map.Entry<Class<?>, BoundedInstance>> iterator = boundedInstances.entrySet().iterator();
+		while (weight > maximumWeight && iterator.hasNext()) {
+			final Map.Entry<Class<?>, BoundedInstance> entry = iterator.next();
+			if (entry.getKey() != addedClass) {
+				iterator.remove();
+				weight -= entry.getValue().weight;
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Gets the weight of a bounded instance.
+	 *
+	 * @param instance the instance
+	 *
+	 * @return the weight
+	 */
+	private long weigh(final Object instance) {
+		if (weigher == null) {
+			return 1;
+		}
+		final long instanceWeight = weigher.weigh(instance);
+		if (instanceWeight < 0) {
+			throw new IllegalStateException("Negative weight for an instance of " + instance.getClass().getName());
+		}
+		return instanceWeight;
+	}
+
+	/**
+	 * Drops the references that the garbage collector has cleared.
+	 */
+	private void expungeClearedReferences() {
+		for (Reference<?> reference = referenceQueue.poll(); reference != null; reference = referenceQueue.poll()) {
+			final InstanceReference instanceReference = (InstanceReference) reference;
+			if (references.remove(instanceReference.clazz, instanceReference)) {
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Gets all instances that the store keeps.
+	 *
+	 * @return the instances by class
+	 */
+	Map<Class<?>, Object> snapshot() {
+		final Map<Class<?>, Object> strong = strongInstances;
+		if (strong == null) {
+			return new LinkedHashMap<Class<?>, Object>();
+		}
+		final Map<Class<?>, Object> returnValue = new LinkedHashMap<Class<?>, Object>(strong);
+		if (!evictable) {
+			return returnValue;
+		}
+		expungeClearedReferences();
+		for (Map.Entry<Class<?>, InstanceReference> entry : references.entrySet()) {
+			final Object instance = entry.getValue().get();
+			if (instance != null) {
+				returnValue.put(entry.getKey(), instance);
+			}
+		}
+		synchronized (this) {
+			for (Map.Entry<Class<?>, BoundedInstance> entry : boundedInstances.entrySet()) {
+				returnValue.put(entry.getKey(), entry.getValue().instance);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets all instances that the store keeps.
+	 *
+	 * @return the instances
+	 */
+	List<Object> values() {
+		final Map<Class<?>, Object> strong = strongInstances;
+		if (strong == null) {
+			return new ArrayList<Object>();
+		}
+		if (!evictable) {
+			return new ArrayList<Object>(strong.values());
+		}
+		return new ArrayList<Object>(snapshot().values());
+	}
+
+	/**
+	 * Removes all instances from the store.
+	 *
+	 * @return the instances that were kept, the most recently added first
+	 */
+	List<Object> clear() {
+		final Map<Class<?>, Object> instances = snapshot();
+		final Set<Class<?>> added = addedClasses;
+		if (added == null) {
+			return new ArrayList<Object>();
+		}
+		final List<Class<?>> classes;
+		synchronized (added) {
+			classes = new ArrayList<Class<?>>(added);
+			added.clear();
+		}
+		final List<Object> returnValue = new ArrayList<Object>(instances.size());
+		for (int i = classes.size() - 1; i >= 0; i--) {
+			final Object instance = instances.get(classes.get(i));
+			if (instance != null) {
+				returnValue.add(instance);
+			}
+		}
+		strongInstances.clear();
+		if (evictable) {
+			references.clear();
+			synchronized (this) {
+				boundedInstances.clear();
+				weight = 0;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the current size and the evictions of the store.
+	 *
+	 * @return the statistics
+	 */
+	InstanceStatistics getStatistics() {
+		final int instanceCount = snapshot().size();
+		synchronized (this) {
+			return new InstanceStatistics(instanceCount, weight, maximumWeight, evictions.get());
+		}
+	}
+
+	/**
+	 * An instance with the bounded reference policy, and the weight it was
+	 * added with.
+	 */
+	private static final class BoundedInstance {
+		private final Object instance;
+		private long weight;
+
+		/**
+		 * Instantiates a new bounded instance.
+		 *
+		 * @param instance the instance
+		 * @param weight the weight
+		 */
+		private BoundedInstance(final Object instance, final long weight) {
+			this.instance = instance;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * Soft or weak reference to an instance, which knows its class so that it
+	 * can be dropped from the store when it is cleared.
+	 */
+	private static final class InstanceReference extends WeakReference<Object> {
+		private final Class<?> clazz;
+		private final SoftReference<Object> softReference;
+
+		/**
+		 * Instantiates a new instance reference.
+		 *
+		 * @param clazz the class of the instance
+		 * @param instance the instance
+		 * @param soft true if the instance is kept until memory is needed
+		 * @param queue is told when the instance is collected
+		 */
+		private InstanceReference(final Class<?> clazz, final Object instance, final boolean soft,
+				final ReferenceQueue<Object> queue) {
+			super(instance, queue);
+			this.clazz = clazz;
+			// Keeps a soft instance reachable until memory is needed
+			this.softReference = soft ? new SoftReference<Object>(instance) : null;
+		}
+	}
+}
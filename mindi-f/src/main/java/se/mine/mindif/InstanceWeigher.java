@@ -0,0 +1,20 @@
+package se.mine.mindif;
+
+/**
+ * Gives the weight of an instance with a bounded reference policy, such as
+ * its estimated size in bytes. The weight is taken once, when the instance is
+ * added to the context.
+ *
+ * @author Bjorn
+ */
+public interface InstanceWeigher {
+
+	/**
+	 * Gets the weight of an instance.
+	 *
+	 * @param instance the instance
+	 *
+	 * @return the weight, zero or more
+	 */
+	long weigh(Object instance);
+}
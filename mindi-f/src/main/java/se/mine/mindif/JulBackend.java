@@ -0,0 +1,53 @@
+package se.mine.mindif;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs to java.util.logging, which is used when slf4j is not on the
+ * classpath. Debug messages are logged as {@link Level#FINE}.
+ *
+ * @author Bjorn
+ */
+final class JulBackend implements LogBackend {
+	private final Logger logger;
+	private final String sourceClassName;
+
+	/**
+	 * Instantiates a new java.util.logging backend.
+	 *
+	 * @param classToBeLogged the class to be logged
+	 */
+	JulBackend(final Class<?> classToBeLogged) {
+		sourceClassName = classToBeLogged.getName();
+		logger = Logger.getLogger(sourceClassName);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isDebugEnabled() {
+		return logger.isLoggable(Level.FINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isInfoEnabled() {
+		return logger.isLoggable(Level.INFO);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void debug(final String msg, final Throwable exception) {
+		logger.logp(Level.FINE, sourceClassName, null, msg, exception);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void info(final String msg, final Throwable exception) {
+		logger.logp(Level.INFO, sourceClassName, null, msg, exception);
+	}
+}
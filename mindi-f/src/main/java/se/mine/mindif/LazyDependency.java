@@ -0,0 +1,64 @@
+package se.mine.mindif;
+
+/**
+ * Provider that resolves its dependency on the first call to {@link #get()}.
+ * Concurrent first calls are serialized, after that the dependency is read
+ * without locking.
+ *
+ * @param <T> the type of the dependency
+ *
+ * @author Bjorn
+ */
+final class LazyDependency<T> implements Provider<T> {
+	private final ComponentInjector.Resolver resolver;
+	private final Class<?> declaringClass;
+	private final String fieldName;
+	private final Class<?> providedClass;
+	private final Class<?> implementingClass;
+	private volatile T instance;
+
+	/**
+	 * Instantiates a new lazy dependency.
+	 *
+	 * @param resolver creates the dependency
+	 * @param declaringClass the class that declares the provider field
+	 * @param fieldName the name of the provider field
+	 * @param providedClass the type of the dependency
+	 * @param implementingClass the class to instantiate, or null if the
+	 *        dependency is an unspecified interface
+	 */
+	LazyDependency(final ComponentInjector.Resolver resolver, final Class<?> declaringClass, final String fieldName,
+			final Class<?> providedClass, final Class<?> implementingClass) {
+		this.resolver = resolver;
+		this.declaringClass = declaringClass;
+		this.fieldName = fieldName;
+		this.providedClass = providedClass;
+		this.implementingClass = implementingClass;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	public T get() {
+		T result = instance;
+		if (result == null) {
+			synchronized (this) {
+				result = instance;
+				if (result == null) {
+					result = (T) resolver.resolve(declaringClass, fieldName, providedClass, implementingClass);
+					instance = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "Provider<" + providedClass.getName() + ">" + (instance == null ? " (not created)" : "");
+	}
+}
@@ -0,0 +1,112 @@
+package se.mine.mindif;
+
+import java.util.List;
+
+/**
+ * Forwards the callbacks to several listeners, in the order they were added.
+ *
+ * @author Bjorn
+ */
+final class ListenerChain implements InjectionListener {
+	private final InjectionListener[] listeners;
+
+	/**
+	 * Instantiates a new listener chain.
+	 *
+	 * @param listeners the listeners
+	 */
+	private ListenerChain(final InjectionListener[] listeners) {
+		this.listeners = listeners;
+	}
+
+	/**
+	 * Combines listeners into one.
+	 *
+	 * @param listeners the listeners
+	 *
+	 * @return null if there are no listeners, the listener if there is only
+	 *         one, otherwise a chain of all listeners
+	 */
+	static InjectionListener of(final List<InjectionListener> listeners) {
+		final InjectionListener[] array = listeners.toArray(new InjectionListener[listeners.size()]);
+		if (array.length == 0) {
+			return null;
+		}
+		if (array.length == 1) {
+			return array[0];
+		}
+		return new ListenerChain(array);
+	}
+
+	/**
+	 * Combines the listener of a parent context with the listener of a child
+	 * context.
+	 *
+	 * @param parentListener the listener of the parent context
+	 * @param childListener the listener of the child context
+	 *
+	 * @return a chain of both listeners
+	 */
+	static ListenerChain of(final InjectionListener parentListener, final InjectionListener childListener) {
+		return new ListenerChain(new InjectionListener[] { parentListener, childListener });
+	}
+
+	/**
+	 * Checks if this chain combines the listener of a parent context with the
+	 * listener of a child context.
+	 *
+	 * @param parentListener the listener of the parent context
+	 * @param childListener the listener of the child context
+	 *
+	 * @return true if this chain calls exactly these listeners
+	 */
+	boolean combines(final InjectionListener parentListener, final InjectionListener childListener) {
+		return listeners.length == 2 && listeners[0] == parentListener && listeners[1] == childListener;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void instanceCreated(final Class<?> componentClass, final long constructionNanos) {
+		for (InjectionListener listener : listeners) {
+			listener.instanceCreated(componentClass, constructionNanos);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void instanceLookup(final Class<?> componentClass, final boolean hit) {
+		for (InjectionListener listener : listeners) {
+			listener.instanceLookup(componentClass, hit);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void fieldInjected(final Class<?> declaringClass, final String fieldName, final Object value) {
+		for (InjectionListener listener : listeners) {
+			listener.fieldInjected(declaringClass, fieldName, value);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void scanStarted(final ClassLoader classLoader) {
+		for (InjectionListener listener : listeners) {
+			listener.scanStarted(classLoader);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void scanFinished(final ClassLoader classLoader, final int entriesVisited, final int classesLoaded,
+			final long durationNanos) {
+		for (InjectionListener listener : listeners) {
+			listener.scanFinished(classLoader, entriesVisited, classesLoaded, durationNanos);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package se.mine.mindif;
+
+/**
+ * Writes the messages of a logger wrapper to a logging framework. The level
+ * checks are called before any message is built, so they must be cheap.
+ *
+ * @author Bjorn
+ */
+interface LogBackend {
+
+	/**
+	 * Checks if debug messages are logged.
+	 *
+	 * @return true if debug is enabled
+	 */
+	boolean isDebugEnabled();
+
+	/**
+	 * Checks if info messages are logged.
+	 *
+	 * @return true if info is enabled
+	 */
+	boolean isInfoEnabled();
+
+	/**
+	 * Logs a debug message.
+	 *
+	 * @param msg the message
+	 * @param exception the exception, or null
+	 */
+	void debug(String msg, Throwable exception);
+
+	/**
+	 * Logs an info message.
+	 *
+	 * @param msg the message
+	 * @param exception the exception, or null
+	 */
+	void info(String msg, Throwable exception);
+}
@@ -0,0 +1,267 @@
+package se.mine.mindif;
+
+/**
+ * Wrapper för a logger. Messages are written to slf4j if it is on the
+ * classpath, otherwise to java.util.logging. The backend can be chosen with the
+ * system property <code>se.mine.mindif.logger</code>, which is one of
+ * <code>slf4j</code>, <code>jul</code> or <code>none</code>.
+ * <p>
+ * Messages are only built if their level is enabled. Use parameterized
+ * messages, where each <code>{}</code> is replaced with an argument, or a
+ * {@link Provider} for messages that are expensive to build. If the last
+ * argument is an exception that has no <code>{}</code>, it is logged as the
+ * cause. Arguments of primitive types are boxed by the caller, so such calls
+ * should be guarded with {@link #isDebugEnabled()}.
+ *
+ * @author Bjorn
+ */
+public class LoggerWrapper {
+	/** The system property that chooses the logging backend. */
+	public static final String BACKEND_PROPERTY = "se.mine.mindif.logger";
+
+	private static final String PLACEHOLDER = "{}";
+	private static final String BACKEND = findBackend();
+
+	private final LogBackend backend;
+
+	/**
+	 * Instantiates a new logger wrapper.
+	 *
+	 * @param classToBeLogged the class to be logged
+	 */
+	public LoggerWrapper(final Class<?> classToBeLogged) {
+		this(createBackend(classToBeLogged));
+	}
+
+	/**
+	 * Instantiates a new logger wrapper with a specific backend.
+	 *
+	 * @param backend the backend, or null to log nothing
+	 */
+	LoggerWrapper(final LogBackend backend) {
+		this.backend = backend;
+	}
+
+	/**
+	 * Chooses the logging backend from the system property, or from the
+	 * classpath if the property is not set.
+	 *
+	 * @return the backend name
+	 */
+	private static String findBackend() {
+		final String backendName = System.getProperty(BACKEND_PROPERTY);
+		if (backendName != null) {
+			return backendName;
+		}
+		try {
+			Class.forName("org.slf4j.LoggerFactory");
+			return "slf4j";
+		} catch (ClassNotFoundException e) {
+			return "jul";
+		} catch (LinkageError e) {
+			return "jul";
+		}
+	}
+
+	/**
+	 * Creates the backend for a class.
+	 *
+	 * @param classToBeLogged the class to be logged
+	 *
+	 * @return the backend, or null if nothing should be logged
+	 */
+	private static LogBackend createBackend(final Class<?> classToBeLogged) {
+		if ("slf4j".equals(BACKEND)) {
+			return new Slf4jBackend(classToBeLogged);
+		}
+		if ("jul".equals(BACKEND)) {
+			return new JulBackend(classToBeLogged);
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if debug messages are logged.
+	 *
+	 * @return true if debug is enabled
+	 */
+	public boolean isDebugEnabled() {
+		return backend != null && backend.isDebugEnabled();
+	}
+
+	/**
+	 * Checks if info messages are logged.
+	 *
+	 * @return true if info is enabled
+	 */
+	public boolean isInfoEnabled() {
+		return backend != null && backend.isInfoEnabled();
+	}
+
+	/**
+	 * Add a debug message
+	 *
+	 * @param msg the msg
+	 */
+	public void debug(final String msg) {
+		if (isDebugEnabled()) {
+			backend.debug(msg, null);
+		}
+	}
+
+	/**
+	 * Add a debug message
+	 *
+	 * @param msg the msg
+	 * @param exception the exception
+	 */
+	public void debug(final String msg, final Throwable exception) {
+		if (isDebugEnabled()) {
+			backend.debug(msg, exception);
+		}
+	}
+
+	/**
+	 * Add a parameterized debug message
+	 *
+	 * @param format the message, with a <code>{}</code> for the argument
+	 * @param arg the argument
+	 */
+	public void debug(final String format, final Object arg) {
+		if (isDebugEnabled()) {
+			backend.debug(format(format, arg, null, 1), getException(format, arg, null, 1));
+		}
+	}
+
+	/**
+	 * Add a parameterized debug message
+	 *
+	 * @param format the message, with a <code>{}</code> for each argument
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument, or an exception
+	 */
+	public void debug(final String format, final Object arg1, final Object arg2) {
+		if (isDebugEnabled()) {
+			backend.debug(format(format, arg1, arg2, 2), getException(format, arg1, arg2, 2));
+		}
+	}
+
+	/**
+	 * Add a debug message that is only built if debug is enabled
+	 *
+	 * @param msg builds the message
+	 */
+	public void debug(final Provider<String> msg) {
+		if (isDebugEnabled()) {
+			backend.debug(msg.get(), null);
+		}
+	}
+
+	/**
+	 * Add a info message
+	 *
+	 * @param msg the msg
+	 */
+	public void info(final String msg) {
+		if (isInfoEnabled()) {
+			backend.info(msg, null);
+		}
+	}
+
+	/**
+	 * Add a parameterized info message
+	 *
+	 * @param format the message, with a <code>{}</code> for the argument
+	 * @param arg the argument
+	 */
+	public void info(final String format, final Object arg) {
+		if (isInfoEnabled()) {
+			backend.info(format(format, arg, null, 1), getException(format, arg, null, 1));
+		}
+	}
+
+	/**
+	 * Add a parameterized info message
+	 *
+	 * @param format the message, with a <code>{}</code> for each argument
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument, or an exception
+	 */
+	public void info(final String format, final Object arg1, final Object arg2) {
+		if (isInfoEnabled()) {
+			backend.info(format(format, arg1, arg2, 2), getException(format, arg1, arg2, 2));
+		}
+	}
+
+	/**
+	 * Add an info message that is only built if info is enabled
+	 *
+	 * @param msg builds the message
+	 */
+	public void info(final Provider<String> msg) {
+		if (isInfoEnabled()) {
+			backend.info(msg.get(), null);
+		}
+	}
+
+	/**
+	 * Replaces the placeholders in a message with the arguments. Placeholders
+	 * without an argument are kept.
+	 *
+	 * @param format the message
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 * @param argCount the number of arguments
+	 *
+	 * @return the message
+	 */
+	static String format(final String format, final Object arg1, final Object arg2, final int argCount) {
+		final StringBuilder msg = new StringBuilder(format.length() + 32);
+		int start = 0;
+		for (int i = 0; i < argCount; i++) {
+			final int index = format.indexOf(PLACEHOLDER, start);
+			if (index == -1) {
+				break;
+			}
+			msg.append(format, start, index).append(i == 0 ? arg1 : arg2);
+			start = index + PLACEHOLDER.length();
+		}
+		return msg.append(format, start, format.length()).toString();
+	}
+
+	/**
+	 * Gets the exception of a parameterized message, which is the last argument
+	 * if it is an exception that has no placeholder.
+	 *
+	 * @param format the message
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 * @param argCount the number of arguments
+	 *
+	 * @return the exception, or null
+	 */
+	private static Throwable getException(final String format, final Object arg1, final Object arg2,
+			final int argCount) {
+		final Object last = argCount == 1 ? arg1 : arg2;
+		if (!(last instanceof Throwable) || countPlaceholders(format) >= argCount) {
+			return null;
+		}
+		return (Throwable) last;
+	}
+
+	/**
+	 * Counts the placeholders in a message.
+	 *
+	 * @param format the message
+	 *
+	 * @return the number of placeholders
+	 */
+	private static int countPlaceholders(final String format) {
+		int count = 0;
+		for (int index = format.indexOf(PLACEHOLDER); index != -1; index = format.indexOf(PLACEHOLDER, index
+				+ PLACEHOLDER.length())) {
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,75 @@
+package se.mine.mindif;
+
+/**
+ * Snapshot of the usage of the pool for one component class, for tuning the
+ * pool capacity.
+ *
+ * @author Bjorn
+ */
+public final class PoolStatistics {
+	private final long hits;
+	private final long misses;
+	private final int size;
+	private final int capacity;
+
+	/**
+	 * Instantiates new pool statistics.
+	 *
+	 * @param hits the number of borrowed instances that came from the pool
+	 * @param misses the number of borrowed instances that had to be created
+	 * @param size the number of instances in the pool
+	 * @param capacity the maximum number of instances in the pool
+	 */
+	PoolStatistics(final long hits, final long misses, final int size, final int capacity) {
+		this.hits = hits;
+		this.misses = misses;
+		this.size = size;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Gets the number of borrowed instances that came from the pool.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of borrowed instances that had to be created because the
+	 * pool was empty.
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the number of instances that are waiting in the pool.
+	 *
+	 * @return the pool size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the maximum number of instances that the pool keeps. Instances that
+	 * are released to a full pool are discarded.
+	 *
+	 * @return the pool capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "hits=" + hits + ", misses=" + misses + ", size=" + size + "/" + capacity;
+	}
+}
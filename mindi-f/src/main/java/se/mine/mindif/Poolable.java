@@ -0,0 +1,16 @@
+package se.mine.mindif;
+
+/**
+ * Reset hook for components with {@link Scope#POOLED} scope. The component is
+ * reset before it is returned to the pool, so that the next borrower gets it in
+ * a clean state.
+ *
+ * @author Bjorn
+ */
+public interface Poolable {
+
+	/**
+	 * Clears the state that was built up while the component was borrowed.
+	 */
+	void reset();
+}
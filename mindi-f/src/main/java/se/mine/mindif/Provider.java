@@ -0,0 +1,32 @@
+package se.mine.mindif;
+
+/**
+ * Gives access to a dependency that is created the first time it is used. A
+ * field of this type that is annotated with {@link Dependency} is injected
+ * with a provider instead of the dependency itself, so the dependency and its
+ * own dependencies are not instantiated until {@link #get()} is called. The
+ * instance is created at most once and is shared through the context like any
+ * other dependency. The provider keeps the instance after the first call,
+ * even if the context evicts it according to its {@link ReferencePolicy}.
+ *
+ * <pre>
+ * &#064;Dependency
+ * private Provider&lt;ReportGenerator&gt; reportGenerator;
+ *
+ * &#064;Dependency(PdfReportGenerator.class)
+ * private Provider&lt;ReportGenerator&gt; pdfReportGenerator;
+ * </pre>
+ *
+ * @param <T> the type of the dependency
+ *
+ * @author Bjorn
+ */
+public interface Provider<T> {
+
+	/**
+	 * Gets the dependency, and creates and injects it if this is the first call.
+	 *
+	 * @return the dependency
+	 */
+	T get();
+}
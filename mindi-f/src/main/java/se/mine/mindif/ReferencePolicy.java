@@ -0,0 +1,35 @@
+package se.mine.mindif;
+
+/**
+ * Decides how long a context keeps the instances it creates. An instance that
+ * the context no longer keeps is created and injected again the next time it
+ * is needed. Components that were injected before keep the instance they
+ * got, and so does a {@link Provider} that has been called, so an evicted
+ * instance only frees memory once nothing refers to it any longer.
+ * Dependencies that implement {@link Destroyable} are always kept strongly,
+ * since they could not be destroyed when the context is closed otherwise.
+ *
+ * @author Bjorn
+ */
+public enum ReferencePolicy {
+	/**
+	 * The instance is kept as long as the context. This is the default.
+	 */
+	STRONG,
+
+	/**
+	 * The instance is kept until the garbage collector needs the memory.
+	 */
+	SOFT,
+
+	/**
+	 * The instance is kept until nothing else refers to it.
+	 */
+	WEAK,
+
+	/**
+	 * The instance is kept while it is among the most recently used instances
+	 * that fit within the maximum size or weight of the context.
+	 */
+	BOUNDED
+}
@@ -0,0 +1,145 @@
+package se.mine.mindif;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Implementations of unspecified interface fields read from the wiring files
+ * that the MinDI F Maven plugin writes at build time. A field that is in the
+ * wiring needs no classpath scan, and a list or array field gets the
+ * implementations in the wiring. The wiring files of all jars and directories
+ * are read once per class loader.
+ *
+ * @author Bjorn
+ */
+final class ResolvedWiring {
+	private static final LoggerWrapper LOGGER = new LoggerWrapper(ResolvedWiring.class);
+	private static final Map<ClassLoader, ResolvedWiring> WIRINGS = Collections
+			.synchronizedMap(new WeakHashMap<ClassLoader, ResolvedWiring>());
+
+	private final Map<String, String> implementationNames = new HashMap<String, String>();
+
+	/**
+	 * Reads all wiring files that are visible to a class loader.
+	 *
+	 * @param classLoader the class loader
+	 */
+	private ResolvedWiring(final ClassLoader classLoader) {
+		try {
+			final Enumeration<URL> resources = classLoader.getResources(DependencyValidator.WIRING_RESOURCE);
+			while (resources.hasMoreElements()) {
+				read(resources.nextElement());
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not read " + DependencyValidator.WIRING_RESOURCE, e);
+		}
+	}
+
+	/**
+	 * Gets the wiring for a class loader.
+	 *
+	 * @param classLoader the class loader
+	 *
+	 * @return the wiring
+	 */
+	static ResolvedWiring forClassLoader(final ClassLoader classLoader) {
+		synchronized (WIRINGS) {
+			ResolvedWiring wiring = WIRINGS.get(classLoader);
+			if (wiring == null) {
+				wiring = new ResolvedWiring(classLoader);
+				WIRINGS.put(classLoader, wiring);
+			}
+			return wiring;
+		}
+	}
+
+	/**
+	 * Discards the wiring of a class loader.
+	 *
+	 * @param classLoader the class loader
+	 */
+	static void invalidate(final ClassLoader classLoader) {
+		WIRINGS.remove(classLoader);
+	}
+
+	/**
+	 * Discards the wiring of all class loaders.
+	 */
+	static void invalidateAll() {
+		WIRINGS.clear();
+	}
+
+	/**
+	 * Reads one wiring file. The first file on the classpath wins if a field is
+	 * in more than one file.
+	 *
+	 * @param url the url of the wiring file
+	 */
+	private void read(final URL url) {
+		try {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), "UTF-8"));
+			try {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					final int separator = line.indexOf('=');
+					final String key = separator > 0 ? line.substring(0, separator).trim() : null;
+					if (key != null && !implementationNames.containsKey(key)) {
+						implementationNames.put(key, line.substring(separator + 1).trim());
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not read wiring file {}", url, e);
+		}
+	}
+
+	/**
+	 * Gets the resolved implementations of an unspecified interface field.
+	 *
+	 * @param declaringClass the class that declares the field
+	 * @param fieldName the name of the field
+	 * @param fieldClass the interface
+	 * @param classLoader loads the implementations
+	 *
+	 * @return the implementation, or all implementations of a list or array
+	 *         field, or null if the field is not in the wiring or an
+	 *         implementation does not match the field
+	 */
+	List<Class<?>> getImplementations(final Class<?> declaringClass, final String fieldName,
+			final Class<?> fieldClass, final ClassLoader classLoader) {
+		final String names = implementationNames.get(declaringClass.getName() + "#" + fieldName);
+		if (names == null) {
+			return null;
+		}
+		final List<Class<?>> returnValue = new ArrayList<Class<?>>();
+		for (String name : names.split(",")) {
+			if (name.length() == 0) {
+				continue;
+			}
+			try {
+				final Class<?> valueClass = Class.forName(name, false, classLoader);
+				if (!fieldClass.isAssignableFrom(valueClass)) {
+					return null;
+				}
+				returnValue.add(valueClass);
+			} catch (ClassNotFoundException e) {
+				LOGGER.debug("Wired class {} could not be found", name);
+				return null;
+			} catch (LinkageError e) {
+				LOGGER.debug("Wired class {} could not be loaded", name);
+				return null;
+			}
+		}
+		return returnValue;
+	}
+}
@@ -0,0 +1,482 @@
+package se.mine.mindif;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides which code is scanned for the implementation of an unspecified
+ * interface. A scan starts at the scan roots: package prefixes that are looked
+ * up, including sub packages, in the class loaders, and jar files or class
+ * directories. Classes are then kept or skipped with include and exclude
+ * filters, before their class files are read.
+ * <p>
+ * Without package prefixes or jar files, every package that has been loaded
+ * from the class loader is scanned, which is the default. A URLClassLoader
+ * that is named in the scope, such as the class loader of a plugin, is
+ * scanned through its own jar files and directories instead.
+ * <p>
+ * A filter is a package or a class name, and matches the class, its nested
+ * classes and all classes in the package and its sub packages. Exclude
+ * filters win over include filters, and without include filters every class
+ * that is not excluded is included. Scan scopes are immutable, every method
+ * returns a new scope.
+ * <code>
+ * context.setScanScope(ScanScope.packages("com.acme").exclude("com.acme.test"));
+ * </code>
+ *
+ * @author Bjorn
+ */
+public final class ScanScope {
+	private static final String[] NO_NAMES = new String[0];
+	private static final File[] NO_FILES = new File[0];
+	private static final ScanScope ALL = new ScanScope(NO_NAMES, new ClassLoaderReference[0], NO_FILES, NO_NAMES,
+			NO_NAMES);
+
+	private final String[] packageNames;
+	private final ClassLoaderReference[] classLoaders;
+	private final File[] jarFiles;
+	private final String[] includes;
+	private final String[] excludes;
+	private final String[] includePaths;
+	private final String[] excludePaths;
+
+	/**
+	 * Instantiates a new scan scope.
+	 *
+	 * @param packageNames the package prefixes to scan
+	 * @param classLoaders the class loaders that the packages are looked up in
+	 * @param jarFiles the jar files and class directories to scan
+	 * @param includes the classes to include
+	 * @param excludes the classes to exclude
+	 */
+	private ScanScope(final String[] packageNames, final ClassLoaderReference[] classLoaders,
+			final File[] jarFiles, final String[] includes, final String[] excludes) {
+		this.packageNames = packageNames;
+		this.classLoaders = classLoaders;
+		this.jarFiles = jarFiles;
+		this.includes = includes;
+		this.excludes = excludes;
+		this.includePaths = toPaths(includes);
+		this.excludePaths = toPaths(excludes);
+	}
+
+	/**
+	 * Gets the scope that scans every loaded package, except the packages of
+	 * the Java runtime.
+	 *
+	 * @return the default scope
+	 */
+	public static ScanScope all() {
+		return ALL;
+	}
+
+	/**
+	 * Gets a scope that only scans some packages and their sub packages.
+	 *
+	 * @param packageNames the package prefixes, such as <code>com.acme</code>
+	 *
+	 * @return the scope
+	 */
+	public static ScanScope packages(final String... packageNames) {
+		return ALL.withPackages(packageNames);
+	}
+
+	/**
+	 * Gets a copy of this scope that scans some packages and their sub
+	 * packages, instead of the packages of this scope.
+	 *
+	 * @param names the package prefixes, such as <code>com.acme</code>
+	 *
+	 * @return the scope
+	 */
+	public ScanScope withPackages(final String... names) {
+		return new ScanScope(checkNames(names), classLoaders, jarFiles, includes, excludes);
+	}
+
+	/**
+	 * Gets a copy of this scope that looks up the packages in some class
+	 * loaders, instead of the class loader of the interface. Implementations
+	 * are loaded with the class loader that found them.
+	 *
+	 * @param loaders the class loaders
+	 *
+	 * @return the scope
+	 */
+	public ScanScope withClassLoaders(final ClassLoader... loaders) {
+		final ClassLoaderReference[] references = new ClassLoaderReference[loaders.length];
+		for (int i = 0; i < loaders.length; i++) {
+			if (loaders[i] == null) {
+				throw new IllegalArgumentException("Class loader must not be null");
+			}
+			references[i] = new ClassLoaderReference(loaders[i]);
+		}
+		return new ScanScope(packageNames, references, jarFiles, includes, excludes);
+	}
+
+	/**
+	 * Gets a copy of this scope that also scans some jar files or class
+	 * directories. Only the packages of this scope are scanned in them, if it
+	 * has packages.
+	 *
+	 * @param files the jar files or class directories
+	 *
+	 * @return the scope
+	 */
+	public ScanScope withJars(final File... files) {
+		final List<File> list = new ArrayList<File>(Arrays.asList(jarFiles));
+		for (File file : files) {
+			if (file == null) {
+				throw new IllegalArgumentException("Jar file must not be null");
+			}
+			list.add(file.getAbsoluteFile());
+		}
+		return new ScanScope(packageNames, classLoaders, list.toArray(NO_FILES), includes, excludes);
+	}
+
+	/**
+	 * Gets a copy of this scope that only includes some packages or classes.
+	 *
+	 * @param names the packages or classes
+	 *
+	 * @return the scope
+	 */
+	public ScanScope include(final String... names) {
+		return new ScanScope(packageNames, classLoaders, jarFiles, concat(includes, checkNames(names)), excludes);
+	}
+
+	/**
+	 * Gets a copy of this scope that excludes some packages or classes.
+	 *
+	 * @param names the packages or classes
+	 *
+	 * @return the scope
+	 */
+	public ScanScope exclude(final String... names) {
+		return new ScanScope(packageNames, classLoaders, jarFiles, includes, concat(excludes, checkNames(names)));
+	}
+
+	/**
+	 * Checks if the scope has package prefixes.
+	 *
+	 * @return true if only some packages are scanned
+	 */
+	boolean hasPackages() {
+		return packageNames.length > 0;
+	}
+
+	/**
+	 * Checks if the scope names its own class loaders.
+	 *
+	 * @return true if the packages are looked up in the class loaders of the
+	 *         scope
+	 */
+	boolean hasClassLoaders() {
+		return classLoaders.length > 0;
+	}
+
+	/**
+	 * Gets the package prefixes to scan.
+	 *
+	 * @return the package names
+	 */
+	String[] getPackageNames() {
+		return packageNames.clone();
+	}
+
+	/**
+	 * Gets the class loaders that the packages are looked up in.
+	 *
+	 * @param defaultClassLoader the class loader to use if the scope has none
+	 *
+	 * @return the class loaders that are still alive
+	 */
+	List<ClassLoader> getClassLoaders(final ClassLoader defaultClassLoader) {
+		final List<ClassLoader> returnValue = new ArrayList<ClassLoader>(Math.max(classLoaders.length, 1));
+		if (classLoaders.length == 0) {
+			returnValue.add(defaultClassLoader);
+		}
+		for (ClassLoaderReference reference : classLoaders) {
+			final ClassLoader classLoader = reference.get();
+			if (classLoader != null) {
+				returnValue.add(classLoader);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the jar files and class directories to scan.
+	 *
+	 * @return the files
+	 */
+	File[] getJarFiles() {
+		return jarFiles.clone();
+	}
+
+	/**
+	 * Checks if a class is in one of the packages of the scope, if it has any,
+	 * and passes the include and exclude filters.
+	 *
+	 * @param className the class name, in binary form
+	 *
+	 * @return true if the class is in scope
+	 */
+	boolean contains(final String className) {
+		if (!accepts(className)) {
+			return false;
+		}
+		for (String packageName : packageNames) {
+			if (matches(packageName, className)) {
+				return true;
+			}
+		}
+		return packageNames.length == 0;
+	}
+
+	/**
+	 * Checks if a class passes the include and exclude filters.
+	 *
+	 * @param className the class name, in binary form
+	 *
+	 * @return true if the class is in scope
+	 */
+	boolean accepts(final String className) {
+		for (String exclude : excludes) {
+			if (matches(exclude, className)) {
+				return false;
+			}
+		}
+		if (includes.length == 0) {
+			return true;
+		}
+		for (String include : includes) {
+			if (matches(include, className)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the scope has include or exclude filters.
+	 *
+	 * @return true if some classes are filtered out
+	 */
+	boolean hasFilters() {
+		return includes.length > 0 || excludes.length > 0;
+	}
+
+	/**
+	 * Checks if a class file passes the include and exclude filters, without
+	 * converting its path to a class name.
+	 *
+	 * @param path the path of the class file, relative to the classpath root
+	 * @param length the length of the path without the class file suffix
+	 *
+	 * @return true if the class is in scope
+	 */
+	boolean acceptsPath(final String path, final int length) {
+		for (String exclude : excludePaths) {
+			if (matchesPath(exclude, path, length)) {
+				return false;
+			}
+		}
+		if (includePaths.length == 0) {
+			return true;
+		}
+		for (String include : includePaths) {
+			if (matchesPath(include, path, length)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a package or class name matches a class.
+	 *
+	 * @param name the package or class name
+	 * @param className the class name, in binary form
+	 *
+	 * @return true if the class is the named class, nested in it, or in the
+	 *         named package or a sub package
+	 */
+	private static boolean matches(final String name, final String className) {
+		if (!className.startsWith(name)) {
+			return false;
+		}
+		if (className.length() == name.length()) {
+			return true;
+		}
+		final char next = className.charAt(name.length());
+		return next == '.' || next == '$';
+	}
+
+	/**
+	 * Checks if a package or class name, in path form, matches a class file.
+	 *
+	 * @param name the package or class name, with '/' as separator
+	 * @param path the path of the class file
+	 * @param length the length of the path without the class file suffix
+	 *
+	 * @return true if the class is the named class, nested in it, or in the
+	 *         named package or a sub package
+	 */
+	private static boolean matchesPath(final String name, final String path, final int length) {
+		if (length < name.length() || !path.regionMatches(0, name, 0, name.length())) {
+			return false;
+		}
+		if (length == name.length()) {
+			return true;
+		}
+		final char next = path.charAt(name.length());
+		return next == '/' || next == '$';
+	}
+
+	/**
+	 * Converts package and class names to the path form of class files.
+	 *
+	 * @param names the names
+	 *
+	 * @return the names with '/' as separator
+	 */
+	private static String[] toPaths(final String[] names) {
+		final String[] paths = new String[names.length];
+		for (int i = 0; i < names.length; i++) {
+			paths[i] = names[i].replace('.', '/');
+		}
+		return paths;
+	}
+
+	/**
+	 * Checks that package and class names are given.
+	 *
+	 * @param names the names
+	 *
+	 * @return a copy of the names
+	 */
+	private static String[] checkNames(final String[] names) {
+		for (String name : names) {
+			if (name == null || name.length() == 0) {
+				throw new IllegalArgumentException("Package or class name must not be empty");
+			}
+		}
+		return names.clone();
+	}
+
+	/**
+	 * Joins two arrays of names.
+	 *
+	 * @param first the first names
+	 * @param second the names to add
+	 *
+	 * @return the joined names
+	 */
+	private static String[] concat(final String[] first, final String[] second) {
+		final String[] returnValue = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, returnValue, first.length, second.length);
+		return returnValue;
+	}
+
+	/**
+	 * Gets the key of the scope in a wiring cache, made of its packages and
+	 * filters. Class loaders and jar files outside the classpath are not
+	 * covered by the fingerprint of the cache, so a scope with them has no
+	 * key.
+	 *
+	 * @return the key, an empty string for the default scope, or null if the
+	 *         implementations found in this scope cannot be cached
+	 */
+	String getCacheKey() {
+		if (classLoaders.length > 0 || jarFiles.length > 0) {
+			return null;
+		}
+		if (packageNames.length == 0 && includes.length == 0 && excludes.length == 0) {
+			return "";
+		}
+		return Arrays.toString(packageNames) + Arrays.toString(includes) + Arrays.toString(excludes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ScanScope)) {
+			return false;
+		}
+		final ScanScope other = (ScanScope) obj;
+		return Arrays.equals(packageNames, other.packageNames) && Arrays.equals(classLoaders, other.classLoaders)
+				&& Arrays.equals(jarFiles, other.jarFiles) && Arrays.equals(includes, other.includes)
+				&& Arrays.equals(excludes, other.excludes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		int result = Arrays.hashCode(packageNames);
+		result = 31 * result + Arrays.hashCode(classLoaders);
+		result = 31 * result + Arrays.hashCode(jarFiles);
+		result = 31 * result + Arrays.hashCode(includes);
+		return 31 * result + Arrays.hashCode(excludes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "ScanScope[packages=" + Arrays.toString(packageNames) + ", classLoaders=" + classLoaders.length
+				+ ", jars=" + Arrays.toString(jarFiles) + ", includes=" + Arrays.toString(includes)
+				+ ", excludes=" + Arrays.toString(excludes) + "]";
+	}
+
+	/**
+	 * Weak reference to a class loader that is compared by identity, so that
+	 * a scope does not keep a class loader alive in the shared type indexes.
+	 */
+	private static final class ClassLoaderReference extends WeakReference<ClassLoader> {
+		private final int hash;
+
+		/**
+		 * Instantiates a new reference.
+		 *
+		 * @param classLoader the class loader
+		 */
+		private ClassLoaderReference(final ClassLoader classLoader) {
+			super(classLoader);
+			this.hash = System.identityHashCode(classLoader);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ClassLoaderReference)) {
+				return false;
+			}
+			final ClassLoader classLoader = get();
+			return classLoader != null && classLoader == ((ClassLoaderReference) obj).get();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package se.mine.mindif;
+
+/**
+ * Decides how many instances of a dependency a context creates.
+ *
+ * @author Bjorn
+ */
+public enum Scope {
+	/**
+	 * One instance per context, shared by all fields. This is the default.
+	 */
+	SINGLETON,
+
+	/**
+	 * A new instance for every field that is injected.
+	 */
+	PROTOTYPE,
+
+	/**
+	 * An instance borrowed from a bounded pool that is owned by the context.
+	 * The instance is returned to the pool with
+	 * {@link Context#release(Object)}, and is reset first if it implements
+	 * {@link Poolable}. A new instance is created when the pool is empty.
+	 */
+	POOLED
+}
@@ -0,0 +1,50 @@
+package se.mine.mindif;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs to slf4j. This class is only loaded if slf4j is on the classpath.
+ *
+ * @author Bjorn
+ */
+final class Slf4jBackend implements LogBackend {
+	private final Logger logger;
+
+	/**
+	 * Instantiates a new slf4j backend.
+	 *
+	 * @param classToBeLogged the class to be logged
+	 */
+	Slf4jBackend(final Class<?> classToBeLogged) {
+		logger = LoggerFactory.getLogger(classToBeLogged);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isDebugEnabled() {
+		return logger.isDebugEnabled();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isInfoEnabled() {
+		return logger.isInfoEnabled();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void debug(final String msg, final Throwable exception) {
+		logger.debug(msg, exception);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void info(final String msg, final Throwable exception) {
+		logger.info(msg, exception);
+	}
+}
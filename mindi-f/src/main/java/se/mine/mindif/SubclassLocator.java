@@ -0,0 +1,674 @@
+package se.mine.mindif;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Find subclasses for a class. The classpath is scanned on the calling thread
+ * by default. With an executor, such as a ForkJoinPool, jar files and package
+ * directories are scanned concurrently and the results are merged in the same
+ * order as a sequential scan. A scan scope limits the scan to the packages,
+ * class loaders and jar files that can hold the implementations.
+ *
+ * @author Bjorn
+ *
+ */
+public class SubclassLocator {
+	/**
+	 * Resource with interface to implementation mappings, one
+	 * <code>interface=implementation</code> line per mapping. The resource is
+	 * written at build time by the MinDI F processor.
+	 */
+	public static final String INDEX_RESOURCE = "META-INF/mindi-f/implementations";
+
+	private static final LoggerWrapper LOGGER = new LoggerWrapper(SubclassLocator.class);
+	private static final int BUFFER_SIZE = 8192;
+	private static final AtomicInteger GENERATION = new AtomicInteger();
+	private final Class<?> fieldClass;
+	private final ClassLoader classLoader;
+	private final ExecutorService executor;
+	private final InjectionListener listener;
+	private final ScanScope scope;
+
+	/**
+	 * @param fieldClass
+	 */
+	public SubclassLocator(final Class<?> fieldClass) {
+		this(fieldClass, (ExecutorService) null);
+	}
+
+	/**
+	 * Instantiates a new subclass locator that scans jar files and directories
+	 * concurrently.
+	 *
+	 * @param fieldClass the class to find sub classes for
+	 * @param executor runs the scan tasks, or null to scan on the calling thread
+	 */
+	public SubclassLocator(final Class<?> fieldClass, final ExecutorService executor) {
+		this(fieldClass, executor, null, ScanScope.all());
+	}
+
+	/**
+	 * Instantiates a new subclass locator that only scans the code in a scope.
+	 *
+	 * @param fieldClass the class to find sub classes for
+	 * @param scope the scan roots and filters
+	 */
+	public SubclassLocator(final Class<?> fieldClass, final ScanScope scope) {
+		this(fieldClass, null, null, scope);
+	}
+
+	/**
+	 * Instantiates a new subclass locator that reports a classpath scan to a
+	 * listener.
+	 *
+	 * @param fieldClass the class to find sub classes for
+	 * @param executor runs the scan tasks, or null to scan on the calling thread
+	 * @param listener is told about a classpath scan, or null
+	 * @param scope the scan roots and filters
+	 */
+	SubclassLocator(final Class<?> fieldClass, final ExecutorService executor, final InjectionListener listener,
+			final ScanScope scope) {
+		if (scope == null) {
+			throw new IllegalArgumentException("Scan scope must not be null");
+		}
+		this.fieldClass = fieldClass;
+		final ClassLoader fieldClassLoader = fieldClass.getClassLoader();
+		this.classLoader = fieldClassLoader == null ? ClassLoader.getSystemClassLoader() : fieldClassLoader;
+		this.executor = executor;
+		this.listener = listener;
+		this.scope = scope;
+	}
+
+	/**
+	 * Gets the sub classes for a class. The implementations of an interface
+	 * are taken from the build time index of the jar files and directories that
+	 * have one, and the other roots are looked up in a type index that is built
+	 * with one classpath scan and shared by all lookups on the same class
+	 * loader and scan scope. Nothing is scanned if every root has an index.
+	 * Indexed classes outside the packages and filters of the scope are
+	 * skipped.
+	 *
+	 * @return the sub classes
+	 */
+	public List<Class<?>> getSubClasses() {
+		final List<ClassLoader> classLoaders = scope.getClassLoaders(classLoader);
+		if (classLoaders.size() == 1) {
+			return getSubClasses(classLoaders.get(0));
+		}
+		final Set<Class<?>> returnValue = new LinkedHashSet<Class<?>>();
+		for (ClassLoader scopeClassLoader : classLoaders) {
+			returnValue.addAll(getSubClasses(scopeClassLoader));
+		}
+		return new ArrayList<Class<?>>(returnValue);
+	}
+
+	/**
+	 * Gets the sub classes that a class loader can load.
+	 *
+	 * @param scopeClassLoader the class loader
+	 *
+	 * @return the sub classes
+	 */
+	private List<Class<?>> getSubClasses(final ClassLoader scopeClassLoader) {
+		final ImplementationIndex index = ImplementationIndex.forClassLoader(scopeClassLoader);
+		if (!fieldClass.isInterface() || index.getRoots().isEmpty()) {
+			return TypeIndex.forClassLoader(scopeClassLoader, scope).getSubClasses(fieldClass, scopeClassLoader,
+					executor, listener);
+		}
+		final Set<Class<?>> returnValue = new LinkedHashSet<Class<?>>();
+		final List<Class<?>> indexedClasses = index.getImplementations(fieldClass, scopeClassLoader);
+		if (indexedClasses != null) {
+			for (Class<?> indexedClass : indexedClasses) {
+				if (scope.contains(indexedClass.getName())) {
+					returnValue.add(indexedClass);
+				}
+			}
+		}
+		returnValue.addAll(TypeIndex.forClassLoader(scopeClassLoader, scope, index.getRoots()).getSubClasses(
+				fieldClass, scopeClassLoader, executor, listener));
+		return new ArrayList<Class<?>>(returnValue);
+	}
+
+	/**
+	 * Discards the indexes of a class loader, so that classes added since the
+	 * last scan are found. The indexes are rebuilt on the next lookup.
+	 *
+	 * @param classLoader the class loader
+	 */
+	public static void invalidate(final ClassLoader classLoader) {
+		ImplementationIndex.invalidate(classLoader);
+		ResolvedWiring.invalidate(classLoader);
+		TypeIndex.invalidate(classLoader);
+		GENERATION.incrementAndGet();
+	}
+
+	/**
+	 * Discards the indexes of all class loaders.
+	 */
+	public static void invalidateAll() {
+		ImplementationIndex.invalidateAll();
+		ResolvedWiring.invalidateAll();
+		TypeIndex.invalidateAll();
+		GENERATION.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of times the indexes have been invalidated, so that the
+	 * implementations that a context has resolved can be discarded with them.
+	 *
+	 * @return the generation of the indexes
+	 */
+	static int getGeneration() {
+		return GENERATION.get();
+	}
+
+	/**
+	 * Gets the classpath root, a jar file or a directory, that a resource is
+	 * in.
+	 *
+	 * @param url the url of the resource
+	 * @param resourcePath the path of the resource in its root
+	 *
+	 * @return the root, or null if the resource is not in a jar file or a
+	 *         directory
+	 */
+	static File getRoot(final URL url, final String resourcePath) {
+		final String urlString = url.toString();
+		if (urlString.startsWith("jar:")) {
+			try {
+				return new File(((JarURLConnection) url.openConnection()).getJarFileURL().getFile())
+						.getAbsoluteFile();
+			} catch (IOException e) {
+				LOGGER.debug("Could not open jarfile", e);
+				return null;
+			}
+		}
+		if (!urlString.startsWith("file:")) {
+			return null;
+		}
+		File root = new File(url.getFile());
+		for (String name : resourcePath.split("/")) {
+			if (name.length() > 0 && root != null) {
+				root = root.getParentFile();
+			}
+		}
+		return root == null ? null : root.getAbsoluteFile();
+	}
+
+	/**
+	 * Scans the classpath of a class loader for class files and reads their
+	 * headers.
+	 *
+	 * @param classLoader finds the package directories and jar files
+	 * @param scope the scan roots and filters
+	 * @param skippedRoots the jar files and directories that are not scanned
+	 * @param executor runs the scan tasks, or null to scan on the calling thread
+	 * @param entriesVisited counts the files and jar entries that are visited
+	 *
+	 * @return the class headers by internal name, in scan order
+	 */
+	static Map<String, ClassHeader> scanClassHeaders(final ClassLoader classLoader, final ScanScope scope,
+			final Set<File> skippedRoots, final ExecutorService executor, final AtomicInteger entriesVisited) {
+		final List<ScanTask> tasks = new ArrayList<ScanTask>();
+		if (scope.hasPackages()) {
+			addPackageTasks(tasks, classLoader, scope, skippedRoots, entriesVisited);
+		} else if (scope.hasClassLoaders() && classLoader instanceof URLClassLoader) {
+			addClassLoaderTasks(tasks, (URLClassLoader) classLoader, scope, skippedRoots, entriesVisited);
+		} else {
+			addLoadedPackageTasks(tasks, classLoader, scope, skippedRoots, entriesVisited);
+		}
+		addJarTasks(tasks, scope, skippedRoots, entriesVisited);
+		final Map<String, ClassHeader> headers = new LinkedHashMap<String, ClassHeader>();
+		for (List<ClassHeader> taskHeaders : runTasks(tasks, executor)) {
+			for (ClassHeader header : taskHeaders) {
+				if (!headers.containsKey(header.getName())) {
+					headers.put(header.getName(), header);
+				}
+			}
+		}
+		return headers;
+	}
+
+	/**
+	 * Adds tasks that scan every package that has been loaded, except the
+	 * packages of the Java runtime. Only the classes directly in each package
+	 * directory are scanned, but the whole jar file of a package is.
+	 *
+	 * @param tasks the tasks to add to
+	 * @param classLoader finds the package directories and jar files
+	 * @param scope filters the classes
+	 * @param skippedRoots the jar files and directories that are not scanned
+	 * @param entriesVisited counts the files and jar entries that are visited
+	 */
+	private static void addLoadedPackageTasks(final List<ScanTask> tasks, final ClassLoader classLoader,
+			final ScanScope scope, final Set<File> skippedRoots, final AtomicInteger entriesVisited) {
+		// Originally taken from
+		// http://www.javaworld.com/javaworld/javatips/jw-javatip113.html
+
+		final Set<String> processedJarFiles = new HashSet<String>();
+		final Package[] packages = Package.getPackages();
+		for (Package package1 : packages) {
+			final String packageName = package1.getName();
+			if (packageName.startsWith("sun.") || packageName.startsWith("javax.") || packageName.startsWith("java.")) {
+				continue;
+			}
+			String pathName = getPathName(packageName);
+
+			// Get a File object for the package
+			URL url = classLoader.getResource(pathName);
+			if (url == null) {
+				LOGGER.debug("Could not find URL for {}", pathName);
+				continue;
+			}
+			if (isSkipped(url, pathName, skippedRoots)) {
+				continue;
+			}
+			String urlString = url.toString();
+			if (urlString.startsWith("jar:")) {
+				try {
+					final JarURLConnection connection = (JarURLConnection) url.openConnection();
+					final String jarFileName = connection.getJarFileURL().toString();
+					if (processedJarFiles.add(jarFileName)) {
+						tasks.add(new ScanTask(connection, null, scope, entriesVisited));
+					} else {
+						LOGGER.debug("Already processed jarfile {}", jarFileName);
+					}
+				} catch (IOException e) {
+					LOGGER.debug("Could not open jarfile", e);
+				}
+			} else if (urlString.startsWith("file:")) {
+				tasks.add(new ScanTask(new File(url.getFile()), pathName, false, scope, entriesVisited));
+			}
+		}
+	}
+
+	/**
+	 * Adds tasks that scan the packages of a scope and their sub packages, in
+	 * every directory and jar file of the class loader that contains them.
+	 * Packages are found whether any of their classes are loaded or not.
+	 *
+	 * @param tasks the tasks to add to
+	 * @param classLoader finds the package directories and jar files
+	 * @param scope the packages and filters
+	 * @param skippedRoots the jar files and directories that are not scanned
+	 * @param entriesVisited counts the files and jar entries that are visited
+	 */
+	private static void addPackageTasks(final List<ScanTask> tasks, final ClassLoader classLoader,
+			final ScanScope scope, final Set<File> skippedRoots, final AtomicInteger entriesVisited) {
+		final Set<String> processedRoots = new HashSet<String>();
+		for (String packageName : scope.getPackageNames()) {
+			final String pathName = getPathName(packageName);
+			final Enumeration<URL> urls;
+			try {
+				urls = classLoader.getResources(pathName);
+			} catch (IOException e) {
+				LOGGER.debug("Could not find URLs for {}", pathName, e);
+				continue;
+			}
+			while (urls.hasMoreElements()) {
+				final URL url = urls.nextElement();
+				final String urlString = url.toString();
+				if (!processedRoots.add(urlString) || isSkipped(url, pathName, skippedRoots)) {
+					continue;
+				}
+				if (urlString.startsWith("jar:")) {
+					try {
+						tasks.add(new ScanTask((JarURLConnection) url.openConnection(),
+								new String[] { pathName + '/' }, scope, entriesVisited));
+					} catch (IOException e) {
+						LOGGER.debug("Could not open jarfile", e);
+					}
+				} else if (urlString.startsWith("file:")) {
+					tasks.add(new ScanTask(new File(url.getFile()), pathName, true, scope, entriesVisited));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds tasks that scan the jar files and class directories of a class
+	 * loader itself, but not those of its parents. A plugin class loader is
+	 * scanned this way, since the packages it defines are not visible to
+	 * {@link Package#getPackages()}.
+	 *
+	 * @param tasks the tasks to add to
+	 * @param classLoader the class loader
+	 * @param scope filters the classes
+	 * @param skippedRoots the jar files and directories that are not scanned
+	 * @param entriesVisited counts the files and jar entries that are visited
+	 */
+	private static void addClassLoaderTasks(final List<ScanTask> tasks, final URLClassLoader classLoader,
+			final ScanScope scope, final Set<File> skippedRoots, final AtomicInteger entriesVisited) {
+		for (URL url : classLoader.getURLs()) {
+			if (!"file".equals(url.getProtocol())) {
+				LOGGER.debug("Cannot scan {}", url);
+				continue;
+			}
+			final File file = new File(url.getFile());
+			if (skippedRoots.contains(file.getAbsoluteFile())) {
+				LOGGER.debug("Skipping indexed {}", file);
+			} else if (file.isDirectory()) {
+				tasks.add(new ScanTask(file, "", true, scope, entriesVisited));
+			} else if (file.isFile()) {
+				tasks.add(new ScanTask(file, null, scope, entriesVisited));
+			}
+		}
+	}
+
+	/**
+	 * Adds tasks that scan the jar files and class directories of a scope,
+	 * limited to the packages of the scope if it has any.
+	 *
+	 * @param tasks the tasks to add to
+	 * @param scope the jar files, packages and filters
+	 * @param skippedRoots the jar files and directories that are not scanned
+	 * @param entriesVisited counts the files and jar entries that are visited
+	 */
+	private static void addJarTasks(final List<ScanTask> tasks, final ScanScope scope,
+			final Set<File> skippedRoots, final AtomicInteger entriesVisited) {
+		final String[] packageNames = scope.getPackageNames();
+		final String[] prefixes = new String[packageNames.length];
+		for (int i = 0; i < packageNames.length; i++) {
+			prefixes[i] = getPathName(packageNames[i]) + '/';
+		}
+		for (File jarFile : scope.getJarFiles()) {
+			if (skippedRoots.contains(jarFile.getAbsoluteFile())) {
+				LOGGER.debug("Skipping indexed {}", jarFile);
+			} else if (!jarFile.isDirectory()) {
+				tasks.add(new ScanTask(jarFile, scope.hasPackages() ? prefixes : null, scope, entriesVisited));
+			} else if (scope.hasPackages()) {
+				for (String packageName : packageNames) {
+					final String pathName = getPathName(packageName);
+					tasks.add(new ScanTask(new File(jarFile, pathName), pathName, true, scope, entriesVisited));
+				}
+			} else {
+				tasks.add(new ScanTask(jarFile, "", true, scope, entriesVisited));
+			}
+		}
+	}
+
+	/**
+	 * Checks if a package directory or jar file is in a root that is not
+	 * scanned.
+	 *
+	 * @param url the url of the package
+	 * @param pathName the package, as a path
+	 * @param skippedRoots the jar files and directories that are not scanned
+	 *
+	 * @return true if the package should not be scanned
+	 */
+	private static boolean isSkipped(final URL url, final String pathName, final Set<File> skippedRoots) {
+		if (skippedRoots.isEmpty() || !skippedRoots.contains(getRoot(url, pathName))) {
+			return false;
+		}
+		LOGGER.debug("Skipping indexed {}", url);
+		return true;
+	}
+
+	/**
+	 * Runs the scan tasks, on the executor if there is one.
+	 *
+	 * @param tasks the tasks
+	 * @param executor runs the tasks, or null to run them on the calling thread
+	 *
+	 * @return the class headers found by each task, in task order
+	 */
+	private static List<List<ClassHeader>> runTasks(final List<ScanTask> tasks, final ExecutorService executor) {
+		final List<List<ClassHeader>> returnValue = new ArrayList<List<ClassHeader>>(tasks.size());
+		if (executor == null) {
+			for (ScanTask task : tasks) {
+				returnValue.add(task.call());
+			}
+			return returnValue;
+		}
+		try {
+			for (Future<List<ClassHeader>> future : executor.invokeAll(tasks)) {
+				returnValue.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while scanning the classpath", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Could not scan the classpath", e.getCause());
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the path name from a package name.
+	 *
+	 * @param packageName the package name
+	 *
+	 * @return the path name
+	 */
+	private static String getPathName(final String packageName) {
+		// Translate the package name into a resource path for the class loader
+		return packageName.replace('.', '/');
+	}
+
+	/**
+	 * Reads the class headers of all class files in a jar file or a package
+	 * directory that are in scope. Each task has its own read buffer, so tasks
+	 * can run concurrently.
+	 */
+	private static final class ScanTask implements Callable<List<ClassHeader>> {
+		private static final String CLASS_SUFFIX = ".class";
+		private final JarURLConnection connection;
+		private final File file;
+		private final String pathName;
+		private final boolean recursive;
+		private final String[] prefixes;
+		private final ScanScope scope;
+		private final AtomicInteger entriesVisited;
+		private int entryCount;
+		private final List<ClassHeader> headers = new ArrayList<ClassHeader>();
+		private byte[] buffer = new byte[BUFFER_SIZE];
+
+		/**
+		 * Instantiates a task that scans a jar file from the classpath.
+		 *
+		 * @param connection the connection to the jar file
+		 * @param prefixes the entry name prefixes to scan, or null for all entries
+		 * @param scope filters the classes
+		 * @param entriesVisited counts the visited entries of all tasks
+		 */
+		private ScanTask(final JarURLConnection connection, final String[] prefixes, final ScanScope scope,
+				final AtomicInteger entriesVisited) {
+			this.connection = connection;
+			this.file = null;
+			this.pathName = null;
+			this.recursive = false;
+			this.prefixes = prefixes;
+			this.scope = scope;
+			this.entriesVisited = entriesVisited;
+		}
+
+		/**
+		 * Instantiates a task that scans a jar file, which is opened and closed
+		 * by the task.
+		 *
+		 * @param jarFile the jar file
+		 * @param prefixes the entry name prefixes to scan, or null for all entries
+		 * @param scope filters the classes
+		 * @param entriesVisited counts the visited entries of all tasks
+		 */
+		private ScanTask(final File jarFile, final String[] prefixes, final ScanScope scope,
+				final AtomicInteger entriesVisited) {
+			this.connection = null;
+			this.file = jarFile;
+			this.pathName = null;
+			this.recursive = false;
+			this.prefixes = prefixes;
+			this.scope = scope;
+			this.entriesVisited = entriesVisited;
+		}
+
+		/**
+		 * Instantiates a task that scans a package directory.
+		 *
+		 * @param directory the directory
+		 * @param pathName the package of the directory, as a path
+		 * @param recursive true if sub packages are scanned as well
+		 * @param scope filters the classes
+		 * @param entriesVisited counts the visited entries of all tasks
+		 */
+		private ScanTask(final File directory, final String pathName, final boolean recursive,
+				final ScanScope scope, final AtomicInteger entriesVisited) {
+			this.connection = null;
+			this.file = directory;
+			this.pathName = pathName;
+			this.recursive = recursive;
+			this.prefixes = null;
+			this.scope = scope;
+			this.entriesVisited = entriesVisited;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public List<ClassHeader> call() {
+			if (connection != null) {
+				try {
+					addClasses(connection.getJarFile());
+				} catch (IOException e) {
+					LOGGER.debug("Could not open jarfile", e);
+				}
+			} else if (pathName == null) {
+				try {
+					final JarFile jarFile = new JarFile(file);
+					try {
+						addClasses(jarFile);
+					} finally {
+						jarFile.close();
+					}
+				} catch (IOException e) {
+					LOGGER.debug("Could not open jarfile {}", file, e);
+				}
+			} else {
+				addClasses(file, pathName);
+			}
+			entriesVisited.addAndGet(entryCount);
+			return headers;
+		}
+
+		/**
+		 * Reads the header of a class file.
+		 *
+		 * @param inputStream the class file contents, which is closed
+		 * @param fileName the file name, for logging
+		 */
+		private void addClass(final InputStream inputStream, final String fileName) {
+			try {
+				try {
+					int length = 0;
+					for (int count = inputStream.read(buffer); count != -1; count = inputStream.read(buffer, length,
+							buffer.length - length)) {
+						length += count;
+						if (length == buffer.length) {
+							buffer = Arrays.copyOf(buffer, buffer.length * 2);
+						}
+					}
+					headers.add(ClassHeader.read(buffer, length));
+				} finally {
+					inputStream.close();
+				}
+			} catch (IOException e) {
+				LOGGER.debug("Could not read class file {}", fileName, e);
+			}
+		}
+
+		private void addClasses(final File directory, final String directoryPathName) {
+			if (directory.exists()) {
+				LOGGER.debug("Found package directory {}", directory);
+				// Get the list of the files contained in the package
+				File[] files = directory.listFiles();
+				if (files == null) {
+					return;
+				}
+				entryCount += files.length;
+				for (int i = 0; i < files.length; i++) {
+					final File file = files[i];
+					final String fileName = file.getName();
+					final String filePathName = directoryPathName.length() == 0 ? fileName : directoryPathName
+							+ '/' + fileName;
+					// we are only interested in .class files
+					if (fileName.endsWith(CLASS_SUFFIX) && isInScope(filePathName) && file.isFile()) {
+						try {
+							addClass(new FileInputStream(file), file.getPath());
+						} catch (IOException e) {
+							LOGGER.debug("Could not open class file {}", file, e);
+						}
+					} else if (recursive && file.isDirectory()) {
+						addClasses(file, filePathName);
+					}
+				}
+			}
+		}
+
+		private void addClasses(final JarFile jarFile) throws IOException {
+			for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+				final JarEntry jarEntry = entries.nextElement();
+				entryCount++;
+				final String entryName = jarEntry.getName();
+				if (entryName.endsWith(CLASS_SUFFIX) && !entryName.startsWith("META-INF/") && hasPrefix(entryName)
+						&& isInScope(entryName)) {
+					addClass(jarFile.getInputStream(jarEntry), entryName);
+				}
+			}
+		}
+
+		/**
+		 * Checks if a jar entry is below one of the scanned packages.
+		 *
+		 * @param entryName the entry name
+		 *
+		 * @return true if the entry should be scanned
+		 */
+		private boolean hasPrefix(final String entryName) {
+			if (prefixes == null) {
+				return true;
+			}
+			for (String prefix : prefixes) {
+				if (entryName.startsWith(prefix)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Checks the class of a class file against the filters of the scope.
+		 *
+		 * @param filePathName the path of the class file, relative to the
+		 *        classpath root
+		 *
+		 * @return true if the class file should be read
+		 */
+		private boolean isInScope(final String filePathName) {
+			return !scope.hasFilters()
+					|| scope.acceptsPath(filePathName, filePathName.length() - CLASS_SUFFIX.length());
+		}
+	}
+}
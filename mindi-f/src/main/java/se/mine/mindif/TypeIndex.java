@@ -0,0 +1,282 @@
+package se.mine.mindif;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps every supertype on the classpath to its concrete sub classes. The index
+ * is built with a single classpath scan the first time it is used, and is
+ * shared by all contexts on the same class loader and scan scope. Jar files
+ * and directories with a build time index can be left out of the scan. Only
+ * class names are kept, so the index does not hold on to the classes or the
+ * class loader.
+ *
+ * @author Bjorn
+ */
+final class TypeIndex {
+	private static final LoggerWrapper LOGGER = new LoggerWrapper(TypeIndex.class);
+	private static final Map<ClassLoader, Map<List<Object>, TypeIndex>> INDEXES = Collections
+			.synchronizedMap(new WeakHashMap<ClassLoader, Map<List<Object>, TypeIndex>>());
+	private static final String[] NO_NAMES = new String[0];
+	private static final String OBJECT_NAME = "java.lang.Object";
+
+	private final ScanScope scope;
+	private final Set<File> skippedRoots;
+	private Map<String, String[]> subClassNames;
+
+	/**
+	 * Instantiates a new type index, which is built when it is first used.
+	 *
+	 * @param scope the scan roots and filters
+	 * @param skippedRoots the jar files and directories that are not scanned
+	 */
+	private TypeIndex(final ScanScope scope, final Set<File> skippedRoots) {
+		this.scope = scope;
+		this.skippedRoots = skippedRoots;
+	}
+
+	/**
+	 * Gets the type index for a class loader and a scan scope, which scans
+	 * every root of the scope.
+	 *
+	 * @param classLoader the class loader
+	 * @param scope the scan roots and filters
+	 *
+	 * @return the type index
+	 */
+	static TypeIndex forClassLoader(final ClassLoader classLoader, final ScanScope scope) {
+		return forClassLoader(classLoader, scope, Collections.<File> emptySet());
+	}
+
+	/**
+	 * Gets the type index for a class loader and a scan scope.
+	 *
+	 * @param classLoader the class loader
+	 * @param scope the scan roots and filters
+	 * @param skippedRoots the jar files and directories that are not scanned,
+	 *        since their implementations are indexed at build time
+	 *
+	 * @return the type index
+	 */
+	static TypeIndex forClassLoader(final ClassLoader classLoader, final ScanScope scope,
+			final Set<File> skippedRoots) {
+		final List<Object> key = Arrays.<Object> asList(scope, skippedRoots);
+		synchronized (INDEXES) {
+			Map<List<Object>, TypeIndex> scopeIndexes = INDEXES.get(classLoader);
+			if (scopeIndexes == null) {
+				scopeIndexes = new HashMap<List<Object>, TypeIndex>();
+				INDEXES.put(classLoader, scopeIndexes);
+			}
+			TypeIndex index = scopeIndexes.get(key);
+			if (index == null) {
+				index = new TypeIndex(scope, skippedRoots);
+				scopeIndexes.put(key, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Discards the type indexes of a class loader.
+	 *
+	 * @param classLoader the class loader
+	 */
+	static void invalidate(final ClassLoader classLoader) {
+		INDEXES.remove(classLoader);
+	}
+
+	/**
+	 * Discards the type indexes of all class loaders.
+	 */
+	static void invalidateAll() {
+		INDEXES.clear();
+	}
+
+	/**
+	 * Gets the concrete sub classes of a class. The sub classes are loaded, but
+	 * not initialized.
+	 *
+	 * @param fieldClass the class
+	 * @param classLoader the class loader that the index belongs to
+	 * @param executor scans the classpath if the index is not built yet, or null
+	 *        to scan on the calling thread
+	 * @param listener is told about the classpath scan, or null
+	 *
+	 * @return the sub classes, in classpath scan order
+	 */
+	List<Class<?>> getSubClasses(final Class<?> fieldClass, final ClassLoader classLoader,
+			final ExecutorService executor, final InjectionListener listener) {
+		final String[] names = getSubClassNames(classLoader, executor, listener).get(fieldClass.getName());
+		if (names == null) {
+			return new ArrayList<Class<?>>();
+		}
+		final List<Class<?>> returnValue = new ArrayList<Class<?>>(names.length);
+		for (String name : names) {
+			final Class<?> valueClass = loadClass(name, classLoader, null);
+			if (valueClass != null && fieldClass.isAssignableFrom(valueClass)) {
+				returnValue.add(valueClass);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the index, and builds it if this is the first use.
+	 *
+	 * @param classLoader the class loader that the index belongs to
+	 * @param executor scans the classpath, or null to scan on the calling thread
+	 * @param listener is told about the classpath scan, or null
+	 *
+	 * @return the concrete sub class names by supertype name
+	 */
+	private synchronized Map<String, String[]> getSubClassNames(final ClassLoader classLoader,
+			final ExecutorService executor, final InjectionListener listener) {
+		if (subClassNames == null) {
+			if (listener != null) {
+				listener.scanStarted(classLoader);
+			}
+			final long start = System.nanoTime();
+			final AtomicInteger entriesVisited = new AtomicInteger();
+			final AtomicInteger classesLoaded = new AtomicInteger();
+			subClassNames = build(SubclassLocator.scanClassHeaders(classLoader, scope, skippedRoots, executor,
+					entriesVisited), classLoader, classesLoaded);
+			if (listener != null) {
+				listener.scanFinished(classLoader, entriesVisited.get(), classesLoaded.get(), System.nanoTime()
+						- start);
+			}
+		}
+		return subClassNames;
+	}
+
+	/**
+	 * Builds the index from the scanned class headers.
+	 *
+	 * @param headers the class headers by internal name
+	 * @param classLoader loads supertypes that were not scanned
+	 * @param classesLoaded counts the supertypes that are loaded
+	 *
+	 * @return the concrete sub class names by supertype name
+	 */
+	private static Map<String, String[]> build(final Map<String, ClassHeader> headers, final ClassLoader classLoader,
+			final AtomicInteger classesLoaded) {
+		final Map<String, Set<String>> supertypes = new HashMap<String, Set<String>>();
+		final Map<String, List<String>> names = new LinkedHashMap<String, List<String>>();
+		for (ClassHeader header : headers.values()) {
+			if (!header.isConcrete()) {
+				continue;
+			}
+			final String className = header.getClassName();
+			for (String supertype : getSupertypes(header.getName(), headers, supertypes, classLoader, classesLoaded)) {
+				List<String> subClasses = names.get(supertype);
+				if (subClasses == null) {
+					subClasses = new ArrayList<String>();
+					names.put(supertype, subClasses);
+				}
+				subClasses.add(className);
+			}
+		}
+		final Map<String, String[]> returnValue = new HashMap<String, String[]>(names.size() * 2);
+		for (Map.Entry<String, List<String>> entry : names.entrySet()) {
+			returnValue.put(entry.getKey(), entry.getValue().toArray(NO_NAMES));
+		}
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Indexed {} classes and {} supertypes", headers.size(), returnValue.size());
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the names of a class, its superclasses and all interfaces it
+	 * implements, except java.lang.Object. Classes that were not scanned are
+	 * loaded, but not initialized, to find their supertypes.
+	 *
+	 * @param name the internal class name
+	 * @param headers the class headers by internal name
+	 * @param supertypes the supertypes of already visited classes
+	 * @param classLoader loads supertypes that were not scanned
+	 * @param classesLoaded counts the supertypes that are loaded
+	 *
+	 * @return the supertype names, in binary form
+	 */
+	private static Set<String> getSupertypes(final String name, final Map<String, ClassHeader> headers,
+			final Map<String, Set<String>> supertypes, final ClassLoader classLoader,
+			final AtomicInteger classesLoaded) {
+		Set<String> returnValue = supertypes.get(name);
+		if (returnValue != null) {
+			return returnValue;
+		}
+		returnValue = new LinkedHashSet<String>();
+		supertypes.put(name, returnValue);
+		final ClassHeader header = headers.get(name);
+		if (header != null) {
+			returnValue.add(header.getClassName());
+			if (header.getSuperName() != null) {
+				returnValue.addAll(getSupertypes(header.getSuperName(), headers, supertypes, classLoader,
+						classesLoaded));
+			}
+			for (String interfaceName : header.getInterfaceNames()) {
+				returnValue.addAll(getSupertypes(interfaceName, headers, supertypes, classLoader,
+						classesLoaded));
+			}
+		} else {
+			final Class<?> valueClass = loadClass(name.replace('/', '.'), classLoader, classesLoaded);
+			if (valueClass != null) {
+				addSupertypes(returnValue, valueClass);
+			}
+		}
+		returnValue.remove(OBJECT_NAME);
+		return returnValue;
+	}
+
+	/**
+	 * Adds the names of a loaded class and all its supertypes.
+	 *
+	 * @param names the names to add to
+	 * @param valueClass the class
+	 */
+	private static void addSupertypes(final Set<String> names, final Class<?> valueClass) {
+		if (valueClass == null || !names.add(valueClass.getName())) {
+			return;
+		}
+		addSupertypes(names, valueClass.getSuperclass());
+		for (Class<?> interfaceClass : valueClass.getInterfaces()) {
+			addSupertypes(names, interfaceClass);
+		}
+	}
+
+	/**
+	 * Loads a class without initializing it.
+	 *
+	 * @param className the class name
+	 * @param classLoader the class loader
+	 * @param classesLoaded counts the loaded classes, or null
+	 *
+	 * @return the class, or null if it could not be loaded
+	 */
+	private static Class<?> loadClass(final String className, final ClassLoader classLoader,
+			final AtomicInteger classesLoaded) {
+		try {
+			final Class<?> valueClass = Class.forName(className, false, classLoader);
+			if (classesLoaded != null) {
+				classesLoaded.incrementAndGet();
+			}
+			return valueClass;
+		} catch (ClassNotFoundException e) {
+			LOGGER.debug("Could not find class {}", className);
+		} catch (LinkageError e) {
+			LOGGER.debug("Could not load class {}", className);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,421 @@
+package se.mine.mindif;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import se.mine.mindif.InjectionPlan.InjectedField;
+
+/**
+ * On-disk cache of the wiring that a context has resolved: the injected
+ * fields of each component class and the implementations of each unspecified
+ * interface. The cache is loaded when it is opened, and is only used if the
+ * classpath has the same fingerprint as when it was written. Otherwise
+ * everything is resolved again and the cache is rewritten.
+ * <p>
+ * The implementations are kept per scan scope, since a scope with other
+ * packages or filters can find other implementations of the same interface.
+ * <p>
+ * The fingerprint is made of the path, size and modification time of every
+ * jar file on the classpath, and of every file in the classpath directories,
+ * so no class file has to be read to validate the cache. The cache file
+ * should therefore not be kept in a classpath directory.
+ *
+ * @author Bjorn
+ */
+final class WiringCache {
+	private static final LoggerWrapper LOGGER = new LoggerWrapper(WiringCache.class);
+	private static final String FINGERPRINT_KEY = "fingerprint";
+	private static final String INTERFACE_PREFIX = "interface.";
+	private static final String COMPONENT_PREFIX = "component.";
+	private static final String SEPARATOR = ",";
+	private static final String FIELD_SEPARATOR = "#";
+	private static final String SCOPE_SEPARATOR = "@";
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final File file;
+	private final String fingerprint;
+	private final boolean loaded;
+	private final Map<String, String> interfaces = new ConcurrentHashMap<String, String>();
+	private final Map<String, String> components = new ConcurrentHashMap<String, String>();
+	private final AtomicBoolean changed = new AtomicBoolean();
+
+	/**
+	 * Instantiates a new wiring cache, and loads the file if it was written
+	 * for the same classpath.
+	 *
+	 * @param file the cache file
+	 * @param classPath the classpath to validate the cache against
+	 * @param classLoader loads the cached component classes
+	 */
+	WiringCache(final File file, final String classPath, final ClassLoader classLoader) {
+		this.file = file;
+		this.fingerprint = fingerprint(classPath);
+		this.loaded = load(classLoader);
+	}
+
+	/**
+	 * Checks if the cache file was valid when the cache was opened.
+	 *
+	 * @return true if the wiring was loaded from the file
+	 */
+	boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Reads the cache file, if it exists and has the current fingerprint.
+	 *
+	 * @param classLoader loads the cached component classes
+	 *
+	 * @return true if the file was valid
+	 */
+	private boolean load(final ClassLoader classLoader) {
+		if (!file.isFile()) {
+			return false;
+		}
+		final Properties properties = new Properties();
+		try {
+			final InputStream inputStream = new FileInputStream(file);
+			try {
+				properties.load(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not read wiring cache {}", file, e);
+			return false;
+		}
+		if (!fingerprint.equals(properties.getProperty(FINGERPRINT_KEY))) {
+			LOGGER.debug("Wiring cache {} is stale", file);
+			return false;
+		}
+		for (String key : properties.stringPropertyNames()) {
+			if (key.startsWith(INTERFACE_PREFIX)) {
+				interfaces.put(key.substring(INTERFACE_PREFIX.length()), properties.getProperty(key));
+			} else if (key.startsWith(COMPONENT_PREFIX)) {
+				final String className = key.substring(COMPONENT_PREFIX.length());
+				final String fieldNames = properties.getProperty(key);
+				components.put(className, fieldNames);
+				preparePlan(className, fieldNames, classLoader);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the injection plan of a cached component from its field names.
+	 *
+	 * @param className the component class name
+	 * @param fieldNames the injected fields
+	 * @param classLoader loads the component class
+	 */
+	private static void preparePlan(final String className, final String fieldNames, final ClassLoader classLoader) {
+		try {
+			final Class<?> componentClass = Class.forName(className, false, classLoader);
+			InjectionPlan.prepare(componentClass, split(fieldNames));
+		} catch (ClassNotFoundException e) {
+			LOGGER.debug("Cached component {} could not be found", className);
+		} catch (LinkageError e) {
+			LOGGER.debug("Cached component {} could not be loaded", className);
+		}
+	}
+
+	/**
+	 * Gets the cached implementations of an unspecified interface.
+	 *
+	 * @param fieldClass the interface
+	 * @param scopeKey the key of the scan scope they were found in
+	 *
+	 * @return the implementing classes, or null if the interface is not cached
+	 *         or the cached classes do not match
+	 */
+	List<Class<?>> getSubClasses(final Class<?> fieldClass, final String scopeKey) {
+		final String names = interfaces.get(getInterfaceKey(fieldClass, scopeKey));
+		if (names == null) {
+			return null;
+		}
+		final ClassLoader fieldClassLoader = fieldClass.getClassLoader();
+		final ClassLoader classLoader = fieldClassLoader == null ? ClassLoader.getSystemClassLoader()
+				: fieldClassLoader;
+		final List<Class<?>> returnValue = new ArrayList<Class<?>>();
+		for (String name : split(names)) {
+			try {
+				final Class<?> valueClass = Class.forName(name, false, classLoader);
+				if (!fieldClass.isAssignableFrom(valueClass)) {
+					return null;
+				}
+				returnValue.add(valueClass);
+			} catch (ClassNotFoundException e) {
+				return null;
+			} catch (LinkageError e) {
+				return null;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Adds the resolved implementations of an unspecified interface.
+	 *
+	 * @param fieldClass the interface
+	 * @param scopeKey the key of the scan scope they were found in
+	 * @param subClasses the implementing classes
+	 */
+	void putSubClasses(final Class<?> fieldClass, final String scopeKey, final List<Class<?>> subClasses) {
+		final StringBuilder names = new StringBuilder();
+		for (Class<?> subClass : subClasses) {
+			if (names.length() > 0) {
+				names.append(SEPARATOR);
+			}
+			names.append(subClass.getName());
+		}
+		if (!names.toString().equals(interfaces.put(getInterfaceKey(fieldClass, scopeKey), names.toString()))) {
+			changed.set(true);
+		}
+	}
+
+	/**
+	 * Gets the key of an interface in the cache. The default scope has no
+	 * suffix.
+	 *
+	 * @param fieldClass the interface
+	 * @param scopeKey the key of the scan scope
+	 *
+	 * @return the key
+	 */
+	private static String getInterfaceKey(final Class<?> fieldClass, final String scopeKey) {
+		return scopeKey.length() == 0 ? fieldClass.getName() : fieldClass.getName() + SCOPE_SEPARATOR + scopeKey;
+	}
+
+	/**
+	 * Adds the injected fields of a component class, unless it is already in
+	 * the cache. Classes with a generated injector do not need their fields to
+	 * be discovered, so they are left out.
+	 *
+	 * @param plan the injection plan of the component class
+	 */
+	void putComponent(final InjectionPlan plan) {
+		final String className = plan.getComponentClass().getName();
+		if (plan.getGeneratedInjector() != null || components.containsKey(className)) {
+			return;
+		}
+		final StringBuilder fieldNames = new StringBuilder();
+		for (InjectedField injectedField : plan.getFields()) {
+			if (fieldNames.length() > 0) {
+				fieldNames.append(SEPARATOR);
+			}
+			fieldNames.append(injectedField.getField().getDeclaringClass().getName()).append(FIELD_SEPARATOR).append(
+					injectedField.getField().getName());
+		}
+		if (components.put(className, fieldNames.toString()) == null) {
+			changed.set(true);
+		}
+	}
+
+	/**
+	 * Writes the cache file if anything was added since it was loaded or last
+	 * written. The file is replaced atomically where the file system allows it.
+	 * Write errors are logged, since the cache is only an optimization.
+	 */
+	synchronized void saveIfChanged() {
+		if (!changed.getAndSet(false)) {
+			return;
+		}
+		final Properties properties = new Properties();
+		properties.setProperty(FINGERPRINT_KEY, fingerprint);
+		for (Map.Entry<String, String> entry : interfaces.entrySet()) {
+			properties.setProperty(INTERFACE_PREFIX + entry.getKey(), entry.getValue());
+		}
+		for (Map.Entry<String, String> entry : components.entrySet()) {
+			properties.setProperty(COMPONENT_PREFIX + entry.getKey(), entry.getValue());
+		}
+		final File directory = file.getAbsoluteFile().getParentFile();
+		try {
+			if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Cannot create directory " + directory);
+			}
+			final File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+			try {
+				final OutputStream outputStream = new FileOutputStream(tempFile);
+				try {
+					properties.store(outputStream, "MinDI F wiring cache");
+				} finally {
+					outputStream.close();
+				}
+				if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+					throw new IOException("Cannot replace " + file);
+				}
+			} finally {
+				if (tempFile.exists() && !tempFile.delete()) {
+					tempFile.deleteOnExit();
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.info("Could not write wiring cache {}", file, e);
+		}
+	}
+
+	/**
+	 * Computes the fingerprint of a classpath from the sizes and modification
+	 * times of its files. The jar files that are listed in the manifest
+	 * <code>Class-Path</code> of a jar file are included, so that applications
+	 * that are started with <code>java -jar</code> are covered.
+	 *
+	 * @param classPath the classpath
+	 *
+	 * @return the fingerprint
+	 */
+	static String fingerprint(final String classPath) {
+		long hash = FNV_OFFSET;
+		final Set<File> visited = new HashSet<File>();
+		for (String element : classPath.split(File.pathSeparator)) {
+			if (element.length() > 0) {
+				hash = addClassPathElement(hash, new File(element).getAbsoluteFile(), visited);
+			}
+		}
+		return Long.toHexString(hash);
+	}
+
+	/**
+	 * Adds a classpath element to a fingerprint, and the jar files that its
+	 * manifest refers to.
+	 *
+	 * @param hash the fingerprint so far
+	 * @param element the jar file or directory
+	 * @param visited the elements that are already added
+	 *
+	 * @return the new fingerprint
+	 */
+	private static long addClassPathElement(final long hash, final File element, final Set<File> visited) {
+		if (!visited.add(element)) {
+			return hash;
+		}
+		long returnValue = addFile(hash, element);
+		if (element.isFile()) {
+			for (File manifestElement : getManifestClassPath(element)) {
+				returnValue = addClassPathElement(returnValue, manifestElement, visited);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the manifest <code>Class-Path</code> entries of a jar file.
+	 *
+	 * @param jarFile the jar file
+	 *
+	 * @return the referenced files
+	 */
+	private static List<File> getManifestClassPath(final File jarFile) {
+		final List<File> returnValue = new ArrayList<File>();
+		try {
+			final JarFile jar = new JarFile(jarFile);
+			try {
+				final Manifest manifest = jar.getManifest();
+				final String classPath = manifest == null ? null : manifest.getMainAttributes().getValue(
+						Attributes.Name.CLASS_PATH);
+				if (classPath != null) {
+					for (String entry : classPath.trim().split("\\s+")) {
+						final URL url = new URL(jarFile.toURI().toURL(), entry);
+						if ("file".equals(url.getProtocol())) {
+							returnValue.add(new File(url.toURI()).getAbsoluteFile());
+						}
+					}
+				}
+			} finally {
+				jar.close();
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not read manifest of {}", jarFile, e);
+		} catch (URISyntaxException e) {
+			LOGGER.debug("Could not read manifest of {}", jarFile, e);
+		} catch (IllegalArgumentException e) {
+			LOGGER.debug("Could not read manifest of {}", jarFile, e);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Adds a file, or all files in a directory, to a fingerprint.
+	 *
+	 * @param hash the fingerprint so far
+	 * @param file the file or directory
+	 *
+	 * @return the new fingerprint
+	 */
+	private static long addFile(final long hash, final File file) {
+		long returnValue = addString(hash, file.getPath());
+		final File[] files = file.listFiles();
+		if (files == null) {
+			returnValue = addLong(returnValue, file.length());
+			return addLong(returnValue, file.lastModified());
+		}
+		Arrays.sort(files);
+		for (File child : files) {
+			returnValue = addFile(returnValue, child);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Adds a string to an FNV-1a hash.
+	 *
+	 * @param hash the hash so far
+	 * @param value the string
+	 *
+	 * @return the new hash
+	 */
+	private static long addString(final long hash, final String value) {
+		long returnValue = hash;
+		for (int i = 0; i < value.length(); i++) {
+			returnValue = (returnValue ^ value.charAt(i)) * FNV_PRIME;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Adds a number to an FNV-1a hash.
+	 *
+	 * @param hash the hash so far
+	 * @param value the number
+	 *
+	 * @return the new hash
+	 */
+	private static long addLong(final long hash, final long value) {
+		long returnValue = hash;
+		for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+			returnValue = (returnValue ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Splits a comma separated list of names.
+	 *
+	 * @param names the names
+	 *
+	 * @return the names, or an empty array
+	 */
+	private static String[] split(final String names) {
+		return names.length() == 0 ? new String[0] : names.split(SEPARATOR);
+	}
+}
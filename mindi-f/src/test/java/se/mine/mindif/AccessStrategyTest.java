@@ -0,0 +1,119 @@
+package se.mine.mindif;
+
+import junit.framework.TestCase;
+
+@SuppressWarnings("unused")
+public class AccessStrategyTest extends TestCase {
+
+	public void testInjectWithReflection() {
+		assertInjection(AccessStrategy.REFLECTION);
+	}
+
+	public void testInjectWithMethodHandles() {
+		assertInjection(AccessStrategy.METHOD_HANDLES);
+	}
+
+	public void testFailingConstructorWithReflection() {
+		assertFailingConstructor(AccessStrategy.REFLECTION);
+	}
+
+	public void testFailingConstructorWithMethodHandles() {
+		assertFailingConstructor(AccessStrategy.METHOD_HANDLES);
+	}
+
+	public void testAbstractClassWithReflection() {
+		assertAbstractClass(AccessStrategy.REFLECTION);
+	}
+
+	public void testAbstractClassWithMethodHandles() {
+		assertAbstractClass(AccessStrategy.METHOD_HANDLES);
+	}
+
+	public void testStaticFieldWithReflection() {
+		assertStaticField(AccessStrategy.REFLECTION);
+	}
+
+	public void testStaticFieldWithMethodHandles() {
+		assertStaticField(AccessStrategy.METHOD_HANDLES);
+	}
+
+	private void assertInjection(final AccessStrategy accessStrategy) {
+		final BaseComponent base = new BaseComponent();
+		new Context(accessStrategy).inject(base);
+		assertNotNull(base.testComponent);
+		assertNotNull(base.testComponent.privateComponent);
+		assertSame(base.privateComponent, base.testComponent.privateComponent);
+	}
+
+	private void assertFailingConstructor(final AccessStrategy accessStrategy) {
+		try {
+			new Context(accessStrategy).inject(new BaseComponentWithFailingConstructor());
+			fail();
+		} catch (RuntimeException rex) {
+			assertEquals("Cannot create an instance of se.mine.mindif.AccessStrategyTest$FailingComponent", rex
+					.getMessage());
+			assertEquals(IllegalStateException.class, rex.getCause().getClass());
+			assertEquals("Failed", rex.getCause().getMessage());
+		}
+	}
+
+	private void assertAbstractClass(final AccessStrategy accessStrategy) {
+		try {
+			new Context(accessStrategy).inject(new BaseComponentWithAbstract());
+			fail();
+		} catch (RuntimeException rex) {
+			assertEquals("Cannot create an instance of se.mine.mindif.AccessStrategyTest$AbstractComponent", rex
+					.getMessage());
+			assertEquals(InstantiationException.class, rex.getCause().getClass());
+		}
+	}
+
+	private void assertStaticField(final AccessStrategy accessStrategy) {
+		new Context(accessStrategy).inject(new BaseComponentWithStatic());
+		assertNotNull(BaseComponentWithStatic.staticComponent);
+		BaseComponentWithStatic.staticComponent = null;
+	}
+
+	static class BaseComponent {
+		@Dependency
+		private TestComponent testComponent;
+
+		@Dependency
+		private PrivateComponent privateComponent;
+	}
+
+	static class BaseComponentWithFailingConstructor {
+		@Dependency
+		private FailingComponent failingComponent;
+	}
+
+	static class BaseComponentWithAbstract {
+		@Dependency
+		private AbstractComponent abstractComponent;
+	}
+
+	static class BaseComponentWithStatic {
+		@Dependency
+		private static TestComponent staticComponent;
+	}
+
+	static class TestComponent {
+		@Dependency
+		private PrivateComponent privateComponent;
+	}
+
+	static final class PrivateComponent {
+		private PrivateComponent() {
+		}
+	}
+
+	static class FailingComponent {
+		FailingComponent() {
+			throw new IllegalStateException("Failed");
+		}
+	}
+
+	abstract static class AbstractComponent {
+	}
+
+}
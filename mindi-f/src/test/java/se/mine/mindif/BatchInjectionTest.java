@@ -0,0 +1,106 @@
+package se.mine.mindif;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+public class BatchInjectionTest extends TestCase {
+
+	public void testInjectAll() {
+		final Context context = new Context();
+		final List<Object> components = new ArrayList<Object>();
+		for (int i = 0; i < 10; i++) {
+			components.add(new RecordProcessor());
+			components.add(new RecordWriter());
+		}
+		context.injectAll(components);
+
+		final RecordProcessor first = (RecordProcessor) components.get(0);
+		assertNotNull(first.repository);
+		assertNotNull(first.buffer);
+		assertSame(first.repository, first.writer.repository);
+		for (Object component : components) {
+			if (component instanceof RecordProcessor) {
+				final RecordProcessor processor = (RecordProcessor) component;
+				assertSame(first.repository, processor.repository);
+				assertSame(first.writer, processor.writer);
+				assertSame(first.writerProvider, processor.writerProvider);
+				if (processor != first) {
+					assertNotSame(first.buffer, processor.buffer);
+				}
+			} else {
+				assertSame(first.repository, ((RecordWriter) component).repository);
+			}
+		}
+		assertSame(first.repository, first.writerProvider.get().repository);
+	}
+
+	public void testInjectAllSharesContextInstances() {
+		final Context context = new Context();
+		final RecordProcessor single = new RecordProcessor();
+		context.inject(single);
+		final RecordProcessor[] components = { new RecordProcessor(), new RecordProcessor() };
+		context.injectAll(components);
+		assertSame(single.repository, components[0].repository);
+		assertSame(single.writer, components[1].writer);
+	}
+
+	public void testInjectAllConcurrently() {
+		final Context context = new Context();
+		final Object[] components = new Object[20000];
+		for (int i = 0; i < components.length; i++) {
+			components[i] = i % 3 == 0 ? new RecordWriter() : new RecordProcessor();
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			context.injectAll(components, executor);
+		} finally {
+			executor.shutdown();
+		}
+		final Repository repository = ((RecordWriter) components[0]).repository;
+		assertNotNull(repository);
+		for (Object component : components) {
+			if (component instanceof RecordProcessor) {
+				assertSame(repository, ((RecordProcessor) component).repository);
+				assertNotNull(((RecordProcessor) component).buffer);
+			} else {
+				assertSame(repository, ((RecordWriter) component).repository);
+			}
+		}
+	}
+
+	public void testListenerIsCalledForEveryField() {
+		final Context context = new Context();
+		final int[] fields = new int[1];
+		context.addListener(new InjectionListenerAdapter() {
+			@Override
+			public void fieldInjected(final Class<?> declaringClass, final String fieldName, final Object value) {
+				fields[0]++;
+			}
+		});
+		context.injectAll(new Object[] { new RecordWriter(), new RecordWriter(), new RecordWriter() });
+		assertEquals(3, fields[0]);
+	}
+
+	static class RecordProcessor {
+		@Dependency
+		private Repository repository;
+		@Dependency
+		private RecordWriter writer;
+		@Dependency(scope = Scope.PROTOTYPE)
+		private StringBuilder buffer;
+		@Dependency
+		private Provider<RecordWriter> writerProvider;
+	}
+
+	static class RecordWriter {
+		@Dependency
+		private Repository repository;
+	}
+
+	static class Repository {
+	}
+}
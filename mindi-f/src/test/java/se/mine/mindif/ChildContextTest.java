@@ -0,0 +1,77 @@
+package se.mine.mindif;
+
+import junit.framework.TestCase;
+
+public class ChildContextTest extends TestCase {
+
+	public void testChildReusesParentInstances() {
+		final Context parent = new Context();
+		final Application application = new Application();
+		parent.inject(application);
+
+		final Context child = parent.createChild();
+		assertSame(parent, child.getParent());
+		final RequestHandler handler = new RequestHandler();
+		child.inject(handler);
+		assertSame(application.repository, handler.repository);
+		assertSame(application.repository, handler.requestState.repository);
+		assertNotNull(handler.requestState);
+	}
+
+	public void testChildInstancesAreNotShared() {
+		final Context parent = new Context();
+		parent.inject(new Application());
+		final RequestHandler first = new RequestHandler();
+		parent.createChild().inject(first);
+		final RequestHandler second = new RequestHandler();
+		parent.createChild().inject(second);
+		assertNotSame(first.requestState, second.requestState);
+		assertSame(first.repository, second.repository);
+
+		final RequestHandler inParent = new RequestHandler();
+		parent.inject(inParent);
+		assertNotSame(first.requestState, inParent.requestState);
+	}
+
+	public void testGrandChild() {
+		final Context parent = new Context();
+		final Application application = new Application();
+		parent.inject(application);
+		final Context child = parent.createChild();
+		final RequestHandler handler = new RequestHandler();
+		child.inject(handler);
+		final RequestHandler nested = new RequestHandler();
+		child.createChild().inject(nested);
+		assertSame(handler.requestState, nested.requestState);
+		assertSame(application.repository, nested.repository);
+	}
+
+	public void testChildInheritsSettings() {
+		final Context parent = new Context(AccessStrategy.REFLECTION);
+		final Context child = parent.createChild();
+		assertNull(parent.getParent());
+		final RequestHandler handler = new RequestHandler();
+		child.inject(handler);
+		assertNotNull(handler.requestState.repository);
+	}
+
+	static class Application {
+		@Dependency
+		private Repository repository;
+	}
+
+	static class RequestHandler {
+		@Dependency
+		private Repository repository;
+		@Dependency
+		private RequestState requestState;
+	}
+
+	static class RequestState {
+		@Dependency
+		private Repository repository;
+	}
+
+	static class Repository {
+	}
+}
@@ -0,0 +1,105 @@
+package se.mine.mindif;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+
+import junit.framework.TestCase;
+
+@SuppressWarnings("serial")
+public class ClassHeaderTest extends TestCase {
+
+	public void testConcreteClass() throws IOException {
+		final ClassHeader header = read(ConcreteComponent.class);
+		assertEquals("se/mine/mindif/ClassHeaderTest$ConcreteComponent", header.getName());
+		assertEquals("se.mine.mindif.ClassHeaderTest$ConcreteComponent", header.getClassName());
+		assertEquals("se/mine/mindif/ClassHeaderTest$AbstractComponent", header.getSuperName());
+		assertEquals(1, header.getInterfaceNames().length);
+		assertEquals("java/lang/Runnable", header.getInterfaceNames()[0]);
+		assertTrue(header.isConcrete());
+	}
+
+	public void testAbstractClass() throws IOException {
+		final ClassHeader header = read(AbstractComponent.class);
+		assertEquals("java/lang/Object", header.getSuperName());
+		assertEquals(2, header.getInterfaceNames().length);
+		assertEquals("java/io/Serializable", header.getInterfaceNames()[0]);
+		assertEquals("java/lang/Comparable", header.getInterfaceNames()[1]);
+		assertFalse(header.isConcrete());
+	}
+
+	public void testNotConcrete() throws IOException {
+		assertFalse(read(Runnable.class).isConcrete());
+		assertFalse(read(Dependency.class).isConcrete());
+		assertFalse(read(AccessStrategy.class).isConcrete());
+		assertNull(read(Object.class).getSuperName());
+	}
+
+	public void testConstantPoolWithWideEntries() throws IOException {
+		final ClassHeader header = read(Constants.class);
+		assertEquals("se/mine/mindif/ClassHeaderTest$Constants", header.getName());
+		assertTrue(header.isConcrete());
+	}
+
+	public void testInvalidClassFile() {
+		try {
+			ClassHeader.read(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 }, 12);
+			fail();
+		} catch (IOException e) {
+			assertEquals("Not a class file", e.getMessage());
+		}
+	}
+
+	public void testTruncatedClassFile() throws IOException {
+		final byte[] bytes = getBytes(ConcreteComponent.class);
+		try {
+			ClassHeader.read(bytes, bytes.length / 2);
+			fail();
+		} catch (IOException e) {
+			assertEquals("Truncated class file", e.getMessage());
+		}
+	}
+
+	private static ClassHeader read(final Class<?> clazz) throws IOException {
+		final byte[] bytes = getBytes(clazz);
+		return ClassHeader.read(bytes, bytes.length);
+	}
+
+	private static byte[] getBytes(final Class<?> clazz) throws IOException {
+		final String resourceName = "/" + clazz.getName().replace('.', '/') + ".class";
+		final InputStream inputStream = clazz.getResourceAsStream(resourceName);
+		try {
+			final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[1024];
+			for (int count = inputStream.read(buffer); count != -1; count = inputStream.read(buffer)) {
+				outputStream.write(buffer, 0, count);
+			}
+			return outputStream.toByteArray();
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	abstract static class AbstractComponent implements Serializable, Comparable<Object> {
+	}
+
+	static class ConcreteComponent extends AbstractComponent implements Runnable {
+		public void run() {
+		}
+
+		public int compareTo(final Object o) {
+			return 0;
+		}
+	}
+
+	static class Constants {
+		private long longValue = 1234567890123L;
+		private double doubleValue = 3.14159265358979;
+		private String text = "åäö";
+
+		public String toString() {
+			return longValue + " " + doubleValue + text;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package se.mine.mindif;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+@SuppressWarnings("unused")
+public class ClassListRecorderTest extends TestCase {
+	private ClassListRecorder recorder;
+	private Context context;
+
+	@Override
+	protected void setUp() {
+		recorder = new ClassListRecorder();
+		context = new Context();
+		context.setScanScope(ScanScope.packages("se.mine.mindif").include(ClassListRecorderTest.class.getName()));
+		context.setClassListRecorder(recorder);
+	}
+
+	public void testRecordsTheInjectedClasses() {
+		context.inject(new Component());
+		final List<String> classNames = recorder.getClassNames();
+		assertTrue(classNames.contains(internalName(Context.class)));
+		assertTrue(classNames.contains(internalName(Component.class)));
+		assertTrue(classNames.contains(internalName(Service.class)));
+		assertTrue(classNames.contains(internalName(ServiceImpl.class)));
+		assertTrue(classNames.contains(internalName(Helper.class)));
+		assertTrue(classNames.contains(internalName(Repository.class)));
+		// Supertypes come before the classes that extend them
+		assertTrue(classNames.indexOf(internalName(BaseService.class)) < classNames
+				.indexOf(internalName(ServiceImpl.class)));
+		assertTrue(classNames.indexOf(internalName(Service.class)) < classNames
+				.indexOf(internalName(BaseService.class)));
+	}
+
+	public void testRecordsAllFrameworkClasses() {
+		final List<String> classNames = new ClassListRecorder().getClassNames();
+		assertTrue(classNames.contains(internalName(InstancePool.class)));
+		assertTrue(classNames.contains(internalName(FrozenRegistry.class)));
+		assertTrue(classNames.contains(internalName(WiringCache.class)));
+		assertTrue(classNames.contains(internalName(LazyDependency.class)));
+		assertTrue(classNames.contains(internalName(ListenerChain.class)));
+		assertTrue(classNames.contains(internalName(DependencyGraph.class)));
+		assertTrue(classNames.contains(internalName(InjectionPlan.InjectedField.class)));
+		assertFalse(classNames.contains(internalName(ClassListRecorderTest.class)));
+	}
+
+	public void testFeatureVersion() {
+		assertEquals(7, ClassListRecorder.getFeatureVersion("1.7"));
+		assertEquals(8, ClassListRecorder.getFeatureVersion("1.8"));
+		assertEquals(11, ClassListRecorder.getFeatureVersion("11"));
+		assertEquals(17, ClassListRecorder.getFeatureVersion("17.0"));
+		assertEquals(0, ClassListRecorder.getFeatureVersion(""));
+	}
+
+	public void testChildContextsRecordIntoTheSameList() {
+		final Context child = context.createChild();
+		child.inject(new Component());
+		assertTrue(recorder.getClassNames().contains(internalName(Component.class)));
+	}
+
+	public void testNoRecordingWithoutRecorder() {
+		context.setClassListRecorder(null);
+		context.inject(new Component());
+		assertFalse(recorder.getClassNames().contains(internalName(Component.class)));
+	}
+
+	public void testWriteClassList() throws IOException {
+		context.inject(new Component());
+		final File file = File.createTempFile("mindif", ".classlist");
+		try {
+			recorder.writeClassList(file);
+			final List<String> lines = new ArrayList<String>();
+			final BufferedReader reader = new BufferedReader(new FileReader(file));
+			try {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					lines.add(line);
+				}
+			} finally {
+				reader.close();
+			}
+			assertEquals(recorder.getClassNames(), lines);
+		} finally {
+			assertTrue(file.delete());
+		}
+	}
+
+	private static String internalName(final Class<?> clazz) {
+		return clazz.getName().replace('.', '/');
+	}
+
+	static class Component {
+		@Dependency
+		private Service service;
+
+		@Dependency
+		private Helper helper;
+	}
+
+	static interface Service {
+	}
+
+	abstract static class BaseService implements Service {
+	}
+
+	static class ServiceImpl extends BaseService {
+	}
+
+	static class Helper {
+		@Dependency
+		private Repository repository;
+	}
+
+	static class Repository {
+	}
+}
@@ -0,0 +1,165 @@
+package se.mine.mindif;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+@SuppressWarnings("unused")
+public class CollectionInjectionTest extends TestCase {
+	private static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+
+	private Context context;
+
+	@Override
+	protected void setUp() {
+		CONSTRUCTED.set(0);
+		context = new Context();
+		context.setScanScope(ScanScope.packages("se.mine.mindif").include(CollectionInjectionTest.class.getName()));
+	}
+
+	public void testListGetsAllImplementationsInOrder() {
+		final Dispatcher dispatcher = new Dispatcher();
+		context.inject(dispatcher);
+		assertEquals(2, dispatcher.handlers.size());
+		assertEquals(FirstHandler.class, dispatcher.handlers.get(0).getClass());
+		assertEquals(SecondHandler.class, dispatcher.handlers.get(1).getClass());
+		assertSame(dispatcher.handlers.get(0), context.get(FirstHandler.class));
+		assertSame(context.get(Repository.class), ((FirstHandler) dispatcher.handlers.get(0)).repository);
+		try {
+			dispatcher.handlers.clear();
+			fail("Should throw exception");
+		} catch (UnsupportedOperationException e) {
+			assertEquals(2, dispatcher.handlers.size());
+		}
+	}
+
+	public void testArrayGetsItsOwnCopy() {
+		final Dispatcher first = new Dispatcher();
+		final Dispatcher second = new Dispatcher();
+		context.inject(first);
+		context.inject(second);
+		assertNotSame(first.handlerArray, second.handlerArray);
+		assertEquals(first.handlers, Arrays.asList(second.handlerArray));
+		assertEquals(0, first.missing.size());
+	}
+
+	public void testBatchInjectionSharesTheList() {
+		final List<Dispatcher> dispatchers = new ArrayList<Dispatcher>();
+		for (int i = 0; i < 3; i++) {
+			dispatchers.add(new Dispatcher());
+		}
+		context.injectAll(dispatchers);
+		assertSame(dispatchers.get(0).handlers, dispatchers.get(2).handlers);
+		assertNotSame(dispatchers.get(0).handlerArray, dispatchers.get(2).handlerArray);
+	}
+
+	public void testOnlyTheChosenCandidateIsConstructed() {
+		final CountedUser user = new CountedUser();
+		context.inject(user);
+		assertEquals(CountedImpl.class, user.counted.getClass());
+		assertEquals(1, CONSTRUCTED.get());
+	}
+
+	public void testAmbiguousCandidatesAreNotConstructed() {
+		try {
+			context.inject(new AmbiguousUser());
+			fail("Should throw exception");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Found more than one implementation of interface: "
+					+ Ambiguous.class.getName()));
+		}
+		assertEquals(0, CONSTRUCTED.get());
+		assertEquals(0, context.getInstanceStatistics().getInstanceCount());
+	}
+
+	public void testListWithImplementingClassIsASingleDependency() {
+		final NamedList namedList = new NamedList();
+		context.inject(namedList);
+		assertEquals(ArrayList.class, namedList.list.getClass());
+	}
+
+	static class Dispatcher {
+		@Dependency
+		private List<Handler> handlers;
+
+		@Dependency
+		private Handler[] handlerArray;
+
+		@Dependency
+		private List<Missing> missing;
+	}
+
+	static class NamedList {
+		@Dependency(ArrayList.class)
+		private List<String> list;
+	}
+
+	static interface Handler {
+	}
+
+	static class FirstHandler implements Handler {
+		@Dependency
+		private Repository repository;
+	}
+
+	static class SecondHandler implements Handler {
+	}
+
+	/**
+	 * Cannot be instantiated, so it is not an implementation.
+	 */
+	abstract static class AbstractHandler implements Handler {
+	}
+
+	static class Repository {
+	}
+
+	static interface Missing {
+	}
+
+	static class CountedUser {
+		@Dependency
+		private Counted counted;
+	}
+
+	static interface Counted {
+	}
+
+	static class CountedImpl implements Counted {
+		CountedImpl() {
+			CONSTRUCTED.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Has no no-arg constructor, so it is not a candidate.
+	 */
+	static class ConfiguredCounted implements Counted {
+		ConfiguredCounted(final int value) {
+			CONSTRUCTED.incrementAndGet();
+		}
+	}
+
+	static class AmbiguousUser {
+		@Dependency
+		private Ambiguous ambiguous;
+	}
+
+	static interface Ambiguous {
+	}
+
+	static class FirstAmbiguous implements Ambiguous {
+		FirstAmbiguous() {
+			CONSTRUCTED.incrementAndGet();
+		}
+	}
+
+	static class SecondAmbiguous implements Ambiguous {
+		SecondAmbiguous() {
+			CONSTRUCTED.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package se.mine.mindif;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class ConcurrentInjectionTest extends TestCase {
+	private static final int THREADS = 32;
+	private static final int ROUNDS = 50;
+	private static final AtomicInteger SLOW_CREATED = new AtomicInteger();
+	private static final AtomicInteger SHARED_CREATED = new AtomicInteger();
+
+	private ExecutorService executor;
+
+	@Override
+	protected void setUp() throws Exception {
+		executor = Executors.newFixedThreadPool(THREADS);
+		SLOW_CREATED.set(0);
+		SHARED_CREATED.set(0);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	public void testEachClassIsConstructedOnce() throws Exception {
+		final Context context = new Context();
+		final List<Consumer> consumers = injectConcurrently(context, Consumer.class);
+		assertEquals(1, SLOW_CREATED.get());
+		assertEquals(1, SHARED_CREATED.get());
+		final Consumer first = consumers.get(0);
+		for (Consumer consumer : consumers) {
+			assertSame(first.slowService, consumer.slowService);
+			assertSame(first.sharedService, consumer.sharedService);
+		}
+		assertSame(first.sharedService, first.slowService.sharedService);
+	}
+
+	public void testConcurrentCyclesDoNotDeadlock() throws Exception {
+		final Context context = new Context();
+		final List<CycleRoot> roots = injectConcurrently(context, CycleRoot.class);
+		final CycleRoot first = roots.get(0);
+		for (CycleRoot root : roots) {
+			assertSame(first.left, root.left);
+			assertSame(first.right, root.right);
+		}
+		assertSame(first.left, first.right.left);
+		assertSame(first.right, first.left.right);
+	}
+
+	public void testComponentIsWiredWhenInjectReturns() throws Exception {
+		for (int i = 0; i < ROUNDS; i++) {
+			final List<SlowRoot> roots = injectConcurrently(new Context(), SlowRoot.class);
+			assertSame(roots.get(0).wired, roots.get(THREADS - 1).wired);
+		}
+	}
+
+	public void testFailedConstructionIsRetried() throws Exception {
+		final Context context = new Context();
+		FlakyService.FAILURES.set(1);
+		try {
+			context.inject(new FlakyConsumer());
+			fail();
+		} catch (RuntimeException e) {
+			assertEquals("Cannot create an instance of " + FlakyService.class.getName(), e.getMessage());
+		}
+		final FlakyConsumer consumer = new FlakyConsumer();
+		context.inject(consumer);
+		assertNotNull(consumer.service);
+	}
+
+	private <T> List<T> injectConcurrently(final Context context, final Class<T> componentClass) throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Callable<T>> tasks = new ArrayList<Callable<T>>();
+		for (int i = 0; i < THREADS; i++) {
+			tasks.add(new Callable<T>() {
+				public T call() throws Exception {
+					final T component = componentClass.getDeclaredConstructor().newInstance();
+					start.await();
+					context.inject(component);
+					((Checked) component).checkWired();
+					return component;
+				}
+			});
+		}
+		final List<Future<T>> futures = new ArrayList<Future<T>>();
+		for (Callable<T> task : tasks) {
+			futures.add(executor.submit(task));
+		}
+		start.countDown();
+		final List<T> components = new ArrayList<T>();
+		for (Future<T> future : futures) {
+			components.add(future.get(10, TimeUnit.SECONDS));
+		}
+		return components;
+	}
+
+	/**
+	 * Checks the dependencies of a component right after it is injected, on the
+	 * injecting thread.
+	 */
+	interface Checked {
+		void checkWired();
+	}
+
+	static class Consumer implements Checked {
+		@Dependency
+		private SlowService slowService;
+		@Dependency
+		private SharedService sharedService;
+
+		public void checkWired() {
+			assertNotNull(sharedService);
+			assertSame(sharedService, slowService.sharedService);
+		}
+	}
+
+	static class SlowService {
+		@Dependency
+		private SharedService sharedService;
+
+		SlowService() throws InterruptedException {
+			SLOW_CREATED.incrementAndGet();
+			Thread.sleep(50);
+		}
+	}
+
+	static class SharedService {
+		SharedService() {
+			SHARED_CREATED.incrementAndGet();
+		}
+	}
+
+	static class CycleRoot implements Checked {
+		@Dependency
+		private CycleLeft left;
+		@Dependency
+		private CycleRight right;
+
+		public void checkWired() {
+			assertSame(left, right.left);
+			assertSame(right, left.right);
+		}
+	}
+
+	static class CycleLeft {
+		@Dependency
+		private CycleRight right;
+
+		CycleLeft() throws InterruptedException {
+			Thread.sleep(10);
+		}
+	}
+
+	static class CycleRight {
+		@Dependency
+		private CycleLeft left;
+
+		CycleRight() throws InterruptedException {
+			Thread.sleep(10);
+		}
+	}
+
+	static class SlowRoot implements Checked {
+		@Dependency
+		private SlowWired wired;
+
+		public void checkWired() {
+			assertNotNull(wired.leaf);
+		}
+	}
+
+	static class SlowWired {
+		@Dependency
+		private Leaf leaf;
+
+		SlowWired() throws InterruptedException {
+			Thread.sleep(30);
+		}
+	}
+
+	static class Leaf {
+	}
+
+	static class FlakyConsumer {
+		@Dependency
+		private FlakyService service;
+	}
+
+	static class FlakyService {
+		private static final AtomicInteger FAILURES = new AtomicInteger();
+
+		FlakyService() {
+			if (FAILURES.getAndDecrement() > 0) {
+				throw new IllegalStateException("Not yet");
+			}
+		}
+	}
+}
@@ -65,6 +65,27 @@ public class ContextTest extends TestCase {
 		assertSame(base.testComponent3, base.testComponent3_2);
 	}
 
+	public void testCyclicDependencies() {
+		final CyclicComponent base = new CyclicComponent();
+		new Context().inject(base);
+		assertNotNull(base.other);
+		assertNotNull(base.other.component);
+		assertSame(base.other, base.other.component.other);
+	}
+
+	public void testSharedInstanceIsInjectedOnce() {
+		final Context context = new Context();
+		final CyclicComponent component = new CyclicComponent();
+		context.inject(component);
+		final SuperComponentImpl shared = component.other.superComponent;
+		assertNotNull(shared.testComponent);
+		shared.testComponent = null;
+		final OtherCyclicComponent other = new OtherCyclicComponent();
+		context.inject(other);
+		assertSame(shared, other.superComponent);
+		assertNull(shared.testComponent);
+	}
+
 	static interface BaseComponentIF {
 		Object getComponent();
 	}
@@ -140,6 +161,18 @@ public class ContextTest extends TestCase {
 		private TestComponent2 noDependency;
 	}
 
+	static class CyclicComponent {
+		@Dependency
+		private OtherCyclicComponent other;
+	}
+
+	static class OtherCyclicComponent {
+		@Dependency
+		private CyclicComponent component;
+		@Dependency
+		private SuperComponentImpl superComponent;
+	}
+
 	static interface TestComponent {
 	}
 
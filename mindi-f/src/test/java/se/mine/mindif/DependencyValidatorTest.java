@@ -0,0 +1,195 @@
+package se.mine.mindif;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+@SuppressWarnings("unused")
+public class DependencyValidatorTest extends TestCase {
+	private static final ScanScope SCOPE = ScanScope.packages("se.mine.mindif").include(
+			DependencyValidatorTest.class.getName());
+
+	public void testValidGraph() {
+		final DependencyValidator validator = new DependencyValidator(SCOPE);
+		validator.validate(ValidUser.class);
+		assertEquals(0, validator.getErrors().size());
+		assertEquals(1, validator.getScannedFields().size());
+		assertEquals(ValidUser.class.getName() + ".service (" + Service.class.getName() + ")", validator
+				.getScannedFields().get(0));
+		assertEquals(ServiceImpl.class.getName(), validator.getWiring().get(
+				ValidUser.class.getName() + "#service"));
+	}
+
+	public void testMissingAndAmbiguousDependencies() {
+		final DependencyValidator validator = new DependencyValidator(SCOPE);
+		validator.validate(BrokenUser.class);
+		final List<String> errors = validator.getErrors();
+		assertEquals(3, errors.size());
+		assertTrue(errors.get(0), errors.get(0).startsWith("Found more than one implementation of interface "
+				+ Ambiguous.class.getName() + " for field " + BrokenUser.class.getName() + ".ambiguous: ["));
+		assertTrue(errors.get(1), errors.get(1).startsWith("Could not find concrete implementation of interface "
+				+ Missing.class.getName()));
+		assertEquals("Cannot instantiate " + NoDefaultConstructor.class.getName() + " for field "
+				+ Helper.class.getName() + ".noDefault, the class has no no-arg constructor, dependency path: "
+				+ BrokenUser.class.getName() + " -> " + BrokenUser.class.getName() + ".helper -> "
+				+ Helper.class.getName() + ".noDefault", errors.get(2));
+		assertTrue(validator.getWiring().isEmpty());
+	}
+
+	public void testPrototypeCycle() {
+		final DependencyValidator validator = new DependencyValidator(SCOPE);
+		validator.validate(FirstPrototype.class, SecondPrototype.class);
+		assertEquals(1, validator.getErrors().size());
+		assertEquals("Cyclic dependency of fields that get new instances: " + FirstPrototype.class.getName()
+				+ ".second -> " + SecondPrototype.class.getName() + ".first -> " + FirstPrototype.class.getName(),
+				validator.getErrors().get(0));
+	}
+
+	public void testSingletonCycleIsAllowed() {
+		final DependencyValidator validator = new DependencyValidator(SCOPE);
+		validator.validate(FirstSingleton.class);
+		assertEquals(0, validator.getErrors().size());
+	}
+
+	public void testListFieldGetsAllImplementations() {
+		final DependencyValidator validator = new DependencyValidator(SCOPE);
+		validator.validate(ListUser.class);
+		assertEquals(0, validator.getErrors().size());
+		assertEquals(2, validator.getScannedFields().size());
+		assertEquals(ListUser.class.getName() + ".ambiguous (java.util.List<" + Ambiguous.class.getName() + ">)",
+				validator.getScannedFields().get(0));
+		assertEquals(ListUser.class.getName() + ".missing (" + Missing.class.getName() + "[])", validator
+				.getScannedFields().get(1));
+		assertEquals(FirstAmbiguous.class.getName() + "," + SecondAmbiguous.class.getName(), validator.getWiring()
+				.get(ListUser.class.getName() + "#ambiguous"));
+		assertEquals("", validator.getWiring().get(ListUser.class.getName() + "#missing"));
+	}
+
+	public void testWriteWiring() throws IOException {
+		final DependencyValidator validator = new DependencyValidator(SCOPE);
+		validator.validate(ValidUser.class);
+		final File directory = new File(System.getProperty("java.io.tmpdir"), "mindif-wiring-" + System.nanoTime());
+		final File file = validator.writeWiring(directory);
+		try {
+			assertEquals(new File(directory, DependencyValidator.WIRING_RESOURCE), file);
+			final BufferedReader reader = new BufferedReader(new FileReader(file));
+			try {
+				assertEquals(ValidUser.class.getName() + "#service=" + ServiceImpl.class.getName(), reader
+						.readLine());
+				assertNull(reader.readLine());
+			} finally {
+				reader.close();
+			}
+		} finally {
+			assertTrue(file.delete());
+		}
+	}
+
+	public void testWiringReplacesTheScan() {
+		final Context context = new Context();
+		context.setScanScope(SCOPE);
+		final WiredUser user = new WiredUser();
+		context.inject(user);
+		assertEquals(SecondAmbiguous.class, user.ambiguous.getClass());
+		// The wired class does not exist, so the field is resolved with a scan
+		assertEquals(ServiceImpl.class, user.service.getClass());
+		assertEquals(1, user.ambiguousList.size());
+		assertSame(user.ambiguous, user.ambiguousList.get(0));
+	}
+
+	static class ValidUser {
+		@Dependency
+		private Service service;
+
+		@Dependency
+		private ServiceImpl serviceImpl;
+	}
+
+	static class BrokenUser {
+		@Dependency
+		private Ambiguous ambiguous;
+
+		@Dependency
+		private Missing missing;
+
+		@Dependency
+		private Helper helper;
+	}
+
+	static class ListUser {
+		@Dependency
+		private List<Ambiguous> ambiguous;
+
+		@Dependency
+		private Missing[] missing;
+	}
+
+	static class WiredUser {
+		@Dependency
+		private Ambiguous ambiguous;
+
+		@Dependency
+		private Service service;
+
+		@Dependency
+		private List<Ambiguous> ambiguousList;
+	}
+
+	static class Helper {
+		@Dependency
+		private NoDefaultConstructor noDefault;
+	}
+
+	static class NoDefaultConstructor {
+		NoDefaultConstructor(final int value) {
+		}
+	}
+
+	static interface Service {
+	}
+
+	static class ServiceImpl implements Service {
+	}
+
+	static interface Ambiguous {
+	}
+
+	static class FirstAmbiguous implements Ambiguous {
+	}
+
+	static class SecondAmbiguous implements Ambiguous {
+	}
+
+	static interface Missing {
+	}
+
+	/**
+	 * Cannot be instantiated, so it is not an implementation.
+	 */
+	abstract static class AbstractMissing implements Missing {
+	}
+
+	static class FirstPrototype {
+		@Dependency(scope = Scope.PROTOTYPE)
+		private SecondPrototype second;
+	}
+
+	static class SecondPrototype {
+		@Dependency(scope = Scope.PROTOTYPE)
+		private FirstPrototype first;
+	}
+
+	static class FirstSingleton {
+		@Dependency
+		private SecondSingleton second;
+	}
+
+	static class SecondSingleton {
+		@Dependency
+		private FirstSingleton first;
+	}
+}
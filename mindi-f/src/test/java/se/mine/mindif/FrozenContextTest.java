@@ -0,0 +1,113 @@
+package se.mine.mindif;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class FrozenContextTest extends TestCase {
+
+	public void testGetFromFrozenContext() {
+		final Context context = new Context();
+		final BaseComponentImpl component = new BaseComponentImpl();
+		context.inject(component);
+		assertFalse(context.isFrozen());
+		assertSame(component.getAnotherComponent(), context.get(AnotherComponent.class));
+
+		context.freeze();
+		assertTrue(context.isFrozen());
+		assertSame(component.getAnotherComponent(), context.get(AnotherComponentImpl.class));
+		assertSame(component.getAnotherComponent(), context.get(AnotherComponent.class));
+		assertNull(context.get(BaseComponentImpl.class));
+		assertNull(context.get(Runnable.class));
+	}
+
+	public void testInjectWithExistingInstances() {
+		final Context context = new Context();
+		final BaseComponentImpl first = new BaseComponentImpl();
+		context.inject(first);
+		context.freeze();
+		context.freeze();
+		final BaseComponentImpl second = new BaseComponentImpl();
+		context.inject(second);
+		assertSame(first.getAnotherComponent(), second.getAnotherComponent());
+	}
+
+	public void testNewInstanceFailsWhenFrozen() {
+		final Context context = new Context();
+		context.freeze();
+		try {
+			context.inject(new BaseComponentImpl());
+			fail("Should throw exception");
+		} catch (IllegalStateException e) {
+			assertEquals("Context is frozen, cannot create an instance of se.mine.mindif.AnotherComponentImpl", e
+					.getMessage());
+		}
+	}
+
+	public void testAmbiguousInterface() {
+		final Context context = new Context();
+		context.inject(new Both());
+		try {
+			context.get(Shape.class);
+			fail("Should throw exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals("More than one instance in the context is a se.mine.mindif.FrozenContextTest$Shape", e
+					.getMessage());
+		}
+		context.freeze();
+		try {
+			context.get(Shape.class);
+			fail("Should throw exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals("More than one instance in the context is a se.mine.mindif.FrozenContextTest$Shape", e
+					.getMessage());
+		}
+		assertNotNull(context.get(Circle.class));
+		assertNotNull(context.get(Square.class));
+	}
+
+	public void testChildOfFrozenContext() {
+		final Context parent = new Context();
+		final BaseComponentImpl component = new BaseComponentImpl();
+		parent.inject(component);
+		parent.freeze();
+		final Context child = parent.createChild();
+		final Both both = new Both();
+		child.inject(both);
+		assertFalse(child.isFrozen());
+		assertSame(component.getAnotherComponent(), child.get(AnotherComponent.class));
+		assertSame(both.circle, child.get(Circle.class));
+		assertNull(parent.get(Circle.class));
+	}
+
+	public void testRegistryWithManyClasses() {
+		final Map<Class<?>, Object> instances = new HashMap<Class<?>, Object>();
+		final Class<?>[] classes = { String.class, Integer.class, Long.class, StringBuilder.class, Object.class,
+				Thread.class, HashMap.class, Circle.class, Square.class, Both.class };
+		for (Class<?> clazz : classes) {
+			instances.put(clazz, new Object());
+		}
+		final FrozenRegistry registry = FrozenRegistry.of(instances);
+		for (Class<?> clazz : classes) {
+			assertSame(instances.get(clazz), registry.get(clazz));
+		}
+		assertNull(registry.get(Short.class));
+	}
+
+	interface Shape {
+	}
+
+	static class Circle implements Shape {
+	}
+
+	static class Square implements Shape {
+	}
+
+	static class Both {
+		@Dependency
+		private Circle circle;
+		@Dependency
+		private Square square;
+	}
+}
@@ -0,0 +1,21 @@
+package se.mine.mindif;
+
+/**
+ * Written the way the MinDI F processor generates injectors.
+ */
+public final class GeneratedComponent$$MindifInjector implements ComponentInjector<GeneratedComponent> {
+
+	public GeneratedComponent newInstance() {
+		final GeneratedComponent component = new GeneratedComponent();
+		component.createdByInjector = true;
+		return component;
+	}
+
+	public void inject(final GeneratedComponent component, final ComponentInjector.Resolver resolver) {
+		component.anotherComponent = (AnotherComponent) resolver.resolve(GeneratedComponent.class,
+				"anotherComponent", AnotherComponent.class, AnotherComponentImpl.class);
+		component.baseComponent = (BaseComponentImpl) resolver.resolve(GeneratedComponent.class, "baseComponent",
+				BaseComponentImpl.class, BaseComponentImpl.class);
+		component.injectedByInjector = true;
+	}
+}
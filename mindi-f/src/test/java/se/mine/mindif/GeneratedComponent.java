@@ -0,0 +1,13 @@
+package se.mine.mindif;
+
+public class GeneratedComponent {
+	@Dependency(AnotherComponentImpl.class)
+	AnotherComponent anotherComponent;
+
+	@Dependency
+	BaseComponentImpl baseComponent;
+
+	boolean createdByInjector;
+
+	boolean injectedByInjector;
+}
@@ -0,0 +1,35 @@
+package se.mine.mindif;
+
+import junit.framework.TestCase;
+
+public class GeneratedInjectorTest extends TestCase {
+
+	public void testInjectWithGeneratedInjector() {
+		final GeneratedComponent component = new GeneratedComponent();
+		new Context().inject(component);
+		assertTrue(component.injectedByInjector);
+		assertFalse(component.createdByInjector);
+		assertEquals(AnotherComponentImpl.class, component.anotherComponent.getClass());
+		assertNotNull(component.baseComponent.getAnotherComponent());
+		assertSame(component.anotherComponent, component.baseComponent.getAnotherComponent());
+	}
+
+	public void testCreateWithGeneratedInjector() {
+		final Holder holder = new Holder();
+		new Context().inject(holder);
+		assertTrue(holder.component.createdByInjector);
+		assertTrue(holder.component.injectedByInjector);
+	}
+
+	public void testFieldsAreResolvedOnDemand() {
+		final InjectionPlan plan = InjectionPlan.forClass(GeneratedComponent.class);
+		assertNotNull(plan.getGeneratedInjector());
+		assertEquals(2, plan.getFields().length);
+		assertNull(InjectionPlan.forClass(BaseComponentImpl.class).getGeneratedInjector());
+	}
+
+	static class Holder {
+		@Dependency
+		private GeneratedComponent component;
+	}
+}
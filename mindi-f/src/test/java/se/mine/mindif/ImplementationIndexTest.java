@@ -0,0 +1,202 @@
+package se.mine.mindif;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+
+public class ImplementationIndexTest extends TestCase {
+	private static final ScanScope SCOPE = ScanScope.packages("indexed");
+
+	private File directory;
+	private File indexedRoot;
+	private File plainRoot;
+	private File otherRoot;
+	private final List<URLClassLoader> classLoaders = new ArrayList<URLClassLoader>();
+
+	@Override
+	protected void setUp() throws Exception {
+		directory = File.createTempFile("mindif", "index");
+		assertTrue(directory.delete());
+		indexedRoot = new File(directory, "indexed");
+		plainRoot = new File(directory, "plain");
+		otherRoot = new File(directory, "other");
+		writeFile(indexedRoot, "indexed/Component.java", "package indexed;\n public interface Component {}");
+		writeFile(indexedRoot, "indexed/ComponentImpl.java",
+				"package indexed;\n public class ComponentImpl implements Component {}");
+		// Not in the index of its root, so it is never considered
+		writeFile(indexedRoot, "indexed/NotIndexedComponentImpl.java",
+				"package indexed;\n public class NotIndexedComponentImpl implements Component {}");
+		writeFile(indexedRoot, "indexed/User.java", "package indexed;\n public class User {\n"
+				+ " @se.mine.mindif.Dependency Component component;\n }");
+		writeFile(indexedRoot, "indexed/PrototypeUser.java", "package indexed;\n public class PrototypeUser {\n"
+				+ " @se.mine.mindif.Dependency(scope = se.mine.mindif.Scope.PROTOTYPE) Component component;\n }");
+		writeFile(indexedRoot, SubclassLocator.INDEX_RESOURCE, "indexed.Component=indexed.ComponentImpl\n"
+				+ "indexed.Component=indexed.RemovedComponentImpl\n");
+		compile(indexedRoot);
+		writeFile(plainRoot, "indexed/UnindexedComponent.java",
+				"package indexed;\n public interface UnindexedComponent {}");
+		writeFile(plainRoot, "indexed/UnindexedComponentImpl.java",
+				"package indexed;\n public class UnindexedComponentImpl implements UnindexedComponent {}");
+		compile(plainRoot);
+		writeFile(otherRoot, "indexed/OtherComponentImpl.java",
+				"package indexed;\n public class OtherComponentImpl implements Component {}");
+		compile(otherRoot, indexedRoot);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (URLClassLoader classLoader : classLoaders) {
+			SubclassLocator.invalidate(classLoader);
+			classLoader.close();
+		}
+		delete(directory);
+	}
+
+	public void testIndexedInterface() throws Exception {
+		final ClassLoader classLoader = createClassLoader(indexedRoot, plainRoot);
+		final List<Class<?>> subClasses = new SubclassLocator(classLoader.loadClass("indexed.Component"), SCOPE)
+				.getSubClasses();
+		assertEquals(1, subClasses.size());
+		assertEquals("indexed.ComponentImpl", subClasses.get(0).getName());
+	}
+
+	public void testUnindexedInterface() throws Exception {
+		final ClassLoader classLoader = createClassLoader(indexedRoot, plainRoot);
+		final Class<?> fieldClass = classLoader.loadClass("indexed.UnindexedComponent");
+		assertNull(ImplementationIndex.forClassLoader(classLoader).getImplementations(fieldClass, classLoader));
+		final List<Class<?>> subClasses = new SubclassLocator(fieldClass, SCOPE).getSubClasses();
+		assertEquals(1, subClasses.size());
+		assertEquals("indexed.UnindexedComponentImpl", subClasses.get(0).getName());
+	}
+
+	public void testRootsWithoutIndexAreScanned() throws Exception {
+		final ClassLoader classLoader = createClassLoader(indexedRoot, plainRoot, otherRoot);
+		final List<Class<?>> subClasses = new SubclassLocator(classLoader.loadClass("indexed.Component"), SCOPE)
+				.getSubClasses();
+		assertEquals(2, subClasses.size());
+		assertEquals("indexed.ComponentImpl", subClasses.get(0).getName());
+		assertEquals("indexed.OtherComponentImpl", subClasses.get(1).getName());
+	}
+
+	public void testNothingIsScannedIfEveryRootIsIndexed() throws Exception {
+		final ClassLoader classLoader = createClassLoader(indexedRoot);
+		final AtomicInteger entriesVisited = new AtomicInteger(-1);
+		final List<Class<?>> subClasses = new SubclassLocator(classLoader.loadClass("indexed.Component"), null,
+				new InjectionListenerAdapter() {
+					@Override
+					public void scanFinished(final ClassLoader scannedClassLoader, final int entries,
+							final int classesLoaded, final long durationNanos) {
+						entriesVisited.set(entries);
+					}
+				}, SCOPE).getSubClasses();
+		assertEquals(1, subClasses.size());
+		assertEquals(0, entriesVisited.get());
+	}
+
+	public void testInjectIndexedInterface() throws Exception {
+		final ClassLoader classLoader = createClassLoader(indexedRoot, plainRoot);
+		final Object user = classLoader.loadClass("indexed.User").newInstance();
+		final Context context = new Context();
+		context.setScanScope(SCOPE);
+		context.inject(user);
+		final Field field = user.getClass().getDeclaredField("component");
+		field.setAccessible(true);
+		assertEquals("indexed.ComponentImpl", field.get(user).getClass().getName());
+	}
+
+	public void testResolvedAgainAfterInvalidate() throws Exception {
+		final ClassLoader classLoader = createClassLoader(indexedRoot, plainRoot);
+		final Context context = new Context();
+		context.setScanScope(SCOPE);
+		assertEquals("indexed.ComponentImpl", injectPrototype(context, classLoader).getClass().getName());
+		writeFile(indexedRoot, SubclassLocator.INDEX_RESOURCE, "indexed.Component=indexed.NotIndexedComponentImpl\n");
+		// The implementation is resolved once per field
+		assertEquals("indexed.ComponentImpl", injectPrototype(context, classLoader).getClass().getName());
+		SubclassLocator.invalidate(classLoader);
+		assertEquals("indexed.NotIndexedComponentImpl", injectPrototype(context, classLoader).getClass()
+				.getName());
+	}
+
+	private static Object injectPrototype(final Context context, final ClassLoader classLoader) throws Exception {
+		final Object user = classLoader.loadClass("indexed.PrototypeUser").newInstance();
+		context.inject(user);
+		final Field field = user.getClass().getDeclaredField("component");
+		field.setAccessible(true);
+		return field.get(user);
+	}
+
+	private ClassLoader createClassLoader(final File... roots) throws IOException {
+		final URL[] urls = new URL[roots.length];
+		for (int i = 0; i < roots.length; i++) {
+			urls[i] = roots[i].toURI().toURL();
+		}
+		final URLClassLoader classLoader = new URLClassLoader(urls, getClass().getClassLoader());
+		classLoaders.add(classLoader);
+		return classLoader;
+	}
+
+	private static void compile(final File root, final File... classpathRoots) throws IOException {
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+		final List<File> sources = new ArrayList<File>();
+		addSources(sources, root);
+		final StringBuilder classpath = new StringBuilder(new File(Dependency.class.getProtectionDomain()
+				.getCodeSource().getLocation().getPath()).getPath());
+		for (File classpathRoot : classpathRoots) {
+			classpath.append(File.pathSeparatorChar).append(classpathRoot.getPath());
+		}
+		final List<String> options = Arrays.asList("-classpath", classpath.toString(), "-d", root.getPath(),
+				"-proc:none");
+		try {
+			assertTrue(compiler.getTask(null, fileManager, null, options, null,
+					fileManager.getJavaFileObjectsFromFiles(sources)).call());
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private static void writeFile(final File root, final String path, final String content) throws IOException {
+		final File file = new File(root, path);
+		assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static void addSources(final List<File> sources, final File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				addSources(sources, child);
+			}
+		} else if (file.getName().endsWith(".java")) {
+			sources.add(file);
+		}
+	}
+
+	private static void delete(final File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,155 @@
+package se.mine.mindif;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class InjectionListenerTest extends TestCase {
+
+	public void testCallbacks() {
+		final Context context = new Context();
+		final RecordingListener listener = new RecordingListener();
+		context.addListener(listener);
+		final Service service = new Service();
+		context.inject(service);
+
+		assertEquals(2, listener.created.size());
+		assertTrue(listener.created.contains(Repository.class));
+		assertTrue(listener.created.contains(Cache.class));
+		assertEquals(3, listener.fields.size());
+		assertTrue(listener.fields.contains("Service.repository"));
+		assertTrue(listener.fields.contains("Service.cache"));
+		assertTrue(listener.fields.contains("Cache.repository"));
+		assertEquals(2, listener.misses);
+		assertEquals(1, listener.hits);
+
+		context.inject(new Service());
+		assertEquals(2, listener.created.size());
+		assertEquals(2, listener.misses);
+		assertEquals(3, listener.hits);
+	}
+
+	public void testRemovedListenerIsNotCalled() {
+		final Context context = new Context();
+		final RecordingListener first = new RecordingListener();
+		final RecordingListener second = new RecordingListener();
+		context.addListener(first);
+		context.addListener(second);
+		context.inject(new Cache());
+		assertEquals(1, first.created.size());
+		assertEquals(1, second.created.size());
+
+		context.removeListener(first);
+		context.createChild().inject(new Service());
+		assertEquals(1, first.created.size());
+		assertEquals(2, second.created.size());
+	}
+
+	public void testChildCallsListenersOfParent() {
+		final Context context = new Context();
+		final Context child = context.createChild();
+		final RecordingListener parentListener = new RecordingListener();
+		final RecordingListener childListener = new RecordingListener();
+		context.addListener(parentListener);
+		child.addListener(childListener);
+		child.inject(new Cache());
+		assertEquals(1, parentListener.created.size());
+		assertEquals(1, childListener.created.size());
+
+		context.inject(new Service());
+		assertEquals(3, parentListener.created.size());
+		assertEquals(1, childListener.created.size());
+	}
+
+	public void testScanIsReported() {
+		SubclassLocator.invalidateAll();
+		final Context context = new Context();
+		final RecordingListener listener = new RecordingListener();
+		context.addListener(listener);
+		final ClockUser clockUser = new ClockUser();
+		context.inject(clockUser);
+		assertTrue(clockUser.clock instanceof SystemClock);
+		assertEquals(1, listener.scans);
+		assertTrue(listener.entriesVisited > 0);
+
+		context.inject(new ClockUser());
+		assertEquals(1, listener.scans);
+	}
+
+	public void testNullListener() {
+		try {
+			new Context().addListener(null);
+			fail("Should throw exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Listener must not be null", e.getMessage());
+		}
+	}
+
+	static class RecordingListener extends InjectionListenerAdapter {
+		private final List<Class<?>> created = new ArrayList<Class<?>>();
+		private final List<String> fields = new ArrayList<String>();
+		private int hits;
+		private int misses;
+		private int scans;
+		private int entriesVisited;
+
+		@Override
+		public void instanceCreated(final Class<?> componentClass, final long constructionNanos) {
+			assertTrue(constructionNanos >= 0);
+			created.add(componentClass);
+		}
+
+		@Override
+		public void instanceLookup(final Class<?> componentClass, final boolean hit) {
+			if (hit) {
+				hits++;
+			} else {
+				misses++;
+			}
+		}
+
+		@Override
+		public void fieldInjected(final Class<?> declaringClass, final String fieldName, final Object value) {
+			assertNotNull(value);
+			fields.add(declaringClass.getSimpleName() + "." + fieldName);
+		}
+
+		@Override
+		public void scanStarted(final ClassLoader classLoader) {
+			scans++;
+		}
+
+		@Override
+		public void scanFinished(final ClassLoader classLoader, final int entries, final int classesLoaded,
+				final long durationNanos) {
+			entriesVisited = entries;
+		}
+	}
+
+	static class Service {
+		@Dependency
+		private Repository repository;
+		@Dependency
+		private Cache cache;
+	}
+
+	static class Cache {
+		@Dependency
+		private Repository repository;
+	}
+
+	static class Repository {
+	}
+
+	static class ClockUser {
+		@Dependency
+		private Clock clock;
+	}
+
+	interface Clock {
+	}
+
+	static class SystemClock implements Clock {
+	}
+}
@@ -0,0 +1,58 @@
+package se.mine.mindif;
+
+import se.mine.mindif.InjectionPlan.InjectedField;
+import junit.framework.TestCase;
+
+@SuppressWarnings("unused")
+public class InjectionPlanTest extends TestCase {
+
+	public void testPlanIsShared() {
+		assertSame(InjectionPlan.forClass(SubComponent.class), InjectionPlan.forClass(SubComponent.class));
+	}
+
+	public void testPlanFields() {
+		final InjectedField[] fields = InjectionPlan.forClass(SubComponent.class).getFields();
+		assertEquals(3, fields.length);
+		assertEquals("superComponent", fields[0].getField().getName());
+		assertEquals(TestComponentImpl.class, fields[0].getImplementingClass());
+		assertEquals("explicitComponent", fields[1].getField().getName());
+		assertEquals(TestComponentImpl.class, fields[1].getImplementingClass());
+		assertEquals("unspecifiedComponent", fields[2].getField().getName());
+		assertNull(fields[2].getImplementingClass());
+		assertTrue(fields[2].getField().isAccessible());
+	}
+
+	public void testInjectSuperclassFields() {
+		final SubComponent component = new SubComponent();
+		new Context().inject(component);
+		assertNotNull(component.getSuperComponent());
+		assertSame(component.getSuperComponent(), component.explicitComponent);
+		assertSame(component.getSuperComponent(), component.unspecifiedComponent);
+	}
+
+	static class SuperComponent {
+		@Dependency
+		private TestComponentImpl superComponent;
+
+		private TestComponentImpl noDependency;
+
+		TestComponentImpl getSuperComponent() {
+			return superComponent;
+		}
+	}
+
+	static class SubComponent extends SuperComponent {
+		@Dependency(TestComponentImpl.class)
+		private TestComponent explicitComponent;
+
+		@Dependency
+		private TestComponent unspecifiedComponent;
+	}
+
+	static interface TestComponent {
+	}
+
+	static class TestComponentImpl implements TestComponent {
+	}
+
+}
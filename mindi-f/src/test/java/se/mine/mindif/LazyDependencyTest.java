@@ -0,0 +1,111 @@
+package se.mine.mindif;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class LazyDependencyTest extends TestCase {
+	private static final AtomicInteger CREATED = new AtomicInteger();
+
+	@Override
+	protected void setUp() throws Exception {
+		CREATED.set(0);
+	}
+
+	public void testDependencyIsCreatedOnFirstUse() {
+		final LazyHolder holder = new LazyHolder();
+		new Context().inject(holder);
+		assertEquals(0, CREATED.get());
+		final ExpensiveComponent component = holder.component.get();
+		assertEquals(1, CREATED.get());
+		assertNotNull(component.anotherComponent);
+		assertSame(component, holder.component.get());
+		assertEquals(1, CREATED.get());
+	}
+
+	public void testInterfaceProviders() {
+		final LazyHolder holder = new LazyHolder();
+		new Context().inject(holder);
+		assertEquals(AnotherComponentImpl.class, holder.anotherComponent.get().getClass());
+		assertSame(holder.anotherComponent.get(), holder.specifiedComponent.get());
+	}
+
+	public void testInstanceIsSharedWithContext() {
+		final Context context = new Context();
+		final LazyHolder lazyHolder = new LazyHolder();
+		context.inject(lazyHolder);
+		final EagerHolder eagerHolder = new EagerHolder();
+		context.inject(eagerHolder);
+		assertEquals(1, CREATED.get());
+		assertSame(eagerHolder.component, lazyHolder.component.get());
+		assertEquals(1, CREATED.get());
+	}
+
+	public void testConcurrentFirstUse() throws Exception {
+		final LazyHolder holder = new LazyHolder();
+		new Context().inject(holder);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Callable<ExpensiveComponent>> tasks = new ArrayList<Callable<ExpensiveComponent>>();
+			for (int i = 0; i < 32; i++) {
+				tasks.add(new Callable<ExpensiveComponent>() {
+					public ExpensiveComponent call() {
+						return holder.component.get();
+					}
+				});
+			}
+			final ExpensiveComponent expected = holder.component.get();
+			for (Future<ExpensiveComponent> future : executor.invokeAll(tasks)) {
+				assertSame(expected, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, CREATED.get());
+	}
+
+	public void testRawProvider() {
+		try {
+			new Context().inject(new RawHolder());
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Provider field provider in class " + RawHolder.class.getName()
+					+ " must declare the provided class", e.getMessage());
+		}
+	}
+
+	static class ExpensiveComponent {
+		@Dependency
+		private AnotherComponent anotherComponent;
+
+		ExpensiveComponent() {
+			CREATED.incrementAndGet();
+		}
+	}
+
+	static class LazyHolder {
+		@Dependency
+		private Provider<ExpensiveComponent> component;
+		@Dependency
+		private Provider<AnotherComponent> anotherComponent;
+		@Dependency(AnotherComponentImpl.class)
+		private Provider<AnotherComponent> specifiedComponent;
+	}
+
+	static class EagerHolder {
+		@Dependency
+		private ExpensiveComponent component;
+	}
+
+	@SuppressWarnings("rawtypes")
+	static class RawHolder {
+		@Dependency
+		private Provider provider;
+	}
+}
@@ -0,0 +1,92 @@
+package se.mine.mindif;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class LoggerWrapperTest extends TestCase {
+
+	public void testFormat() {
+		assertEquals("Found a", LoggerWrapper.format("Found {}", "a", null, 1));
+		assertEquals("a and b classes", LoggerWrapper.format("{} and {} classes", "a", "b", 2));
+		assertEquals("a and {}", LoggerWrapper.format("{} and {}", "a", null, 1));
+		assertEquals("No placeholder", LoggerWrapper.format("No placeholder", "a", "b", 2));
+		assertEquals("Value null", LoggerWrapper.format("Value {}", null, null, 1));
+	}
+
+	public void testParameterizedMessages() {
+		final RecordingBackend backend = new RecordingBackend(true);
+		final LoggerWrapper logger = new LoggerWrapper(backend);
+		final IOException exception = new IOException("broken");
+		logger.debug("Could not read {}", "file", exception);
+		logger.debug("Indexed {} classes", 3);
+		logger.info("Found {} for {}", "a", "b");
+		logger.debug(new Provider<String>() {
+			public String get() {
+				return "built";
+			}
+		});
+		assertEquals("[Could not read file, Indexed 3 classes, Found a for b, built]", backend.messages.toString());
+		assertSame(exception, backend.exceptions.get(0));
+		assertNull(backend.exceptions.get(1));
+	}
+
+	public void testNothingIsBuiltWhenDisabled() {
+		final RecordingBackend backend = new RecordingBackend(false);
+		final LoggerWrapper logger = new LoggerWrapper(backend);
+		final Object argument = new Object() {
+			@Override
+			public String toString() {
+				fail("Message should not be built");
+				return null;
+			}
+		};
+		logger.debug("Argument {}", argument);
+		logger.info("Arguments {} {}", argument, argument);
+		logger.debug(new Provider<String>() {
+			public String get() {
+				fail("Message should not be built");
+				return null;
+			}
+		});
+		assertFalse(logger.isDebugEnabled());
+		assertTrue(backend.messages.isEmpty());
+	}
+
+	public void testWithoutBackend() {
+		final LoggerWrapper logger = new LoggerWrapper((LogBackend) null);
+		assertFalse(logger.isDebugEnabled());
+		assertFalse(logger.isInfoEnabled());
+		logger.info("Nothing {}", "logged");
+	}
+
+	private static class RecordingBackend implements LogBackend {
+		private final boolean enabled;
+		private final List<String> messages = new ArrayList<String>();
+		private final List<Throwable> exceptions = new ArrayList<Throwable>();
+
+		private RecordingBackend(final boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public boolean isDebugEnabled() {
+			return enabled;
+		}
+
+		public boolean isInfoEnabled() {
+			return enabled;
+		}
+
+		public void debug(final String msg, final Throwable exception) {
+			messages.add(msg);
+			exceptions.add(exception);
+		}
+
+		public void info(final String msg, final Throwable exception) {
+			messages.add(msg);
+			exceptions.add(exception);
+		}
+	}
+}
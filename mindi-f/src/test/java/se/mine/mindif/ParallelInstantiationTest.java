@@ -0,0 +1,207 @@
+package se.mine.mindif;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class ParallelInstantiationTest extends TestCase {
+	private static CountDownLatch constructed;
+	private static volatile boolean timedOut;
+	private static volatile boolean lookupTableCreated;
+
+	private ExecutorService executor;
+
+	@Override
+	protected void setUp() throws Exception {
+		executor = Executors.newFixedThreadPool(4);
+		constructed = new CountDownLatch(3);
+		timedOut = false;
+		lookupTableCreated = false;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		executor.shutdown();
+	}
+
+	public void testIndependentComponentsAreConstructedConcurrently() {
+		final Context context = new Context();
+		context.setInstantiationExecutor(executor);
+		final Application application = new Application();
+		context.inject(application);
+		assertFalse(timedOut);
+		assertNotNull(application.connectionPool.cache);
+		assertSame(application.cache, application.connectionPool.cache);
+		assertSame(application.cache, application.lookupTable.cache);
+		assertEquals(AnotherComponentImpl.class, application.anotherComponent.getClass());
+	}
+
+	public void testSameGraphAsSequentialInjection() {
+		final BaseComponentImpl sequential = new BaseComponentImpl();
+		new Context().inject(sequential);
+		final Context context = new Context();
+		context.setInstantiationExecutor(executor);
+		final BaseComponentImpl parallel = new BaseComponentImpl();
+		context.inject(parallel);
+		assertEquals(sequential.getAnotherComponent().getClass(), parallel.getAnotherComponent().getClass());
+	}
+
+	public void testProvidersAreNotInstantiated() {
+		final Context context = new Context();
+		context.setInstantiationExecutor(executor);
+		constructed = new CountDownLatch(2);
+		final LazyApplication application = new LazyApplication();
+		context.inject(application);
+		assertFalse(timedOut);
+		assertFalse(lookupTableCreated);
+		assertSame(application.connectionPool.cache, application.lookupTable.get().cache);
+		assertTrue(lookupTableCreated);
+	}
+
+	public void testFailureReportsDependencyPath() {
+		final Context context = new Context();
+		context.setInstantiationExecutor(executor);
+		try {
+			context.inject(new FailingApplication());
+			fail();
+		} catch (RuntimeException e) {
+			assertEquals("Cannot create an instance of " + FailingComponent.class.getName() + ", dependency path: "
+					+ FailingApplication.class.getName() + ".service -> "
+					+ FailingService.class.getName() + ".component", e.getMessage());
+			assertEquals("Broken", e.getCause().getMessage());
+		}
+	}
+
+	public void testGraphIsInstantiatedOncePerClass() {
+		final AtomicInteger tasks = new AtomicInteger();
+		final ExecutorService countingExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>()) {
+			@Override
+			protected void beforeExecute(final Thread thread, final Runnable task) {
+				tasks.incrementAndGet();
+			}
+		};
+		try {
+			final Context context = new Context();
+			context.setInstantiationExecutor(countingExecutor);
+			context.setReferencePolicy(ReferencePolicy.BOUNDED);
+			context.setMaximumSize(1);
+			context.inject(new GraphRoot());
+			assertEquals(2, tasks.get());
+			// One of the leaves has been evicted, and is created again without the executor
+			final GraphRoot root = new GraphRoot();
+			context.inject(root);
+			assertEquals(2, tasks.get());
+			assertNotNull(root.first);
+			assertNotNull(root.second);
+		} finally {
+			countingExecutor.shutdown();
+		}
+	}
+
+	public void testNewInstantiationExecutor() throws Exception {
+		final ExecutorService instantiationExecutor = Context.newInstantiationExecutor();
+		try {
+			final Future<Boolean> future = instantiationExecutor.submit(new Callable<Boolean>() {
+				public Boolean call() {
+					return Thread.currentThread().isDaemon();
+				}
+			});
+			assertTrue(future.get());
+		} finally {
+			instantiationExecutor.shutdown();
+		}
+	}
+
+	private static void awaitOthers() {
+		constructed.countDown();
+		try {
+			if (!constructed.await(5, TimeUnit.SECONDS)) {
+				timedOut = true;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	static class Application {
+		@Dependency
+		private ConnectionPool connectionPool;
+		@Dependency
+		private LookupTable lookupTable;
+		@Dependency
+		private Cache cache;
+		@Dependency
+		private AnotherComponent anotherComponent;
+	}
+
+	static class LazyApplication {
+		@Dependency
+		private ConnectionPool connectionPool;
+		@Dependency
+		private Provider<LookupTable> lookupTable;
+	}
+
+	static class ConnectionPool {
+		@Dependency
+		private Cache cache;
+
+		ConnectionPool() {
+			awaitOthers();
+		}
+	}
+
+	static class LookupTable {
+		@Dependency
+		private Cache cache;
+
+		LookupTable() {
+			lookupTableCreated = true;
+			awaitOthers();
+		}
+	}
+
+	static class Cache {
+		Cache() {
+			awaitOthers();
+		}
+	}
+
+	static class GraphRoot {
+		@Dependency
+		private FirstLeaf first;
+
+		@Dependency
+		private SecondLeaf second;
+	}
+
+	static class FirstLeaf {
+	}
+
+	static class SecondLeaf {
+	}
+
+	static class FailingApplication {
+		@Dependency
+		private FailingService service;
+	}
+
+	static class FailingService {
+		@Dependency
+		private FailingComponent component;
+	}
+
+	static class FailingComponent {
+		FailingComponent() {
+			throw new IllegalStateException("Broken");
+		}
+	}
+}
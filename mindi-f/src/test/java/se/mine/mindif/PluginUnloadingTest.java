@@ -0,0 +1,216 @@
+package se.mine.mindif;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+public class PluginUnloadingTest extends TestCase {
+	private static final String PLUGIN_PACKAGE = "se.mine.mindif.plugin.";
+	private static final String[] PLUGIN_CLASSES = { "Plugin", "Greeting", "PluginGreeting", "PluginResource" };
+	private static final int RELOADS = 1000;
+	private static final int WARMUP_RELOADS = 100;
+	private static final long MAX_METASPACE_GROWTH = 2 * 1024 * 1024;
+
+	private File pluginDirectory;
+
+	@Override
+	protected void setUp() throws IOException {
+		pluginDirectory = File.createTempFile("plugin", "");
+		assertTrue(pluginDirectory.delete());
+		final File packageDirectory = new File(pluginDirectory, PLUGIN_PACKAGE.replace('.', '/'));
+		assertTrue(packageDirectory.mkdirs());
+		for (String className : PLUGIN_CLASSES) {
+			copyClassFile(PLUGIN_PACKAGE + className, new File(packageDirectory, className + ".class"));
+		}
+	}
+
+	@Override
+	protected void tearDown() {
+		delete(pluginDirectory);
+	}
+
+	public void testCloseDestroysInstances() throws Exception {
+		final URLClassLoader classLoader = new PluginClassLoader(pluginDirectory);
+		final Callable<?> plugin = newPlugin(classLoader);
+		final Context context = new Context(classLoader);
+		context.inject(plugin);
+		assertEquals("Hello", plugin.call());
+		assertNotSame(PluginUnloadingTest.class.getClassLoader(), plugin.getClass().getClassLoader());
+
+		context.close();
+		assertTrue(context.isClosed());
+		assertEquals("Goodbye destroyed", plugin.call());
+		assertEquals(0, context.getInstanceStatistics().getInstanceCount());
+		context.close();
+		try {
+			context.inject(newPlugin(classLoader));
+			fail("Should throw exception");
+		} catch (IllegalStateException e) {
+			assertEquals("Context is closed", e.getMessage());
+		}
+		classLoader.close();
+	}
+
+	public void testDestroyFailureIsThrownAfterAllAreDestroyed() {
+		final Context context = new Context();
+		final FailingUser user = new FailingUser();
+		context.inject(user);
+		try {
+			context.close();
+			fail("Should throw exception");
+		} catch (IllegalStateException e) {
+			assertEquals("Second", e.getMessage());
+			assertEquals("First", e.getSuppressed()[0].getMessage());
+		}
+		assertTrue(user.first.destroyed);
+		assertTrue(user.second.destroyed);
+	}
+
+	public void testReloadedPluginsAreUnloaded() throws Exception {
+		reload(WARMUP_RELOADS);
+		final long metaspaceBefore = getMetaspaceUsed();
+		final List<WeakReference<ClassLoader>> classLoaders = reload(RELOADS);
+		for (int i = 0; i < 20 && countAlive(classLoaders) > 0; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertEquals(0, countAlive(classLoaders));
+		final long metaspaceGrowth = getMetaspaceUsed() - metaspaceBefore;
+		assertTrue("Metaspace grew by " + metaspaceGrowth + " bytes", metaspaceGrowth < MAX_METASPACE_GROWTH);
+	}
+
+	private List<WeakReference<ClassLoader>> reload(final int count) throws Exception {
+		final List<WeakReference<ClassLoader>> classLoaders = new ArrayList<WeakReference<ClassLoader>>();
+		for (int i = 0; i < count; i++) {
+			final URLClassLoader classLoader = new PluginClassLoader(pluginDirectory);
+			final Callable<?> plugin = newPlugin(classLoader);
+			final Context context = new Context(classLoader);
+			context.inject(plugin);
+			assertEquals("Hello", plugin.call());
+			context.close();
+			classLoader.close();
+			classLoaders.add(new WeakReference<ClassLoader>(classLoader));
+		}
+		return classLoaders;
+	}
+
+	private static Callable<?> newPlugin(final ClassLoader classLoader) throws ReflectiveOperationException {
+		return (Callable<?>) classLoader.loadClass(PLUGIN_PACKAGE + "Plugin").newInstance();
+	}
+
+	private static int countAlive(final List<WeakReference<ClassLoader>> classLoaders) {
+		int alive = 0;
+		for (WeakReference<ClassLoader> classLoader : classLoaders) {
+			if (classLoader.get() != null) {
+				alive++;
+			}
+		}
+		return alive;
+	}
+
+	private static long getMetaspaceUsed() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getName().contains("Metaspace")) {
+				used += pool.getUsage().getUsed();
+			}
+		}
+		return used;
+	}
+
+	private static void copyClassFile(final String className, final File file) throws IOException {
+		final InputStream inputStream = PluginUnloadingTest.class.getClassLoader().getResourceAsStream(
+				className.replace('.', '/') + ".class");
+		try {
+			final OutputStream outputStream = new FileOutputStream(file);
+			try {
+				final byte[] buffer = new byte[4096];
+				for (int count = inputStream.read(buffer); count != -1; count = inputStream.read(buffer)) {
+					outputStream.write(buffer, 0, count);
+				}
+			} finally {
+				outputStream.close();
+			}
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private static void delete(final File file) {
+		final File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		assertTrue(file.delete());
+	}
+
+	/**
+	 * Loads the plugin classes itself, and everything else from the test class
+	 * loader.
+	 */
+	static class PluginClassLoader extends URLClassLoader {
+		PluginClassLoader(final File directory) throws IOException {
+			super(new URL[] { directory.toURI().toURL() }, PluginUnloadingTest.class.getClassLoader());
+		}
+
+		@Override
+		protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+			if (!name.startsWith(PLUGIN_PACKAGE)) {
+				return super.loadClass(name, resolve);
+			}
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> loadedClass = findLoadedClass(name);
+				if (loadedClass == null) {
+					loadedClass = findClass(name);
+				}
+				if (resolve) {
+					resolveClass(loadedClass);
+				}
+				return loadedClass;
+			}
+		}
+	}
+
+	static class FailingUser {
+		@Dependency
+		private FirstResource first;
+		@Dependency
+		private SecondResource second;
+	}
+
+	static class FirstResource implements Destroyable {
+		private boolean destroyed;
+
+		public void destroy() {
+			destroyed = true;
+			throw new IllegalStateException("First");
+		}
+	}
+
+	static class SecondResource implements Destroyable {
+		private boolean destroyed;
+
+		public void destroy() {
+			destroyed = true;
+			throw new IllegalStateException("Second");
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package se.mine.mindif;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class ReferencePolicyTest extends TestCase {
+	private static final AtomicInteger MODELS_CREATED = new AtomicInteger();
+
+	public void testStrongByDefault() {
+		final Context context = new Context();
+		final ModelUser user = new ModelUser();
+		context.inject(user);
+		context.inject(new ModelUser());
+		final InstanceStatistics statistics = context.getInstanceStatistics();
+		assertEquals(2, statistics.getInstanceCount());
+		assertEquals(0, statistics.getEvictionCount());
+		assertSame(user.model, context.get(Model.class));
+	}
+
+	public void testLeastRecentlyUsedIsEvicted() {
+		final Context context = new Context();
+		context.setReferencePolicy(ReferencePolicy.BOUNDED);
+		context.setMaximumSize(2);
+		final FirstUser first = new FirstUser();
+		context.inject(first);
+		context.inject(new SecondUser());
+		final InstanceStatistics statistics = context.getInstanceStatistics();
+		assertEquals(2, statistics.getInstanceCount());
+		assertEquals(2, statistics.getWeight());
+		assertEquals(2, statistics.getMaximumWeight());
+		assertEquals(1, statistics.getEvictionCount());
+
+		final FirstUser again = new FirstUser();
+		context.inject(again);
+		assertNotSame(first.first, again.first);
+		assertNotNull(again.first.repository);
+		assertEquals(2, context.getInstanceStatistics().getEvictionCount());
+	}
+
+	public void testWeightBound() {
+		final Context context = new Context();
+		context.setReferencePolicy(Model.class, ReferencePolicy.BOUNDED);
+		context.setReferencePolicy(Repository.class, ReferencePolicy.BOUNDED);
+		context.setMaximumWeight(10, new InstanceWeigher() {
+			public long weigh(final Object instance) {
+				return instance instanceof Model ? 8 : 3;
+			}
+		});
+		context.inject(new ModelUser());
+		// The model is added after its repository, which is the least recently used
+		final InstanceStatistics statistics = context.getInstanceStatistics();
+		assertEquals(1, statistics.getInstanceCount());
+		assertEquals(8, statistics.getWeight());
+		assertEquals(1, statistics.getEvictionCount());
+	}
+
+	public void testCollectedInstanceIsRecreated() throws InterruptedException {
+		final Context context = new Context();
+		context.setReferencePolicy(Model.class, ReferencePolicy.WEAK);
+		final int created = MODELS_CREATED.get();
+		context.inject(new ModelUser());
+		assertEquals(created + 1, MODELS_CREATED.get());
+		for (int i = 0; i < 20 && context.getInstanceStatistics().getEvictionCount() == 0; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertEquals(1, context.getInstanceStatistics().getEvictionCount());
+
+		final ModelUser user = new ModelUser();
+		context.inject(user);
+		assertEquals(created + 2, MODELS_CREATED.get());
+		assertNotNull(user.model.repository);
+	}
+
+	public void testSoftInstanceIsKept() {
+		final Context context = new Context();
+		context.setReferencePolicy(ReferencePolicy.SOFT);
+		context.inject(new ModelUser());
+		System.gc();
+		final ModelUser user = new ModelUser();
+		final int created = MODELS_CREATED.get();
+		context.inject(user);
+		assertEquals(created, MODELS_CREATED.get());
+		assertSame(user.model, context.get(Model.class));
+	}
+
+	public void testChildUsesPoliciesOfParent() {
+		final Context context = new Context();
+		context.setReferencePolicy(ReferencePolicy.BOUNDED);
+		context.setMaximumSize(1);
+		final Context child = context.createChild();
+		child.inject(new ModelUser());
+		assertEquals(1, child.getInstanceStatistics().getInstanceCount());
+		assertEquals(1, child.getInstanceStatistics().getEvictionCount());
+		assertEquals(0, context.getInstanceStatistics().getInstanceCount());
+	}
+
+	public void testChildReadsPoliciesOfParent() {
+		final Context context = new Context();
+		context.setMaximumSize(1);
+		final Context child = context.createChild();
+		context.setReferencePolicy(ReferencePolicy.BOUNDED);
+		child.setReferencePolicy(Model.class, ReferencePolicy.STRONG);
+		child.inject(new ModelUser());
+		assertEquals(0, child.getInstanceStatistics().getEvictionCount());
+		assertNotNull(child.get(Model.class));
+
+		final Context other = context.createChild();
+		other.inject(new ModelUser());
+		assertEquals(1, other.getInstanceStatistics().getEvictionCount());
+	}
+
+	public void testDestroyableIsKeptStrongly() {
+		final Context context = new Context();
+		context.setReferencePolicy(ReferencePolicy.BOUNDED);
+		context.setMaximumSize(1);
+		final ResourceUser user = new ResourceUser();
+		context.inject(user);
+		context.inject(new FirstUser());
+		assertSame(user.resource, context.get(Resource.class));
+		context.close();
+		assertTrue(user.resource.destroyed);
+	}
+
+	public void testDestroyableWithEvictablePolicy() {
+		try {
+			new Context().setReferencePolicy(Resource.class, ReferencePolicy.WEAK);
+			fail("Should throw exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Destroyable class " + Resource.class.getName()
+					+ " must be kept with the STRONG reference policy", e.getMessage());
+		}
+	}
+
+	public void testNullPolicy() {
+		try {
+			new Context().setReferencePolicy(null);
+			fail("Should throw exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Reference policy must not be null", e.getMessage());
+		}
+	}
+
+	static class ModelUser {
+		@Dependency
+		private Model model;
+	}
+
+	static class Model {
+		@Dependency
+		private Repository repository;
+
+		Model() {
+			MODELS_CREATED.incrementAndGet();
+		}
+	}
+
+	static class Repository {
+	}
+
+	static class FirstUser {
+		@Dependency
+		private First first;
+	}
+
+	static class SecondUser {
+		@Dependency
+		private Second second;
+	}
+
+	static class First {
+		@Dependency
+		private Repository repository;
+	}
+
+	static class Second {
+		@Dependency
+		private Repository repository;
+	}
+
+	static class ResourceUser {
+		@Dependency
+		private Resource resource;
+	}
+
+	static class Resource implements Destroyable {
+		private boolean destroyed;
+
+		public void destroy() {
+			destroyed = true;
+		}
+	}
+}
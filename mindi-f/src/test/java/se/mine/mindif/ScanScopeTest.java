@@ -0,0 +1,179 @@
+package se.mine.mindif;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import junit.framework.TestCase;
+
+import se.mine.mindif.scanned.ScannedService;
+
+public class ScanScopeTest extends TestCase {
+	private static final String SCANNED_IMPL = "se.mine.mindif.scanned.impl.ScannedServiceImpl";
+
+	public void testPackagesAreFoundBeforeTheyAreLoaded() {
+		final List<Class<?>> subClasses = new SubclassLocator(ScannedService.class, ScanScope
+				.packages("se.mine.mindif.scanned")).getSubClasses();
+		assertEquals(1, subClasses.size());
+		assertEquals(SCANNED_IMPL, subClasses.get(0).getName());
+	}
+
+	public void testOtherPackagesAreNotScanned() {
+		final RecordingListener listener = new RecordingListener();
+		final Context context = new Context();
+		context.addListener(listener);
+		context.setScanScope(ScanScope.packages("se.mine.mindif.scanned"));
+		try {
+			context.inject(new FilteredUser());
+			fail("Should throw exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Could not find concrete implementation of interface: " + Filtered.class.getName(), e
+					.getMessage());
+		}
+		assertTrue(listener.entriesVisited < 10);
+	}
+
+	public void testExcludeFilter() {
+		final Context context = new Context();
+		context.setScanScope(ScanScope.all().exclude(FirstFiltered.class.getName()));
+		final FilteredUser user = new FilteredUser();
+		context.inject(user);
+		assertEquals(SecondFiltered.class, user.filtered.getClass());
+	}
+
+	public void testIncludeFilter() {
+		final Context context = new Context();
+		context.setScanScope(ScanScope.packages("se.mine.mindif").include(FirstFiltered.class.getName()));
+		final FilteredUser user = new FilteredUser();
+		context.inject(user);
+		assertEquals(FirstFiltered.class, user.filtered.getClass());
+	}
+
+	public void testFieldScanPackages() {
+		final Context context = new Context();
+		context.setScanScope(ScanScope.packages("org.example"));
+		final ScannedUser user = new ScannedUser();
+		context.inject(user);
+		assertEquals(SCANNED_IMPL, user.service.getClass().getName());
+	}
+
+	public void testJarFile() throws IOException {
+		final File jarFile = File.createTempFile("scanned", ".jar");
+		try {
+			writeJar(jarFile, SCANNED_IMPL.replace('.', '/') + ".class");
+			final ClassLoader pluginClassLoader = new URLClassLoader(new URL[0], ScanScopeTest.class
+					.getClassLoader());
+			final ScanScope scope = ScanScope.all().withClassLoaders(pluginClassLoader);
+			assertTrue(new SubclassLocator(ScannedService.class, scope).getSubClasses().isEmpty());
+			final List<Class<?>> subClasses = new SubclassLocator(ScannedService.class, scope.withJars(jarFile))
+					.getSubClasses();
+			assertEquals(1, subClasses.size());
+			assertEquals(SCANNED_IMPL, subClasses.get(0).getName());
+		} finally {
+			assertTrue(jarFile.delete());
+		}
+	}
+
+	public void testFilterMatchesWholeNames() {
+		final ScanScope scope = ScanScope.all().exclude("com.acme", "org.example.Service");
+		assertFalse(scope.accepts("com.acme.Service"));
+		assertFalse(scope.accepts("com.acme.impl.Service"));
+		assertTrue(scope.accepts("com.acmeother.Service"));
+		assertFalse(scope.accepts("org.example.Service"));
+		assertFalse(scope.accepts("org.example.Service$Inner"));
+		assertTrue(scope.accepts("org.example.ServiceImpl"));
+	}
+
+	public void testFilterMatchesClassFilePaths() {
+		assertFalse(ScanScope.all().hasFilters());
+		final ScanScope scope = ScanScope.all().include("com.acme").exclude("com.acme.impl.Service");
+		assertTrue(scope.hasFilters());
+		assertTrue(acceptsPath(scope, "com/acme/Service.class"));
+		assertTrue(acceptsPath(scope, "com/acme/impl/ServiceImpl.class"));
+		assertFalse(acceptsPath(scope, "com/acme/impl/Service.class"));
+		assertFalse(acceptsPath(scope, "com/acme/impl/Service$Inner.class"));
+		assertFalse(acceptsPath(scope, "com/acmeother/Service.class"));
+		assertFalse(acceptsPath(scope, "com/Acme.class"));
+	}
+
+	public void testEqualScopesShareTypeIndex() {
+		final ClassLoader classLoader = ScanScopeTest.class.getClassLoader();
+		final TypeIndex index = TypeIndex.forClassLoader(classLoader, ScanScope.packages("se.mine.mindif")
+				.withClassLoaders(classLoader));
+		assertSame(index, TypeIndex.forClassLoader(classLoader, ScanScope.packages("se.mine.mindif")
+				.withClassLoaders(classLoader)));
+		assertNotSame(index, TypeIndex.forClassLoader(classLoader, ScanScope.all()));
+	}
+
+	public void testNullScope() {
+		try {
+			new Context().setScanScope(null);
+			fail("Should throw exception");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Scan scope must not be null", e.getMessage());
+		}
+	}
+
+	private static boolean acceptsPath(final ScanScope scope, final String path) {
+		return scope.acceptsPath(path, path.length() - ".class".length());
+	}
+
+	private static void writeJar(final File jarFile, final String entryName) throws IOException {
+		final JarOutputStream outputStream = new JarOutputStream(new FileOutputStream(jarFile));
+		try {
+			outputStream.putNextEntry(new JarEntry(entryName));
+			final InputStream inputStream = ScanScopeTest.class.getClassLoader().getResourceAsStream(entryName);
+			try {
+				copy(inputStream, outputStream);
+			} finally {
+				inputStream.close();
+			}
+			outputStream.closeEntry();
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	private static void copy(final InputStream inputStream, final OutputStream outputStream) throws IOException {
+		final byte[] buffer = new byte[4096];
+		for (int count = inputStream.read(buffer); count != -1; count = inputStream.read(buffer)) {
+			outputStream.write(buffer, 0, count);
+		}
+	}
+
+	static class RecordingListener extends InjectionListenerAdapter {
+		private int entriesVisited;
+
+		@Override
+		public void scanFinished(final ClassLoader classLoader, final int entries, final int classesLoaded,
+				final long durationNanos) {
+			entriesVisited += entries;
+		}
+	}
+
+	static class FilteredUser {
+		@Dependency
+		private Filtered filtered;
+	}
+
+	static class ScannedUser {
+		@Dependency(scan = "se.mine.mindif.scanned")
+		private ScannedService service;
+	}
+
+	interface Filtered {
+	}
+
+	static class FirstFiltered implements Filtered {
+	}
+
+	static class SecondFiltered implements Filtered {
+	}
+}
@@ -0,0 +1,125 @@
+package se.mine.mindif;
+
+import junit.framework.TestCase;
+
+public class ScopeTest extends TestCase {
+
+	public void testPrototypeInstancesAreNotShared() {
+		final Context context = new Context();
+		final PrototypeUser user = new PrototypeUser();
+		context.inject(user);
+		assertNotNull(user.first);
+		assertNotNull(user.second);
+		assertNotSame(user.first, user.second);
+		assertSame(user.shared, user.first.shared);
+		assertSame(user.shared, user.second.shared);
+
+		final PrototypeUser other = new PrototypeUser();
+		context.inject(other);
+		assertNotSame(user.first, other.first);
+		assertSame(user.shared, other.shared);
+	}
+
+	public void testPooledInstanceIsReused() {
+		final Context context = new Context();
+		final PooledUser user = new PooledUser();
+		context.inject(user);
+		final Encoder encoder = user.encoder;
+		assertNotNull(encoder.shared);
+		encoder.buffer.append("state");
+		assertEquals(0, context.getPoolStatistics(Encoder.class).getHits());
+		assertEquals(1, context.getPoolStatistics(Encoder.class).getMisses());
+
+		context.release(user);
+		assertNull(user.encoder);
+		assertEquals(0, encoder.buffer.length());
+		assertEquals(1, context.getPoolStatistics(Encoder.class).getSize());
+
+		final PooledUser next = new PooledUser();
+		context.inject(next);
+		assertSame(encoder, next.encoder);
+		final PoolStatistics statistics = context.getPoolStatistics(Encoder.class);
+		assertEquals(1, statistics.getHits());
+		assertEquals(1, statistics.getMisses());
+		assertEquals(0, statistics.getSize());
+		assertEquals(16, statistics.getCapacity());
+	}
+
+	public void testPoolCapacity() {
+		final Context context = new Context();
+		context.setPoolCapacity(1);
+		final PooledUser first = new PooledUser();
+		context.inject(first);
+		final PooledUser second = new PooledUser();
+		context.inject(second);
+		assertNotSame(first.encoder, second.encoder);
+		context.release(first);
+		context.release(second);
+		assertEquals("hits=0, misses=2, size=1/1", context.getPoolStatistics(Encoder.class).toString());
+	}
+
+	public void testChildSharesPools() {
+		final Context parent = new Context();
+		final PooledUser first = new PooledUser();
+		parent.createChild().inject(first);
+		final Encoder encoder = first.encoder;
+		parent.release(first);
+		final PooledUser second = new PooledUser();
+		parent.createChild().inject(second);
+		assertSame(encoder, second.encoder);
+	}
+
+	public void testUnusedPool() {
+		final PoolStatistics statistics = new Context().getPoolStatistics(Encoder.class);
+		assertEquals(0, statistics.getHits());
+		assertEquals(0, statistics.getMisses());
+		assertEquals(0, statistics.getSize());
+	}
+
+	public void testPrototypeProviderIsRejected() {
+		try {
+			new Context().inject(new PrototypeProviderUser());
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Provider field encoder in class " + PrototypeProviderUser.class.getName()
+					+ " must have singleton scope", e.getMessage());
+		}
+	}
+
+	static class PrototypeUser {
+		@Dependency(scope = Scope.PROTOTYPE)
+		private Parser first;
+		@Dependency(scope = Scope.PROTOTYPE)
+		private Parser second;
+		@Dependency
+		private SharedComponent shared;
+	}
+
+	static class PooledUser {
+		@Dependency(scope = Scope.POOLED)
+		private Encoder encoder;
+	}
+
+	static class PrototypeProviderUser {
+		@Dependency(scope = Scope.PROTOTYPE)
+		private Provider<Encoder> encoder;
+	}
+
+	static class Parser {
+		@Dependency
+		private SharedComponent shared;
+	}
+
+	static class Encoder implements Poolable {
+		private final StringBuilder buffer = new StringBuilder();
+		@Dependency
+		private SharedComponent shared;
+
+		public void reset() {
+			buffer.setLength(0);
+		}
+	}
+
+	static class SharedComponent {
+	}
+}
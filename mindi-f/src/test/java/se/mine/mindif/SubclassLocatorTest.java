@@ -0,0 +1,97 @@
+package se.mine.mindif;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+
+public class SubclassLocatorTest extends TestCase {
+	private static boolean initialized;
+
+	public void testScanDoesNotInitializeClasses() {
+		final List<Class<?>> subClasses = new SubclassLocator(ScannedComponent.class).getSubClasses();
+		assertEquals(1, subClasses.size());
+		assertEquals(ScannedComponentImpl.class, subClasses.get(0));
+		assertFalse(initialized);
+	}
+
+	public void testScanSkipsAbstractAndEnumClasses() {
+		final List<Class<?>> subClasses = new SubclassLocator(IndirectComponent.class).getSubClasses();
+		assertEquals(1, subClasses.size());
+		assertEquals(IndirectComponentImpl.class, subClasses.get(0));
+	}
+
+	public void testParallelScan() {
+		final ForkJoinPool executor = new ForkJoinPool(4);
+		try {
+			SubclassLocator.invalidateAll();
+			final List<Class<?>> subClasses = new SubclassLocator(IndirectComponent.class).getSubClasses();
+			final List<Class<?>> junitClasses = new SubclassLocator(Test.class).getSubClasses();
+			assertFalse(junitClasses.isEmpty());
+			SubclassLocator.invalidateAll();
+			assertEquals(subClasses, new SubclassLocator(IndirectComponent.class, executor).getSubClasses());
+			assertEquals(junitClasses, new SubclassLocator(Test.class, executor).getSubClasses());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testTypeIndexIsSharedPerClassLoader() {
+		final ClassLoader classLoader = SubclassLocatorTest.class.getClassLoader();
+		final TypeIndex index = TypeIndex.forClassLoader(classLoader, ScanScope.all());
+		assertSame(index, TypeIndex.forClassLoader(classLoader, ScanScope.all()));
+		assertEquals(1, index.getSubClasses(ScannedComponent.class, classLoader, null, null).size());
+		assertEquals(1, index.getSubClasses(IndirectComponent.class, classLoader, null, null).size());
+
+		SubclassLocator.invalidate(classLoader);
+		final TypeIndex rebuiltIndex = TypeIndex.forClassLoader(classLoader, ScanScope.all());
+		assertNotSame(index, rebuiltIndex);
+		assertEquals(IndirectComponentImpl.class, rebuiltIndex.getSubClasses(SubComponent.class, classLoader, null,
+				null).get(0));
+		assertTrue(rebuiltIndex.getSubClasses(EnumComponent.class, classLoader, null, null).isEmpty());
+	}
+
+	public void testInjectWithParallelScan() {
+		final ForkJoinPool executor = new ForkJoinPool(4);
+		try {
+			final Context context = new Context();
+			context.setScanExecutor(executor);
+			final BaseComponent base = new BaseComponent();
+			context.inject(base);
+			assertEquals(IndirectComponentImpl.class, base.indirectComponent.getClass());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	static class BaseComponent {
+		@Dependency
+		private IndirectComponent indirectComponent;
+	}
+
+	static interface ScannedComponent {
+	}
+
+	static class ScannedComponentImpl implements ScannedComponent {
+		static {
+			initialized = true;
+		}
+	}
+
+	static interface IndirectComponent {
+	}
+
+	static interface SubComponent extends IndirectComponent {
+	}
+
+	abstract static class AbstractComponent implements SubComponent {
+	}
+
+	static class IndirectComponentImpl extends AbstractComponent {
+	}
+
+	static enum EnumComponent implements IndirectComponent {
+		VALUE
+	}
+}
@@ -0,0 +1,170 @@
+package se.mine.mindif;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+public class WiringCacheTest extends TestCase {
+	private File directory;
+	private File cacheFile;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = File.createTempFile("mindi-f", "");
+		assertTrue(directory.delete());
+		assertTrue(directory.mkdir());
+		cacheFile = new File(directory, "wiring.properties");
+	}
+
+	@Override
+	protected void tearDown() {
+		for (File file : directory.listFiles()) {
+			assertTrue(file.delete());
+		}
+		assertTrue(directory.delete());
+	}
+
+	public void testWiringIsReusedWithoutScan() throws IOException {
+		final Context context = new Context();
+		assertFalse(context.setWiringCache(cacheFile));
+		context.inject(new ClockUser());
+		final Properties properties = load();
+		assertEquals(SystemClock.class.getName(), properties.getProperty("interface." + Clock.class.getName()));
+		assertEquals(ClockUser.class.getName() + "#clock", properties.getProperty("component."
+				+ ClockUser.class.getName()));
+		final long lastModified = cacheFile.lastModified();
+
+		SubclassLocator.invalidateAll();
+		final Context warmContext = new Context();
+		assertTrue(warmContext.setWiringCache(cacheFile));
+		final ScanCounter scanCounter = new ScanCounter();
+		warmContext.addListener(scanCounter);
+		final ClockUser clockUser = new ClockUser();
+		warmContext.inject(clockUser);
+		assertTrue(clockUser.clock instanceof SystemClock);
+		assertEquals(0, scanCounter.scans);
+		assertEquals(lastModified, cacheFile.lastModified());
+	}
+
+	public void testInvalidEntryFallsBackToScan() throws IOException {
+		final Context context = new Context();
+		context.setWiringCache(cacheFile);
+		context.inject(new ClockUser());
+		final Properties properties = load();
+		properties.setProperty("interface." + Clock.class.getName(), String.class.getName());
+		final OutputStream outputStream = new FileOutputStream(cacheFile);
+		try {
+			properties.store(outputStream, null);
+		} finally {
+			outputStream.close();
+		}
+
+		final Context warmContext = new Context();
+		assertTrue(warmContext.setWiringCache(cacheFile));
+		final ClockUser clockUser = new ClockUser();
+		warmContext.inject(clockUser);
+		assertTrue(clockUser.clock instanceof SystemClock);
+		assertEquals(SystemClock.class.getName(), load().getProperty("interface." + Clock.class.getName()));
+	}
+
+	public void testImplementationsAreCachedPerScope() throws IOException {
+		final ScanScope scope = ScanScope.packages("se.mine.mindif");
+		final Context context = new Context();
+		context.setWiringCache(cacheFile);
+		context.setScanScope(scope.exclude(FastTimer.class.getName()));
+		final TimerUser slowUser = new TimerUser();
+		context.inject(slowUser);
+		assertTrue(slowUser.timer instanceof SlowTimer);
+
+		final Context otherContext = new Context();
+		assertTrue(otherContext.setWiringCache(cacheFile));
+		otherContext.setScanScope(scope.exclude(SlowTimer.class.getName()));
+		final TimerUser fastUser = new TimerUser();
+		otherContext.inject(fastUser);
+		assertTrue(fastUser.timer instanceof FastTimer);
+		final Properties properties = load();
+		assertEquals(SlowTimer.class.getName(), properties.getProperty("interface." + Timer.class.getName()
+				+ "@[se.mine.mindif][][" + FastTimer.class.getName() + "]"));
+		assertEquals(FastTimer.class.getName(), properties.getProperty("interface." + Timer.class.getName()
+				+ "@[se.mine.mindif][][" + SlowTimer.class.getName() + "]"));
+	}
+
+	public void testChangedClasspathIsStale() throws IOException {
+		final File jarFile = new File(directory, "library.jar");
+		write(jarFile, "first");
+		final String classPath = jarFile.getPath();
+		final String fingerprint = WiringCache.fingerprint(classPath);
+		assertEquals(fingerprint, WiringCache.fingerprint(classPath));
+
+		final WiringCache cache = new WiringCache(cacheFile, classPath, getClass().getClassLoader());
+		assertFalse(cache.isLoaded());
+		cache.putSubClasses(Clock.class, "", Collections.<Class<?>> singletonList(SystemClock.class));
+		cache.saveIfChanged();
+		assertTrue(new WiringCache(cacheFile, classPath, getClass().getClassLoader()).isLoaded());
+
+		write(jarFile, "changed");
+		assertFalse(fingerprint.equals(WiringCache.fingerprint(classPath)));
+		assertFalse(new WiringCache(cacheFile, classPath, getClass().getClassLoader()).isLoaded());
+	}
+
+	private Properties load() throws IOException {
+		final Properties properties = new Properties();
+		final InputStream inputStream = new FileInputStream(cacheFile);
+		try {
+			properties.load(inputStream);
+		} finally {
+			inputStream.close();
+		}
+		return properties;
+	}
+
+	private static void write(final File file, final String content) throws IOException {
+		final OutputStream outputStream = new FileOutputStream(file);
+		try {
+			outputStream.write(content.getBytes("UTF-8"));
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	static class ScanCounter extends InjectionListenerAdapter {
+		private int scans;
+
+		@Override
+		public void scanStarted(final ClassLoader classLoader) {
+			scans++;
+		}
+	}
+
+	static class ClockUser {
+		@Dependency
+		private Clock clock;
+	}
+
+	interface Clock {
+	}
+
+	static class SystemClock implements Clock {
+	}
+
+	static class TimerUser {
+		@Dependency
+		private Timer timer;
+	}
+
+	interface Timer {
+	}
+
+	static class SlowTimer implements Timer {
+	}
+
+	static class FastTimer implements Timer {
+	}
+}
@@ -0,0 +1,5 @@
+package se.mine.mindif.plugin;
+
+public interface Greeting {
+	String greet();
+}
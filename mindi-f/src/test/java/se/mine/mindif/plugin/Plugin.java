@@ -0,0 +1,20 @@
+package se.mine.mindif.plugin;
+
+import java.util.concurrent.Callable;
+
+import se.mine.mindif.Dependency;
+
+/**
+ * Entry point of a plugin that is loaded by its own class loader in the
+ * tests.
+ */
+public class Plugin implements Callable<String> {
+	@Dependency
+	Greeting greeting;
+	@Dependency
+	PluginResource resource;
+
+	public String call() {
+		return greeting.greet() + (resource.isDestroyed() ? " destroyed" : "");
+	}
+}
@@ -0,0 +1,12 @@
+package se.mine.mindif.plugin;
+
+import se.mine.mindif.Dependency;
+
+public class PluginGreeting implements Greeting {
+	@Dependency
+	PluginResource resource;
+
+	public String greet() {
+		return resource.isDestroyed() ? "Goodbye" : "Hello";
+	}
+}
@@ -0,0 +1,15 @@
+package se.mine.mindif.plugin;
+
+import se.mine.mindif.Destroyable;
+
+public class PluginResource implements Destroyable {
+	private volatile boolean destroyed;
+
+	public void destroy() {
+		destroyed = true;
+	}
+
+	boolean isDestroyed() {
+		return destroyed;
+	}
+}
@@ -0,0 +1,8 @@
+package se.mine.mindif.scanned;
+
+/**
+ * Interface whose implementation is in a package that no test loads before
+ * the scan.
+ */
+public interface ScannedService {
+}
@@ -0,0 +1,6 @@
+package se.mine.mindif.scanned.impl;
+
+import se.mine.mindif.scanned.ScannedService;
+
+public class ScannedServiceImpl implements ScannedService {
+}